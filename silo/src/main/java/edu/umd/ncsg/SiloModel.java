@@ -31,6 +31,7 @@ import edu.umd.ncsg.realEstate.*;
 import edu.umd.ncsg.relocation.InOutMigration;
 import edu.umd.ncsg.relocation.MovesModel;
 import edu.umd.ncsg.transportModel.transportModel;
+import edu.umd.ncsg.utils.AsyncBatchWriter;
 import edu.umd.ncsg.utils.CblcmDiffGenerator;
 
 import org.apache.log4j.Logger;
@@ -92,6 +93,7 @@ public class SiloModel {
     private int[] tdmYears;
     private boolean trackTime;
     private long[][] timeCounter;
+    private boolean writeCheckpoints;
 
     /**
      * Constructor to set up a SILO model
@@ -169,7 +171,15 @@ public class SiloModel {
         if (ResourceUtil.getBooleanProperty(rb, PROPERTIES_CREATE_PRESTO_SUMMARY_FILE, false))
             summarizeData.preparePrestoSummary(rb);
 
-        for (int year = SiloUtil.getStartYear(); year < SiloUtil.getEndYear(); year += SiloUtil.getSimulationLength()) {
+        int firstYear = SiloUtil.getStartYear();
+        int resumeYear = SimulationCheckpoint.getResumeYear(rb);
+        if (resumeYear > 0) {
+            SimulationCheckpoint.read(resumeYear, householdData, realEstateData, jobData, acc, timeCounter);
+            firstYear = resumeYear;
+        }
+        boolean writeCheckpoints = SimulationCheckpoint.isWritingCheckpoints(rb);
+
+        for (int year = firstYear; year < SiloUtil.getEndYear(); year += SiloUtil.getSimulationLength()) {
             if (SiloUtil.containsElement(scalingYears, year))
                 summarizeData.scaleMicroDataToExogenousForecast(rb, year, householdData);
             logger.info("Simulating changes from year " + year + " to year " + (year + 1));
@@ -201,7 +211,7 @@ public class SiloModel {
             if (trackTime) timeCounter[EventTypes.values().length + 5][year] += System.currentTimeMillis() - startTime;
 
             if (trackTime) startTime = System.currentTimeMillis();
-            em.createListOfEvents(numberOfPlannedCouples);
+            em.createListOfEvents(year, numberOfPlannedCouples);
             if (trackTime) timeCounter[EventTypes.values().length + 4][year] += System.currentTimeMillis() - startTime;
 
             if (SiloUtil.containsElement(skimYears, year)) {
@@ -223,7 +233,7 @@ public class SiloModel {
             if (trackTime) timeCounter[EventTypes.values().length + 6][year] += System.currentTimeMillis() - startTime;
 
             if (trackTime) startTime = System.currentTimeMillis();
-            if (year != SiloUtil.getBaseYear()) householdData.adjustIncome();
+            if (year != SiloUtil.getBaseYear()) householdData.adjustIncome(year);
             if (trackTime) timeCounter[EventTypes.values().length + 9][year] += System.currentTimeMillis() - startTime;
 
             if (trackTime) startTime = System.currentTimeMillis();
@@ -231,75 +241,90 @@ public class SiloModel {
             if (trackTime) timeCounter[EventTypes.values().length + 7][year] += System.currentTimeMillis() - startTime;
 
             logger.info("  Simulating events");
-            // walk through all events
+            // walk through all events, birthdays are placed at random positions between the events
+            int[] birthdays = em.getBirthdays();
             for (int i = 1; i <= em.getNumberOfEvents(); i++) {
                 //	    if (i%500000==0) logger.info("Processing event " + i);
-                // event[] stores event id in position [0] and person id in position [1]
-                Integer[] event = em.selectNextEvent();
-                if (event[1] == SiloUtil.trackPp || event[1] == SiloUtil.trackHh || event[1] == SiloUtil.trackDd)
-                    SiloUtil.trackWriter.println ("Check event " + EventTypes.values()[event[0]] +  " for pp/hh/dd " +
-                            event[1]);
-                if (event[0] == EventTypes.birthday.ordinal()) {
-                    if (trackTime) startTime = System.currentTimeMillis();
-                    birth.celebrateBirthday(event[1]);
-                    if (trackTime) timeCounter[event[0]][year] += System.currentTimeMillis() - startTime;
-                } else if (event[0] == EventTypes.checkDeath.ordinal()) {
+                // birthdays that fall before this event in the random sequence
+                if (trackTime) startTime = System.currentTimeMillis();
+                birth.celebrateBirthdays(birthdays, em.getFirstBirthdayAtPosition(i - 1), em.getFirstBirthdayAtPosition(i));
+                if (trackTime) timeCounter[EventTypes.birthday.ordinal()][year] += System.currentTimeMillis() - startTime;
+                // every event stores the event type and the id of a person, household, dwelling or planned case
+                long event = em.selectNextEvent();
+                int eventType = EventManager.getEventType(event);
+                int eventId = EventManager.getEventId(event);
+                if (eventId == SiloUtil.trackPp || eventId == SiloUtil.trackHh || eventId == SiloUtil.trackDd)
+                    SiloUtil.trackWriter.println ("Check event " + EventTypes.values()[eventType] +  " for pp/hh/dd " +
+                            eventId);
+                if (eventType == EventTypes.checkDeath.ordinal()) {
                     if (trackTime) startTime = System.currentTimeMillis();
-                    death.chooseDeath(event[1]);
-                    if (trackTime) timeCounter[event[0]][year] += System.currentTimeMillis() - startTime;
-                } else if (event[0] == EventTypes.checkBirth.ordinal()) {
+                    death.chooseDeath(eventId);
+                    if (trackTime) timeCounter[eventType][year] += System.currentTimeMillis() - startTime;
+                } else if (eventType == EventTypes.checkBirth.ordinal()) {
                     if (trackTime) startTime = System.currentTimeMillis();
-                    birth.chooseBirth(event[1]);
-                    if (trackTime) timeCounter[event[0]][year] += System.currentTimeMillis() - startTime;
-                } else if (event[0] == EventTypes.checkLeaveParentHh.ordinal()) {
+                    birth.chooseBirth(eventId);
+                    if (trackTime) timeCounter[eventType][year] += System.currentTimeMillis() - startTime;
+                } else if (eventType == EventTypes.checkLeaveParentHh.ordinal()) {
                     if (trackTime) startTime = System.currentTimeMillis();
-                    lph.chooseLeaveParentHh(event[1], move, aoModel);
-                    if (trackTime) timeCounter[event[0]][year] += System.currentTimeMillis() - startTime;
-                } else if (event[0] == EventTypes.checkMarriage.ordinal()) {
+                    lph.chooseLeaveParentHh(eventId, move, aoModel);
+                    if (trackTime) timeCounter[eventType][year] += System.currentTimeMillis() - startTime;
+                } else if (eventType == EventTypes.checkMarriage.ordinal()) {
                     if (trackTime) startTime = System.currentTimeMillis();
-                    mardiv.choosePlannedMarriage(event[1], move, iomig, aoModel);
-                    if (trackTime) timeCounter[event[0]][year] += System.currentTimeMillis() - startTime;
-                } else if (event[0] == EventTypes.checkDivorce.ordinal()) {
+                    mardiv.choosePlannedMarriage(eventId, move, iomig, aoModel);
+                    if (trackTime) timeCounter[eventType][year] += System.currentTimeMillis() - startTime;
+                } else if (eventType == EventTypes.checkDivorce.ordinal()) {
                     if (trackTime) startTime = System.currentTimeMillis();
-                    mardiv.chooseDivorce(event[1], move, aoModel);
-                    if (trackTime) timeCounter[event[0]][year] += System.currentTimeMillis() - startTime;
-                } else if (event[0] == EventTypes.findNewJob.ordinal()) {
+                    mardiv.chooseDivorce(eventId, move, aoModel);
+                    if (trackTime) timeCounter[eventType][year] += System.currentTimeMillis() - startTime;
+                } else if (eventType == EventTypes.findNewJob.ordinal()) {
                     if (trackTime) startTime = System.currentTimeMillis();
-                    changeEmployment.findNewJob(event[1]);
-                    if (trackTime) timeCounter[event[0]][year] += System.currentTimeMillis() - startTime;
-                } else if (event[0] == EventTypes.quitJob.ordinal()) {
+                    changeEmployment.findNewJob(eventId);
+                    if (trackTime) timeCounter[eventType][year] += System.currentTimeMillis() - startTime;
+                } else if (eventType == EventTypes.quitJob.ordinal()) {
                     if (trackTime) startTime = System.currentTimeMillis();
-                    changeEmployment.quitJob(event[1]);
-                    if (trackTime) timeCounter[event[0]][year] += System.currentTimeMillis() - startTime;
-                } else if (event[0] == EventTypes.householdMove.ordinal()) {
+                    changeEmployment.quitJob(eventId);
+                    if (trackTime) timeCounter[eventType][year] += System.currentTimeMillis() - startTime;
+                } else if (eventType == EventTypes.householdMove.ordinal()) {
                     if (trackTime) startTime = System.currentTimeMillis();
-                    move.chooseMove(event[1]);
-                    if (trackTime) timeCounter[event[0]][year] += System.currentTimeMillis() - startTime;
-                } else if (event[0] == EventTypes.inmigration.ordinal()) {
+                    move.chooseMove(eventId);
+                    if (trackTime) timeCounter[eventType][year] += System.currentTimeMillis() - startTime;
+                } else if (eventType == EventTypes.inmigration.ordinal()) {
                     if (trackTime) startTime = System.currentTimeMillis();
-                    iomig.inmigrateHh(event[1], move, changeEmployment, aoModel);
-                    if (trackTime) timeCounter[event[0]][year] += System.currentTimeMillis() - startTime;
-                } else if (event[0] == EventTypes.outMigration.ordinal()) {
+                    iomig.inmigrateHh(eventId, move, changeEmployment, aoModel);
+                    if (trackTime) timeCounter[eventType][year] += System.currentTimeMillis() - startTime;
+                } else if (eventType == EventTypes.outMigration.ordinal()) {
                     if (trackTime) startTime = System.currentTimeMillis();
-                    iomig.outMigrateHh(event[1], false);
-                    if (trackTime) timeCounter[event[0]][year] += System.currentTimeMillis() - startTime;
-                } else if (event[0] == EventTypes.ddChangeQual.ordinal()) {
+                    iomig.outMigrateHh(eventId, false);
+                    if (trackTime) timeCounter[eventType][year] += System.currentTimeMillis() - startTime;
+                } else if (eventType == EventTypes.ddChangeQual.ordinal()) {
                     if (trackTime) startTime = System.currentTimeMillis();
-                    renov.checkRenovation(event[1]);
-                    if (trackTime) timeCounter[event[0]][year] += System.currentTimeMillis() - startTime;
-                } else if (event[0] == EventTypes.ddDemolition.ordinal()) {
+                    renov.checkRenovation(eventId);
+                    if (trackTime) timeCounter[eventType][year] += System.currentTimeMillis() - startTime;
+                } else if (eventType == EventTypes.ddDemolition.ordinal()) {
                     if (trackTime) startTime = System.currentTimeMillis();
-                    demol.checkDemolition(event[1], move, iomig);
-                    if (trackTime) timeCounter[event[0]][year] += System.currentTimeMillis() - startTime;
-                } else if (event[0] == EventTypes.ddConstruction.ordinal()) {
+                    demol.checkDemolition(eventId, move, iomig);
+                    if (trackTime) timeCounter[eventType][year] += System.currentTimeMillis() - startTime;
+                } else if (eventType == EventTypes.ddConstruction.ordinal()) {
                     if (trackTime) startTime = System.currentTimeMillis();
-                    cons.buildDwelling(event[1], move, year);
-                    if (trackTime) timeCounter[event[0]][year] += System.currentTimeMillis() - startTime;
+                    cons.buildDwelling(eventId, move, year);
+                    if (trackTime) timeCounter[eventType][year] += System.currentTimeMillis() - startTime;
                 } else {
-                    logger.warn("Unknown event type: " + event[0]);
+                    logger.warn("Unknown event type: " + eventType);
                 }
             }
 
+            // birthdays after the last event
+            if (trackTime) startTime = System.currentTimeMillis();
+            birth.celebrateBirthdays(birthdays, em.getFirstBirthdayAtPosition(em.getNumberOfEvents()),
+                    em.getFirstBirthdayAtPosition(em.getNumberOfEvents() + 1));
+            if (trackTime) timeCounter[EventTypes.birthday.ordinal()][year] += System.currentTimeMillis() - startTime;
+
+            // slots of persons, households, dwellings and jobs removed during this year may be reused from now on
+            Person.recycleRemovedPersons();
+            Household.recycleRemovedHouseholds();
+            Dwelling.recycleRemovedDwellings();
+            Job.recycleRemovedJobs();
+
             int nextYearForTransportModel = year + 1;
             if (SiloUtil.containsElement(tdmYears, nextYearForTransportModel)) {
                 TransportModel.runMstm(nextYearForTransportModel);
@@ -315,6 +340,8 @@ public class SiloModel {
             logger.info("  Finished this simulation period with " + householdData.getNumberOfPersons() +
                     " persons, " + householdData.getNumberOfHouseholds()+" households and "  +
                     Dwelling.getDwellingCount() + " dwellings.");
+            if (writeCheckpoints) SimulationCheckpoint.write(year + SiloUtil.getSimulationLength(), householdData,
+                    realEstateData, jobData, acc, timeCounter);
             if (modelStopper("check")) break;
         }
         if (SiloUtil.containsElement(scalingYears, SiloUtil.getEndYear()))
@@ -391,6 +418,12 @@ public class SiloModel {
         if (ResourceUtil.getBooleanProperty(rb, PROPERTIES_CREATE_PRESTO_SUMMARY_FILE, false))
             summarizeData.preparePrestoSummary(rb);
 
+        int resumeYear = SimulationCheckpoint.getResumeYear(rb);
+        if (resumeYear > 0) {
+            SimulationCheckpoint.read(resumeYear, householdData, realEstateData, jobData, acc, timeCounter);
+            currentYear = resumeYear;
+        }
+        writeCheckpoints = SimulationCheckpoint.isWritingCheckpoints(rb);
     }
 
 
@@ -432,7 +465,7 @@ public class SiloModel {
         if (trackTime) timeCounter[EventTypes.values().length + 5][currentYear] += System.currentTimeMillis() - startTime;
 
         if (trackTime) startTime = System.currentTimeMillis();
-        em.createListOfEvents(numberOfPlannedCouples);
+        em.createListOfEvents(currentYear, numberOfPlannedCouples);
         if (trackTime) timeCounter[EventTypes.values().length + 4][currentYear] += System.currentTimeMillis() - startTime;
 
         if (SiloUtil.containsElement(skimYears, currentYear)) {
@@ -454,7 +487,7 @@ public class SiloModel {
         if (trackTime) timeCounter[EventTypes.values().length + 6][currentYear] += System.currentTimeMillis() - startTime;
 
         if (trackTime) startTime = System.currentTimeMillis();
-        if (currentYear != SiloUtil.getBaseYear()) householdData.adjustIncome();
+        if (currentYear != SiloUtil.getBaseYear()) householdData.adjustIncome(currentYear);
         if (trackTime) timeCounter[EventTypes.values().length + 9][currentYear] += System.currentTimeMillis() - startTime;
 
         if (trackTime) startTime = System.currentTimeMillis();
@@ -463,75 +496,90 @@ public class SiloModel {
         if (trackTime) timeCounter[EventTypes.values().length + 7][currentYear] += System.currentTimeMillis() - startTime;
 
         logger.info("  Simulating events");
-        // walk through all events
+        // walk through all events, birthdays are placed at random positions between the events
+        int[] birthdays = em.getBirthdays();
         for (int i = 1; i <= em.getNumberOfEvents(); i++) {
             //	    if (i%500000==0) logger.info("Processing event " + i);
-            // event[] stores event id in position [0] and person id in position [1]
-            Integer[] event = em.selectNextEvent();
-            if (event[1] == SiloUtil.trackPp || event[1] == SiloUtil.trackHh || event[1] == SiloUtil.trackDd)
-                SiloUtil.trackWriter.println ("Check event " + EventTypes.values()[event[0]] +  " for pp/hh/dd " +
-                        event[1]);
-            if (event[0] == EventTypes.birthday.ordinal()) {
-                if (trackTime) startTime = System.currentTimeMillis();
-                birth.celebrateBirthday(event[1]);
-                if (trackTime) timeCounter[event[0]][currentYear] += System.currentTimeMillis() - startTime;
-            } else if (event[0] == EventTypes.checkDeath.ordinal()) {
+            // birthdays that fall before this event in the random sequence
+            if (trackTime) startTime = System.currentTimeMillis();
+            birth.celebrateBirthdays(birthdays, em.getFirstBirthdayAtPosition(i - 1), em.getFirstBirthdayAtPosition(i));
+            if (trackTime) timeCounter[EventTypes.birthday.ordinal()][currentYear] += System.currentTimeMillis() - startTime;
+            // every event stores the event type and the id of a person, household, dwelling or planned case
+            long event = em.selectNextEvent();
+            int eventType = EventManager.getEventType(event);
+            int eventId = EventManager.getEventId(event);
+            if (eventId == SiloUtil.trackPp || eventId == SiloUtil.trackHh || eventId == SiloUtil.trackDd)
+                SiloUtil.trackWriter.println ("Check event " + EventTypes.values()[eventType] +  " for pp/hh/dd " +
+                        eventId);
+            if (eventType == EventTypes.checkDeath.ordinal()) {
                 if (trackTime) startTime = System.currentTimeMillis();
-                death.chooseDeath(event[1]);
-                if (trackTime) timeCounter[event[0]][currentYear] += System.currentTimeMillis() - startTime;
-            } else if (event[0] == EventTypes.checkBirth.ordinal()) {
+                death.chooseDeath(eventId);
+                if (trackTime) timeCounter[eventType][currentYear] += System.currentTimeMillis() - startTime;
+            } else if (eventType == EventTypes.checkBirth.ordinal()) {
                 if (trackTime) startTime = System.currentTimeMillis();
-                birth.chooseBirth(event[1]);
-                if (trackTime) timeCounter[event[0]][currentYear] += System.currentTimeMillis() - startTime;
-            } else if (event[0] == EventTypes.checkLeaveParentHh.ordinal()) {
+                birth.chooseBirth(eventId);
+                if (trackTime) timeCounter[eventType][currentYear] += System.currentTimeMillis() - startTime;
+            } else if (eventType == EventTypes.checkLeaveParentHh.ordinal()) {
                 if (trackTime) startTime = System.currentTimeMillis();
-                lph.chooseLeaveParentHh(event[1], move, aoModel);
-                if (trackTime) timeCounter[event[0]][currentYear] += System.currentTimeMillis() - startTime;
-            } else if (event[0] == EventTypes.checkMarriage.ordinal()) {
+                lph.chooseLeaveParentHh(eventId, move, aoModel);
+                if (trackTime) timeCounter[eventType][currentYear] += System.currentTimeMillis() - startTime;
+            } else if (eventType == EventTypes.checkMarriage.ordinal()) {
                 if (trackTime) startTime = System.currentTimeMillis();
-                mardiv.choosePlannedMarriage(event[1], move, iomig, aoModel);
-                if (trackTime) timeCounter[event[0]][currentYear] += System.currentTimeMillis() - startTime;
-            } else if (event[0] == EventTypes.checkDivorce.ordinal()) {
+                mardiv.choosePlannedMarriage(eventId, move, iomig, aoModel);
+                if (trackTime) timeCounter[eventType][currentYear] += System.currentTimeMillis() - startTime;
+            } else if (eventType == EventTypes.checkDivorce.ordinal()) {
                 if (trackTime) startTime = System.currentTimeMillis();
-                mardiv.chooseDivorce(event[1], move, aoModel);
-                if (trackTime) timeCounter[event[0]][currentYear] += System.currentTimeMillis() - startTime;
-            } else if (event[0] == EventTypes.findNewJob.ordinal()) {
+                mardiv.chooseDivorce(eventId, move, aoModel);
+                if (trackTime) timeCounter[eventType][currentYear] += System.currentTimeMillis() - startTime;
+            } else if (eventType == EventTypes.findNewJob.ordinal()) {
                 if (trackTime) startTime = System.currentTimeMillis();
-                changeEmployment.findNewJob(event[1]);
-                if (trackTime) timeCounter[event[0]][currentYear] += System.currentTimeMillis() - startTime;
-            } else if (event[0] == EventTypes.quitJob.ordinal()) {
+                changeEmployment.findNewJob(eventId);
+                if (trackTime) timeCounter[eventType][currentYear] += System.currentTimeMillis() - startTime;
+            } else if (eventType == EventTypes.quitJob.ordinal()) {
                 if (trackTime) startTime = System.currentTimeMillis();
-                changeEmployment.quitJob(event[1]);
-                if (trackTime) timeCounter[event[0]][currentYear] += System.currentTimeMillis() - startTime;
-            } else if (event[0] == EventTypes.householdMove.ordinal()) {
+                changeEmployment.quitJob(eventId);
+                if (trackTime) timeCounter[eventType][currentYear] += System.currentTimeMillis() - startTime;
+            } else if (eventType == EventTypes.householdMove.ordinal()) {
                 if (trackTime) startTime = System.currentTimeMillis();
-                move.chooseMove(event[1]);
-                if (trackTime) timeCounter[event[0]][currentYear] += System.currentTimeMillis() - startTime;
-            } else if (event[0] == EventTypes.inmigration.ordinal()) {
+                move.chooseMove(eventId);
+                if (trackTime) timeCounter[eventType][currentYear] += System.currentTimeMillis() - startTime;
+            } else if (eventType == EventTypes.inmigration.ordinal()) {
                 if (trackTime) startTime = System.currentTimeMillis();
-                iomig.inmigrateHh(event[1], move, changeEmployment, aoModel);
-                if (trackTime) timeCounter[event[0]][currentYear] += System.currentTimeMillis() - startTime;
-            } else if (event[0] == EventTypes.outMigration.ordinal()) {
+                iomig.inmigrateHh(eventId, move, changeEmployment, aoModel);
+                if (trackTime) timeCounter[eventType][currentYear] += System.currentTimeMillis() - startTime;
+            } else if (eventType == EventTypes.outMigration.ordinal()) {
                 if (trackTime) startTime = System.currentTimeMillis();
-                iomig.outMigrateHh(event[1], false);
-                if (trackTime) timeCounter[event[0]][currentYear] += System.currentTimeMillis() - startTime;
-            } else if (event[0] == EventTypes.ddChangeQual.ordinal()) {
+                iomig.outMigrateHh(eventId, false);
+                if (trackTime) timeCounter[eventType][currentYear] += System.currentTimeMillis() - startTime;
+            } else if (eventType == EventTypes.ddChangeQual.ordinal()) {
                 if (trackTime) startTime = System.currentTimeMillis();
-                renov.checkRenovation(event[1]);
-                if (trackTime) timeCounter[event[0]][currentYear] += System.currentTimeMillis() - startTime;
-            } else if (event[0] == EventTypes.ddDemolition.ordinal()) {
+                renov.checkRenovation(eventId);
+                if (trackTime) timeCounter[eventType][currentYear] += System.currentTimeMillis() - startTime;
+            } else if (eventType == EventTypes.ddDemolition.ordinal()) {
                 if (trackTime) startTime = System.currentTimeMillis();
-                demol.checkDemolition(event[1], move, iomig);
-                if (trackTime) timeCounter[event[0]][currentYear] += System.currentTimeMillis() - startTime;
-            } else if (event[0] == EventTypes.ddConstruction.ordinal()) {
+                demol.checkDemolition(eventId, move, iomig);
+                if (trackTime) timeCounter[eventType][currentYear] += System.currentTimeMillis() - startTime;
+            } else if (eventType == EventTypes.ddConstruction.ordinal()) {
                 if (trackTime) startTime = System.currentTimeMillis();
-                cons.buildDwelling(event[1], move, currentYear);
-                if (trackTime) timeCounter[event[0]][currentYear] += System.currentTimeMillis() - startTime;
+                cons.buildDwelling(eventId, move, currentYear);
+                if (trackTime) timeCounter[eventType][currentYear] += System.currentTimeMillis() - startTime;
             } else {
-                logger.warn("Unknown event type: " + event[0]);
+                logger.warn("Unknown event type: " + eventType);
             }
         }
 
+        // birthdays after the last event
+        if (trackTime) startTime = System.currentTimeMillis();
+        birth.celebrateBirthdays(birthdays, em.getFirstBirthdayAtPosition(em.getNumberOfEvents()),
+                em.getFirstBirthdayAtPosition(em.getNumberOfEvents() + 1));
+        if (trackTime) timeCounter[EventTypes.birthday.ordinal()][currentYear] += System.currentTimeMillis() - startTime;
+
+        // slots of persons, households, dwellings and jobs removed during this year may be reused from now on
+        Person.recycleRemovedPersons();
+        Household.recycleRemovedHouseholds();
+        Dwelling.recycleRemovedDwellings();
+        Job.recycleRemovedJobs();
+
         int nextYearForTransportModel = currentYear + 1;
         if (SiloUtil.containsElement(tdmYears, nextYearForTransportModel)) {
             TransportModel.runMstm(nextYearForTransportModel);
@@ -548,6 +596,8 @@ public class SiloModel {
                 " persons, " + householdData.getNumberOfHouseholds()+" households and "  +
                 Dwelling.getDwellingCount() + " dwellings.");
         currentYear++;
+        if (writeCheckpoints)
+            SimulationCheckpoint.write(currentYear, householdData, realEstateData, jobData, acc, timeCounter);
         if (modelStopper("check")) finishModel();
     }
 
@@ -576,6 +626,8 @@ public class SiloModel {
              String[] inputFiles = new String[2];
              inputFiles[0] = (directory + "/" + rb.getString(PROPERTIES_SPATIAL_RESULT_FILE_NAME) + SiloUtil.gregorianIterator + ".csv");
              inputFiles[1] = (SiloUtil.baseDirectory+rb.getString(PROPERTIES_CBLCM_BASE_FILE));
+             summarizeData.resultFileSpatial(rb, "flush");
+             AsyncBatchWriter.awaitCompletion();
              
              try {
 				CblcmDiffGenerator.generateCblcmDiff(inputFiles, outputFile, Integer.valueOf(rb.getString(PROPERTIES_CBLCM_BASE_YEAR)) , SiloUtil.getEndYear());
@@ -596,6 +648,7 @@ public class SiloModel {
         SiloUtil.trackingFile("close");
         summarizeData.resultFile("close");
         summarizeData.resultFileSpatial(rb, "close");
+        AsyncBatchWriter.awaitCompletion();
         float endTime = SiloUtil.rounder(((System.currentTimeMillis() - startTime) / 60000), 1);
         int hours = (int) (endTime / 60);
         int min = (int) (endTime - 60 * hours);
@@ -9,6 +9,8 @@ import edu.umd.ncsg.data.geoData;
 import edu.umd.ncsg.data.summarizeData;
 import edu.umd.ncsg.events.IssueCounter;
 import edu.umd.ncsg.realEstate.ConstructionOverwrite;
+import edu.umd.ncsg.utils.AsyncBatchWriter;
+import edu.umd.ncsg.utils.RandomStream;
 import omx.OmxMatrix;
 import omx.hdf5.OmxHdf5Datatype;
 import org.apache.log4j.Logger;
@@ -102,12 +104,15 @@ public class SiloUtil {
 
 
     private static void initializeRandomNumber() {
-        // initialize random number generator
+        // initialize random number generator and seed of per-entity random streams
         int seed = ResourceUtil.getIntegerProperty(rb, PROPERTIES_RANDOM_SEED);
-        if (seed == -1)
+        if (seed == -1) {
             SiloModel.rand = new Random();
-        else
+            RandomStream.setSeed(new Random().nextLong());
+        } else {
             SiloModel.rand = new Random(seed);
+            RandomStream.setSeed(seed);
+        }
     }
 
 
@@ -201,6 +206,18 @@ public class SiloUtil {
     }
 
 
+    public static PrintWriter openFileForAsynchronousWriting(String fileName, boolean appendFile) {
+        // open file that is written by a background thread, file is compressed with gzip if its name ends with .gz
+
+        try {
+            return new PrintWriter(new AsyncBatchWriter(fileName, appendFile, fileName.endsWith(".gz")));
+        } catch (IOException e) {
+            logger.error("Could not open file <" + fileName + ">.");
+            return null;
+        }
+    }
+
+
     public static PrintWriter openFileForSequentialWriting(String fileName, boolean appendFile) {
         // open file and return PrintWriter object
 
@@ -243,6 +260,20 @@ public class SiloUtil {
     }
 
 
+    public static int select (double[] probabilities, RandomStream random) {
+        // select item based on probabilities (for zero-based double array) with a draw from a per-entity random stream
+        double selPos = getSum(probabilities) * random.nextDouble();
+        double sum = 0;
+        for (int i = 0; i < probabilities.length; i++) {
+            sum += probabilities[i];
+            if (sum > selPos) {
+                return i;
+            }
+        }
+        return probabilities.length - 1;
+    }
+
+
     public static int select (float[] probabilities) {
         // select item based on probabilities (for zero-based float array)
         float selPos = getSum(probabilities) * SiloModel.rand.nextFloat();
@@ -654,25 +685,25 @@ public class SiloUtil {
 
 
     public static Matrix convertOmxToMatrix (OmxMatrix omxMatrix) {
-        // convert OMX matrix into java matrix
+        // convert OMX matrix into java matrix with external numbers 1 to n. Float rows are used by the matrix directly,
+        // double rows are converted row by row.
 
         OmxHdf5Datatype.OmxJavaType type = omxMatrix.getOmxJavaType();
         String name = omxMatrix.getName();
         int[] dimensions = omxMatrix.getShape();
         if (type.equals(OmxHdf5Datatype.OmxJavaType.FLOAT)) {
             float[][] fArray = (float[][]) omxMatrix.getData();
-            Matrix mat = new Matrix(name, name, dimensions[0], dimensions[1]);
-            for (int i = 0; i < dimensions[0]; i++)
-                for (int j = 0; j < dimensions[1]; j++)
-                    mat.setValueAt(i + 1, j + 1, fArray[i][j]);
-            return mat;
+            return new Matrix(name, name, fArray);
         } else if (type.equals(OmxHdf5Datatype.OmxJavaType.DOUBLE)) {
             double[][] dArray = (double[][]) omxMatrix.getData();
-            Matrix mat = new Matrix(name, name, dimensions[0], dimensions[1]);
-            for (int i = 0; i < dimensions[0]; i++)
-                for (int j = 0; j < dimensions[1]; j++)
-                    mat.setValueAt(i + 1, j + 1, (float) dArray[i][j]);
-            return mat;
+            float[][] fArray = new float[dimensions[0]][];
+            for (int i = 0; i < dimensions[0]; i++) {
+                double[] dRow = dArray[i];
+                float[] fRow = new float[dimensions[1]];
+                for (int j = 0; j < fRow.length; j++) fRow[j] = (float) dRow[j];
+                fArray[i] = fRow;
+            }
+            return new Matrix(name, name, fArray);
         } else {
             logger.info("OMX Matrix type " + type.toString() + " not yet implemented. Program exits.");
             System.exit(1);
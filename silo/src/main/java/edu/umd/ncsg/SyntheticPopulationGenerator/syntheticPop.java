@@ -5,6 +5,7 @@ import edu.umd.ncsg.SiloModel;
 import edu.umd.ncsg.SiloUtil;
 import edu.umd.ncsg.autoOwnership.AutoOwnershipModel;
 import edu.umd.ncsg.data.*;
+import edu.umd.ncsg.utils.PrefixSumSampler;
 import org.apache.log4j.Logger;
 
 import java.io.BufferedReader;
@@ -43,6 +44,7 @@ public class syntheticPop {
     protected int[] pumas;
     protected int[] simplifiedPumas;
     protected HashMap<Integer, int[]> tazByPuma;
+    private HashMap<Integer, PrefixSumSampler> dwellingLocationSamplers = new HashMap<>();
     // For reasons that are not explained in the documentation, some of the PUMA work zones were aggregated to the
     // next higher level. Keep PUMA work zones separate from more detailed PUMA zones.
     protected HashMap<Integer, int[]> tazByWorkZonePuma;
@@ -102,8 +104,8 @@ public class syntheticPop {
         ArrayList<Integer> alHomePuma = new ArrayList<>();
         ArrayList<Integer> alWorkPuma = new ArrayList<>();
         for (int taz: geoData.getZones()) {
-            int homePuma = (int) SiloUtil.zonalData.getIndexedValueAt(taz, "PUMA");
-            int workPuma = (int) SiloUtil.zonalData.getIndexedValueAt(taz, "simplifiedPuma");
+            int homePuma = geoData.getPUMAofZone(taz);
+            int workPuma = geoData.getSimplifiedPUMAofZone(taz);
             if (!alHomePuma.contains(homePuma)) alHomePuma.add(homePuma);
             if (!alWorkPuma.contains(workPuma)) alWorkPuma.add(workPuma);
             if (tazByPuma.containsKey(homePuma)) {
@@ -191,8 +193,7 @@ public class syntheticPop {
 
         logger.info("  Identifying vacant jobs by zone");
         vacantJobsByZone = new HashMap<>();
-        Job[] jobs = Job.getJobArray();
-        for (Job jj: jobs) {
+        for (Job jj: Job.getJobs()) {
             if (jj.getWorkerId() == -1) {
                 int id = jj.getId();
                 int zone = jj.getZone();
@@ -224,8 +225,8 @@ public class syntheticPop {
 
         String age90plusFile = SiloUtil.baseDirectory + ResourceUtil.getProperty(rb, PROPERTIES_AGE_DISTRIBUTION_90PLUS);
         TableDataSet age90plus = SiloUtil.readCSVfile(age90plusFile);
-        float[] probAge90plusMale = age90plus.getColumnAsFloat("male");
-        float[] probAge90plusFemale = age90plus.getColumnAsFloat("female");
+        PrefixSumSampler probAge90plusMale = new PrefixSumSampler(age90plus.getColumnAsFloat("male"));
+        PrefixSumSampler probAge90plusFemale = new PrefixSumSampler(age90plus.getColumnAsFloat("female"));
 
         String[] states = {"MD","DC","DE","PA","VA","WV"};
         int[] stateNumber = {24,11,10,42,51,54};      // FIPS code of String states[]
@@ -302,8 +303,8 @@ public class syntheticPop {
                             gender[personCounter] = convertToInteger(recString.substring(22, 23));
                             age[personCounter] = convertToInteger(recString.substring(24, 26));
                             if (age[personCounter] >= 90) {
-                                if (gender[personCounter] == 1) age[personCounter] = 90 + SiloUtil.select(probAge90plusMale);
-                                else age[personCounter] = 90 + SiloUtil.select(probAge90plusFemale);
+                                if (gender[personCounter] == 1) age[personCounter] = 90 + probAge90plusMale.sample(SiloModel.rand);
+                                else age[personCounter] = 90 + probAge90plusFemale.sample(SiloModel.rand);
                             }
                             int hispanic = convertToInteger(recString.substring(27, 29));
                             int singleRace = convertToInteger(recString.substring(37, 38));
@@ -505,15 +506,22 @@ public class syntheticPop {
 
 
     private int locateDwelling (int pumaZone) {
-        // select TAZ within PUMA zone
+        // select TAZ within PUMA zone, weights of every PUMA zone are fixed and kept as prefix sums
 
         int[] zones = tazByPuma.get(pumaZone);
-        float[] weights = new float[zones.length];
-        for (int i = 0; i < zones.length; i++) weights[i] = hhDistribution.getIndexedValueAt(zones[i], "HH00");
-        if (SiloUtil.getSum(weights) == 0) logger.error("No weights found to allocate dwelling. Check method " +
-                "<locateDwelling> in <syntheticPop.java>");
-        int select = SiloUtil.select(weights);
-        return zones[select];
+        PrefixSumSampler sampler = dwellingLocationSamplers.get(pumaZone);
+        if (sampler == null) {
+            float[] weights = new float[zones.length];
+            for (int i = 0; i < zones.length; i++) weights[i] = hhDistribution.getIndexedValueAt(zones[i], "HH00");
+            if (SiloUtil.getSum(weights) == 0) {
+                logger.error("No weights found to allocate dwelling. Check method " +
+                        "<locateDwelling> in <syntheticPop.java>");
+                return zones[zones.length - 1];
+            }
+            sampler = new PrefixSumSampler(weights);
+            dwellingLocationSamplers.put(pumaZone, sampler);
+        }
+        return zones[sampler.sample(SiloModel.rand)];
     }
 
 
@@ -692,7 +700,7 @@ public class syntheticPop {
         JobDataManager jobData = new JobDataManager(rb);
         jobData.calculateJobDensityByZone();
         AutoOwnershipModel ao = new AutoOwnershipModel(rb);   // calculate auto-ownership probabilities
-        for (Household hh: Household.getHouseholdArray()) {
+        for (Household hh: Household.getHouseholds()) {
             int autos = ao.simulateAutoOwnership(hh);
             hh.setAutos(autos);
         }
@@ -707,7 +715,7 @@ public class syntheticPop {
         HashMap<String, ArrayList<Integer>> ddPointer = new HashMap<>();
         // summarize vacancy
         int[][][] ddCount = new int [geoData.getHighestZonalId() + 1][DwellingType.values().length][2];
-        for (Dwelling dd: Dwelling.getDwellingArray()) {
+        for (Dwelling dd: Dwelling.getDwellings()) {
             int taz = dd.getZone();
             int occ = dd.getResidentId();
             ddCount[taz][dd.getType().ordinal()][0]++;
@@ -828,7 +836,7 @@ public class syntheticPop {
 
         int[] ddCount = new int[DwellingType.values().length];
         int[] occCount = new int[DwellingType.values().length];
-        for (Dwelling dd: Dwelling.getDwellingArray()) {
+        for (Dwelling dd: Dwelling.getDwellings()) {
             int id = dd.getResidentId();
             DwellingType tp = dd.getType();
             ddCount[tp.ordinal()]++;
@@ -868,7 +876,7 @@ public class syntheticPop {
         // summarize number of people by PersonRole (married, single, child)
 
         int[][] roleCounter = new int[101][3];
-        for (Person pp: Person.getPersonArray()) {
+        for (Person pp: Person.getPersons()) {
             if (pp.getGender() == 1) continue;
             int age = Math.min(100, pp.getAge());
             roleCounter[age][pp.getRole().ordinal()]++;
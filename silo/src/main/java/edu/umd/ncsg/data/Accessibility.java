@@ -3,12 +3,20 @@ package edu.umd.ncsg.data;
 import com.pb.common.datafile.TableDataSet;
 import com.pb.common.matrix.Matrix;
 import com.pb.common.util.ResourceUtil;
+import com.pb.sawdust.calculator.Function1;
+import com.pb.sawdust.util.concurrent.ForkJoinPoolFactory;
+import com.pb.sawdust.util.concurrent.IteratorAction;
 import edu.umd.ncsg.SiloUtil;
-import omx.OmxFile;
-import omx.OmxMatrix;
 import org.apache.log4j.Logger;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
 import java.util.ResourceBundle;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Calculates and stores accessibilities
@@ -26,6 +34,7 @@ public class Accessibility {
     protected static final String PROPERTIES_TRANSIT_ACCESSIBILITY_BETA      = "transit.accessibility.b";
     protected static final String PROPERTIES_HTS_WORK_TLFD                   = "hts.work.tlfd";
     protected static final String PROPERTIES_AUTO_OPERATING_COSTS            = "auto.operating.costs";
+    protected static final String PROPERTIES_INCREMENTAL_ACCESSIBILITY       = "accessibility.incremental.update";
 
     static Logger logger = Logger.getLogger(Accessibility.class);
     private ResourceBundle rb;
@@ -37,6 +46,10 @@ public class Accessibility {
     private static float[] workTLFD;
     private static float autoOperatingCosts;
     private static Matrix travelTimeToRegion;
+    private static int skimYear;
+    private static String[] skimFileStamps;
+    private static AccessibilityCalculator.IncrementalHansenAccessibility autoIncremental;
+    private static AccessibilityCalculator.IncrementalHansenAccessibility transitIncremental;
 
     public Accessibility(ResourceBundle rb, int year) {
         this.rb = rb;
@@ -51,13 +64,44 @@ public class Accessibility {
     public void readSkim(int year) {
         // Read hwySkim matrix for year
         logger.info("  Reading skims for " + year);
+        skimYear = year;
 
+        // Read highway and transit skims at the same time
         String hwyFileName = SiloUtil.baseDirectory + "skims/" + rb.getString(PROPERTIES_AUTO_PEAK_SKIM + year);
-        // Read highway hwySkim
-        OmxFile hSkim = new OmxFile(hwyFileName);
-        hSkim.openReadOnly();
-        OmxMatrix timeOmxSkimAutos = hSkim.getMatrix("HOVTime");
-        hwySkim = SiloUtil.convertOmxToMatrix(timeOmxSkimAutos);
+        String transitFileName = SiloUtil.baseDirectory + "skims/" + rb.getString(PROPERTIES_TRANSIT_PEAK_SKIM + year);
+        final String[][] skimDefinitions = {{hwyFileName, "HOVTime"}, {transitFileName, "CheapJrnyTime"}};
+        // cached impedances remain valid only if the skims are read again from the same, unchanged files. The
+        // transport model may rewrite skims under the same name, therefore size and modification time are compared
+        String[] fileStamps = {getFileStamp(hwyFileName), getFileStamp(transitFileName)};
+        if (!Arrays.equals(fileStamps, skimFileStamps)) {
+            autoIncremental = null;
+            transitIncremental = null;
+        }
+        skimFileStamps = fileStamps;
+        final Matrix[] skims = new Matrix[skimDefinitions.length];
+        final boolean useSkimCache = SkimCache.isEnabled(rb);
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        Function1<Integer, Void> skimReader = new Function1<Integer, Void>() {
+            public Void apply(Integer skim) {
+                try {
+                    if (useSkimCache) {
+                        skims[skim] = SkimCache.getSkim(rb, skimDefinitions[skim][0], skimDefinitions[skim][1]);
+                    } else {
+                        skims[skim] = SkimCache.readOmxSkim(skimDefinitions[skim][0], skimDefinitions[skim][1]);
+                    }
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+                return null;
+            }
+        };
+        IteratorAction<Integer> itTask = new IteratorAction<>(Arrays.asList(0, 1), skimReader);
+        ForkJoinPool pool = ForkJoinPoolFactory.getForkJoinPool();
+        pool.execute(itTask);
+        itTask.waitForCompletion();
+        if (failure.get() != null) throw failure.get();
+        hwySkim = skims[0];
+        transitSkim = skims[1];
 //        TableDataSet hwySkimTbl = SiloUtil.readCSVfile(hwyFileName);
 //        hwySkim = new Matrix(SiloUtil.getZones().length, SiloUtil.getZones().length);
 //        hwySkim.setExternalNumbersZeroBased(SiloUtil.getZones());
@@ -68,11 +112,6 @@ public class Accessibility {
 //            hwySkim.setValueAt(orig, dest, hwySkimTbl.getValueAt(row, "time"));
 //        }
         // Read transit hwySkim
-        String transitFileName = SiloUtil.baseDirectory + "skims/" + rb.getString(PROPERTIES_TRANSIT_PEAK_SKIM + year);
-        OmxFile tSkim = new OmxFile(transitFileName);
-        tSkim.openReadOnly();
-        OmxMatrix timeOmxSkimTransit = tSkim.getMatrix("CheapJrnyTime");
-        transitSkim = SiloUtil.convertOmxToMatrix(timeOmxSkimTransit);
 //        TableDataSet transitSkimTbl = SiloUtil.readCSVfile(transitFileName);
 //        transitSkim = new Matrix(SiloUtil.getZones().length, SiloUtil.getZones().length);
 //        transitSkim.setExternalNumbersZeroBased(SiloUtil.getZones());
@@ -86,6 +125,72 @@ public class Accessibility {
     }
 
 
+    private static String getFileStamp(String fileName) {
+        File file = new File(fileName);
+        return fileName + ";" + file.length() + ";" + file.lastModified();
+    }
+
+
+    public void writeCheckpoint(ObjectOutputStream out) throws IOException {
+        // accessibilities are only recalculated in skim years, the skims themselves are read again when resuming. The
+        // state of incremental updates is saved as well, so that later updates agree with an uninterrupted run
+        out.writeInt(skimYear);
+        out.writeObject(autoAccessibility);
+        out.writeObject(transitAccessibility);
+        out.writeObject(regionalAccessibility);
+        boolean incremental = autoIncremental != null && transitIncremental != null;
+        out.writeBoolean(incremental);
+        if (incremental) {
+            writeIncrementalState(out, autoIncremental);
+            writeIncrementalState(out, transitIncremental);
+        }
+    }
+
+
+    private static void writeIncrementalState(ObjectOutputStream out,
+                                              AccessibilityCalculator.IncrementalHansenAccessibility incremental) throws IOException {
+        out.writeObject(incremental.getValues());
+        out.writeObject(incremental.getWeights());
+        out.writeObject(incremental.getAccessibilities());
+    }
+
+
+    public void readCheckpoint(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        int year = in.readInt();
+        if (year != skimYear) readSkim(year);
+        autoAccessibility = (double[]) in.readObject();
+        transitAccessibility = (double[]) in.readObject();
+        regionalAccessibility = (double[]) in.readObject();
+        if (in.readBoolean()) {
+            int[] autoValues = (int[]) in.readObject();
+            double[] autoWeights = (double[]) in.readObject();
+            double[] autoSums = (double[]) in.readObject();
+            int[] transitValues = (int[]) in.readObject();
+            double[] transitWeights = (double[]) in.readObject();
+            double[] transitSums = (double[]) in.readObject();
+            // impedances only depend on the skims and are rebuilt, the remaining state is taken from the checkpoint
+            if (autoIncremental == null || transitIncremental == null) createIncrementalAccessibilities(autoValues);
+            autoIncremental.restore(autoValues, autoWeights, autoSums);
+            transitIncremental.restore(transitValues, transitWeights, transitSums);
+        } else {
+            autoIncremental = null;
+            transitIncremental = null;
+        }
+    }
+
+
+    private void createIncrementalAccessibilities(int[] popByZoneIndex) {
+        // keep impedances of auto and transit skims for incremental updates
+        int[] zones = geoData.getZones();
+        autoIncremental = new AccessibilityCalculator.IncrementalHansenAccessibility(hwySkim, zones,
+                (float) ResourceUtil.getDoubleProperty(rb, PROPERTIES_AUTO_ACCESSIBILITY_ALPHA),
+                (float) ResourceUtil.getDoubleProperty(rb, PROPERTIES_AUTO_ACCESSIBILITY_BETA), popByZoneIndex);
+        transitIncremental = new AccessibilityCalculator.IncrementalHansenAccessibility(transitSkim, zones,
+                (float) ResourceUtil.getDoubleProperty(rb, PROPERTIES_TRANSIT_ACCESSIBILITY_ALPHA),
+                (float) ResourceUtil.getDoubleProperty(rb, PROPERTIES_TRANSIT_ACCESSIBILITY_BETA), popByZoneIndex);
+    }
+
+
     public static float getAutoTravelTime(int i, int j) {
         return hwySkim.getValueAt(i, j);
     }
@@ -94,12 +199,22 @@ public class Accessibility {
         return transitSkim.getValueAt(i, j);
     }
 
+    public static Matrix getAutoSkim() {
+        return hwySkim;
+    }
+
+    public static Matrix getTransitSkim() {
+        return transitSkim;
+    }
+
     public static float getTravelCosts(int i, int j) {
         return (autoOperatingCosts / 100f) * hwySkim.getValueAt(i, j);
     }
 
     public void calculateAccessibilities (int year) {
-        // Calculate Hansen TripGenAccessibility (recalculated every year)
+        // Calculate Hansen TripGenAccessibility (recalculated every year). If incremental updates are enabled, the
+        // impedances of all zone pairs are kept on the heap as long as the skim files do not change, and later
+        // calculations only apply the population changes of destination zones
 
         logger.info("  Calculating accessibilities for " + year);
         float alphaAuto = (float) ResourceUtil.getDoubleProperty(rb, PROPERTIES_AUTO_ACCESSIBILITY_ALPHA);
@@ -109,27 +224,26 @@ public class Accessibility {
 
         int[] zones = geoData.getZones();
         int[] pop = summarizeData.getPopulationByZone();
-        autoAccessibility = new double[zones.length];
-        transitAccessibility = new double[zones.length];
-        for (int orig: zones) {
-            autoAccessibility[geoData.getZoneIndex(orig)] = 0;
-            transitAccessibility[geoData.getZoneIndex(orig)] = 0;
-            for (int dest: zones) {
-                double autoImpedance;
-                if (getAutoTravelTime(orig, dest) == 0) {      // should never happen for auto
-                    autoImpedance = 0;
-                } else {
-                    autoImpedance = Math.exp(betaAuto * getAutoTravelTime(orig, dest));
-                }
-                double transitImpedance;
-                if (getTransitTravelTime(orig, dest) == 0) {   // zone is not connected by walk-to-transit
-                    transitImpedance = 0;
-                } else {
-                    transitImpedance = Math.exp(betaTransit * getTransitTravelTime(orig, dest));
-                }
-                autoAccessibility[geoData.getZoneIndex(orig)] += Math.pow(pop[dest], alphaAuto) * autoImpedance;
-                transitAccessibility[geoData.getZoneIndex(orig)] += Math.pow(pop[dest], alphaTransit) * transitImpedance;
-            }
+        int[] popByZoneIndex = new int[zones.length];
+        for (int i = 0; i < zones.length; i++) popByZoneIndex[i] = pop[zones[i]];
+        // a travel time of 0 should never happen for auto and means that a zone is not connected by walk-to-transit
+        if (!ResourceUtil.getBooleanProperty(rb, PROPERTIES_INCREMENTAL_ACCESSIBILITY, false)) {
+            autoIncremental = null;
+            transitIncremental = null;
+            autoAccessibility = AccessibilityCalculator.calculateHansenAccessibilities(hwySkim, zones, betaAuto,
+                    AccessibilityCalculator.getPowers(popByZoneIndex, alphaAuto))[0];
+            transitAccessibility = AccessibilityCalculator.calculateHansenAccessibilities(transitSkim, zones, betaTransit,
+                    AccessibilityCalculator.getPowers(popByZoneIndex, alphaTransit))[0];
+        } else if (autoIncremental == null || transitIncremental == null) {
+            createIncrementalAccessibilities(popByZoneIndex);
+            autoAccessibility = autoIncremental.getAccessibilities();
+            transitAccessibility = transitIncremental.getAccessibilities();
+        } else {
+            int changedZones = autoIncremental.update(popByZoneIndex);
+            transitIncremental.update(popByZoneIndex);
+            logger.info("  Updated accessibilities for population changes in " + changedZones + " zones");
+            autoAccessibility = autoIncremental.getAccessibilities();
+            transitAccessibility = transitIncremental.getAccessibilities();
         }
         autoAccessibility = SiloUtil.scaleArray(autoAccessibility, 100);
         transitAccessibility = SiloUtil.scaleArray(transitAccessibility, 100);
@@ -161,18 +275,13 @@ public class Accessibility {
 
     private void calculateDistanceToRegions () {
         // calculate the minimal distance from each zone to every region
-        travelTimeToRegion = new Matrix(geoData.getZones().length, geoData.getRegionList().length);
-        travelTimeToRegion.setExternalNumbersZeroBased(geoData.getZones(), geoData.getRegionList());
-        for (int iz: geoData.getZones()) {
-            float[] minDist = new float[SiloUtil.getHighestVal(geoData.getRegionList())+1];
-            for (int i = 0; i < minDist.length; i++) minDist[i] = Float.MAX_VALUE;
-            for (int jz: geoData.getZones()) {
-                int region = geoData.getRegionOfZone(jz);
-                float travelTime = getAutoTravelTime(iz, jz);
-                minDist[region] = Math.min(minDist[region], travelTime);
-            }
-            for (int region: geoData.getRegionList()) travelTimeToRegion.setValueAt(iz, region, minDist[region]);
-        }
+        int[] zones = geoData.getZones();
+        int[] regionIndexOfZone = new int[zones.length];
+        for (int i = 0; i < zones.length; i++) regionIndexOfZone[i] = geoData.getRegionIndex(geoData.getRegionOfZone(zones[i]));
+        float[][] minDist = AccessibilityCalculator.calculateMinimumTimeToGroups(hwySkim, zones, regionIndexOfZone,
+                geoData.getRegionList().length);
+        travelTimeToRegion = new Matrix(minDist);
+        travelTimeToRegion.setExternalNumbersZeroBased(zones, geoData.getRegionList());
     }
 
 
@@ -0,0 +1,201 @@
+package edu.umd.ncsg.data;
+
+import com.pb.common.matrix.Matrix;
+import com.pb.sawdust.calculator.Function1;
+import com.pb.sawdust.util.concurrent.ForkJoinPoolFactory;
+import com.pb.sawdust.util.concurrent.IteratorAction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Per-origin kernels over skim rows for Hansen accessibilities and travel times to groups of zones. Origins are split
+ * into blocks that are processed in parallel, every block reads the skim row of one origin at a time into a flat
+ * array. Zones are given as an array of zone ids, and all inputs and results are indexed by the position of a zone in
+ * this array. IncrementalHansenAccessibility keeps the impedances of one skim to update accessibilities for changed
+ * destination weights.
+ **/
+
+public class AccessibilityCalculator {
+
+    private static final int ORIGINS_PER_BLOCK = 32;
+
+
+    /**
+     * Per-origin task that receives the skim row of the origin, ordered like the zones.
+     **/
+    private interface OriginKernel {
+        void apply(int origin, float[] times);
+    }
+
+
+    public static double[] getPowers(int[] values, float alpha) {
+        // raise every value to the power of alpha, to be used as destination weights
+        double[] powers = new double[values.length];
+        for (int i = 0; i < values.length; i++) powers[i] = Math.pow(values[i], alpha);
+        return powers;
+    }
+
+
+    public static double[][] calculateHansenAccessibilities(Matrix skim, int[] zones, final float beta,
+                                                            final double[]... weights) {
+        // sum weights[w][dest] * exp(beta * time[orig][dest]) over all destinations for every origin and weight vector,
+        // destinations with a travel time of 0 are treated as not reachable
+        final double[][] accessibilities = new double[weights.length][zones.length];
+        final int destinations = zones.length;
+        processOrigins(skim, zones, new OriginKernel() {
+            public void apply(int origin, float[] times) {
+                for (int w = 0; w < weights.length; w++) {
+                    double[] weight = weights[w];
+                    double sum = 0;
+                    for (int dest = 0; dest < destinations; dest++) {
+                        float time = times[dest];
+                        double impedance = (time == 0) ? 0 : Math.exp(beta * time);
+                        sum += weight[dest] * impedance;
+                    }
+                    accessibilities[w][origin] = sum;
+                }
+            }
+        });
+        return accessibilities;
+    }
+
+
+    public static float[][] calculateMinimumTimeToGroups(Matrix skim, int[] zones, final int[] groupOfZone,
+                                                         final int groups) {
+        // find the shortest travel time from every origin to any zone of every group, groupOfZone gives the index of
+        // the group of every destination, groups without zones are set to Float.MAX_VALUE
+        final float[][] minimumTimes = new float[zones.length][groups];
+        final int destinations = zones.length;
+        processOrigins(skim, zones, new OriginKernel() {
+            public void apply(int origin, float[] times) {
+                float[] minimum = minimumTimes[origin];
+                for (int group = 0; group < groups; group++) minimum[group] = Float.MAX_VALUE;
+                for (int dest = 0; dest < destinations; dest++) {
+                    int group = groupOfZone[dest];
+                    minimum[group] = Math.min(minimum[group], times[dest]);
+                }
+            }
+        });
+        return minimumTimes;
+    }
+
+
+    /**
+     * Hansen accessibility of one skim that keeps the impedances exp(beta * time) of all origin-destination pairs, so
+     * that a change of destination weights is applied in O(zones x changed zones) instead of recalculating all pairs.
+     * Initial accessibilities are identical to calculateHansenAccessibilities(). Impedances are stored as floats,
+     * therefore updated accessibilities agree with a full recalculation within float precision. Requires 4 bytes per
+     * origin-destination pair.
+     **/
+    public static class IncrementalHansenAccessibility {
+
+        private final float[][] impedances;
+        private final float alpha;
+        private final int[] values;
+        private final double[] weights;
+        private final double[] accessibilities;
+
+        public IncrementalHansenAccessibility(Matrix skim, int[] zones, float alpha, final float beta, int[] values) {
+            this.alpha = alpha;
+            this.values = values.clone();
+            weights = getPowers(values, alpha);
+            impedances = new float[zones.length][];
+            accessibilities = new double[zones.length];
+            final int destinations = zones.length;
+            processOrigins(skim, zones, new OriginKernel() {
+                public void apply(int origin, float[] times) {
+                    float[] impedance = new float[destinations];
+                    double sum = 0;
+                    for (int dest = 0; dest < destinations; dest++) {
+                        float time = times[dest];
+                        double exactImpedance = (time == 0) ? 0 : Math.exp(beta * time);
+                        impedance[dest] = (float) exactImpedance;
+                        sum += weights[dest] * exactImpedance;
+                    }
+                    impedances[origin] = impedance;
+                    accessibilities[origin] = sum;
+                }
+            });
+        }
+
+        public int update(int[] newValues) {
+            // apply the weight changes of all destinations whose value changed, returns the number of changed destinations
+            int[] changedDestinations = new int[values.length];
+            double[] weightChanges = new double[values.length];
+            int changes = 0;
+            for (int dest = 0; dest < values.length; dest++) {
+                if (newValues[dest] == values[dest]) continue;
+                double newWeight = Math.pow(newValues[dest], alpha);
+                changedDestinations[changes] = dest;
+                weightChanges[changes++] = newWeight - weights[dest];
+                weights[dest] = newWeight;
+                values[dest] = newValues[dest];
+            }
+            for (int origin = 0; origin < impedances.length; origin++) {
+                float[] impedance = impedances[origin];
+                double change = 0;
+                for (int i = 0; i < changes; i++) change += weightChanges[i] * impedance[changedDestinations[i]];
+                accessibilities[origin] += change;
+            }
+            return changes;
+        }
+
+        public double[] getAccessibilities() {
+            return accessibilities.clone();
+        }
+
+        public int[] getValues() {
+            return values.clone();
+        }
+
+        public double[] getWeights() {
+            return weights.clone();
+        }
+
+        public void restore(int[] savedValues, double[] savedWeights, double[] savedAccessibilities) {
+            // continue from values, weights and accessibilities saved from an instance for the same skim, alpha and beta
+            System.arraycopy(savedValues, 0, values, 0, values.length);
+            System.arraycopy(savedWeights, 0, weights, 0, weights.length);
+            System.arraycopy(savedAccessibilities, 0, accessibilities, 0, accessibilities.length);
+        }
+    }
+
+
+    private static void processOrigins(final Matrix skim, final int[] zones, final OriginKernel kernel) {
+        // run kernel for every origin, blocks of origins are processed in parallel
+
+        final int[] columns = new int[zones.length];
+        for (int dest = 0; dest < zones.length; dest++) columns[dest] = skim.getInternalColumnNumber(zones[dest]);
+        boolean identityColumns = skim.getColumnCount() == zones.length;
+        for (int dest = 0; dest < zones.length && identityColumns; dest++) identityColumns = columns[dest] == dest;
+        final boolean copyColumns = !identityColumns;
+
+        List<Integer> blocks = new ArrayList<>();
+        for (int first = 0; first < zones.length; first += ORIGINS_PER_BLOCK) blocks.add(first);
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        Function1<Integer, Void> blockProcessor = new Function1<Integer, Void>() {
+            public Void apply(Integer first) {
+                try {
+                    float[] row = new float[skim.getColumnCount()];
+                    float[] times = copyColumns ? new float[zones.length] : row;
+                    for (int origin = first; origin < Math.min(first + ORIGINS_PER_BLOCK, zones.length); origin++) {
+                        skim.getRow(zones[origin], row);
+                        if (copyColumns) for (int dest = 0; dest < zones.length; dest++) times[dest] = row[columns[dest]];
+                        kernel.apply(origin, times);
+                    }
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+                return null;
+            }
+        };
+        IteratorAction<Integer> itTask = new IteratorAction<>(blocks, blockProcessor);
+        ForkJoinPool pool = ForkJoinPoolFactory.getForkJoinPool();
+        pool.execute(itTask);
+        itTask.waitForCompletion();
+        if (failure.get() != null) throw failure.get();
+    }
+}
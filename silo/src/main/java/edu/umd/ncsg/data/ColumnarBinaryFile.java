@@ -0,0 +1,340 @@
+package edu.umd.ncsg.data;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact binary format for micro data stores. A file starts with a header (magic number, format version, number of
+ * sections). Every section holds one store: its name, the number of objects and the number of blocks, followed by one
+ * block per attribute. A block holds the values of one attribute for all objects in ascending order of their ids as
+ * a primitive array, optionally compressed with deflate. Files are written and read through NIO file channels.
+ *
+ * Block layout: name, element type, compression flag, number of elements, number of stored bytes, data.
+ **/
+
+public class ColumnarBinaryFile {
+
+    public static final String PROPERTIES_COMPRESS_BIN_FILES = "compress.binary.files";
+    public static final int MAGIC_NUMBER = 0x53494c4f;    // "SILO"
+    public static final int FORMAT_VERSION = 1;
+
+    private static final byte TYPE_BYTE = 1;
+    private static final byte TYPE_INT = 2;
+    private static final byte TYPE_FLOAT = 3;
+    private static final byte TYPE_DOUBLE = 4;
+    private static final byte TYPE_STRING = 5;
+
+
+    public static boolean isColumnarFile(String fileName) {
+        // check magic number, files written with ObjectOutputStream by earlier versions start differently
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "r")) {
+            return file.length() >= 4 && file.readInt() == MAGIC_NUMBER;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+
+    /**
+     * Writes sections of blocks sequentially. The number of sections is patched into the header by close().
+     **/
+    public static class Writer implements AutoCloseable {
+
+        private final RandomAccessFile file;
+        private final FileChannel channel;
+        private final boolean compress;
+        private int sections = 0;
+        private int blocksLeft = 0;
+        private String section;
+
+
+        public Writer(String fileName, boolean compress) throws IOException {
+            file = new RandomAccessFile(fileName, "rw");
+            file.setLength(0);
+            channel = file.getChannel();
+            this.compress = compress;
+            ByteBuffer header = ByteBuffer.allocate(12);
+            header.putInt(MAGIC_NUMBER).putInt(FORMAT_VERSION).putInt(0);
+            header.flip();
+            writeFully(header);
+        }
+
+
+        public void startSection(String name, int numberOfObjects, int numberOfBlocks) throws IOException {
+            checkSectionComplete();
+            byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer header = ByteBuffer.allocate(4 + nameBytes.length + 8);
+            header.putInt(nameBytes.length).put(nameBytes).putInt(numberOfObjects).putInt(numberOfBlocks);
+            header.flip();
+            writeFully(header);
+            section = name;
+            blocksLeft = numberOfBlocks;
+            sections++;
+        }
+
+
+        public void writeBytes(String name, byte[] values) throws IOException {
+            writeBlock(name, TYPE_BYTE, values.length, values);
+        }
+
+
+        public void writeInts(String name, int[] values) throws IOException {
+            ByteBuffer data = ByteBuffer.allocate(4 * values.length);
+            data.asIntBuffer().put(values);
+            writeBlock(name, TYPE_INT, values.length, data.array());
+        }
+
+
+        public void writeFloats(String name, float[] values) throws IOException {
+            ByteBuffer data = ByteBuffer.allocate(4 * values.length);
+            data.asFloatBuffer().put(values);
+            writeBlock(name, TYPE_FLOAT, values.length, data.array());
+        }
+
+
+        public void writeDoubles(String name, double[] values) throws IOException {
+            ByteBuffer data = ByteBuffer.allocate(8 * values.length);
+            data.asDoubleBuffer().put(values);
+            writeBlock(name, TYPE_DOUBLE, values.length, data.array());
+        }
+
+
+        public void writeStrings(String name, String[] values) throws IOException {
+            // every string is stored as its length in bytes followed by its UTF-8 bytes
+            byte[][] encoded = new byte[values.length][];
+            int size = 0;
+            for (int i = 0; i < values.length; i++) {
+                encoded[i] = values[i].getBytes(StandardCharsets.UTF_8);
+                size += 4 + encoded[i].length;
+            }
+            ByteBuffer data = ByteBuffer.allocate(size);
+            for (byte[] value: encoded) data.putInt(value.length).put(value);
+            writeBlock(name, TYPE_STRING, values.length, data.array());
+        }
+
+
+        private void writeBlock(String name, byte type, int numberOfElements, byte[] data) throws IOException {
+            if (blocksLeft == 0) throw new IllegalStateException("Too many blocks in section " + section + ".");
+            blocksLeft--;
+            byte[] stored = compress ? deflate(data) : data;
+            byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer header = ByteBuffer.allocate(4 + nameBytes.length + 10);
+            header.putInt(nameBytes.length).put(nameBytes).put(type).put((byte) (compress ? 1 : 0));
+            header.putInt(numberOfElements).putInt(stored.length);
+            header.flip();
+            writeFully(header);
+            writeFully(ByteBuffer.wrap(stored));
+        }
+
+
+        private static byte[] deflate(byte[] data) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            deflater.setInput(data);
+            deflater.finish();
+            byte[] buffer = new byte[Math.max(data.length / 2, 64)];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            deflater.end();
+            return Arrays.copyOf(buffer, length);
+        }
+
+
+        private void writeFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+
+
+        private void checkSectionComplete() {
+            if (blocksLeft != 0)
+                throw new IllegalStateException("Section " + section + " is missing " + blocksLeft + " blocks.");
+        }
+
+
+        @Override
+        public void close() throws IOException {
+            try {
+                checkSectionComplete();
+                ByteBuffer count = ByteBuffer.allocate(4);
+                count.putInt(sections);
+                count.flip();
+                channel.write(count, 8);
+            } finally {
+                file.close();
+            }
+        }
+    }
+
+
+    /**
+     * Reads sections and blocks in the order in which they were written. Block names are checked against the names
+     * the caller expects, a file written by a different schema fails with an IOException instead of mixing up
+     * attributes.
+     **/
+    public static class Reader implements AutoCloseable {
+
+        private final RandomAccessFile file;
+        private final FileChannel channel;
+        private final int numberOfSections;
+        private int numberOfObjects;
+        private int blocksLeft = 0;
+        private int lastNumberOfElements;
+        private String section;
+
+
+        public Reader(String fileName) throws IOException {
+            file = new RandomAccessFile(fileName, "r");
+            channel = file.getChannel();
+            ByteBuffer header = readFully(12);
+            if (header.getInt() != MAGIC_NUMBER) {
+                file.close();
+                throw new IOException("File " + fileName + " is not a columnar binary file.");
+            }
+            int version = header.getInt();
+            if (version > FORMAT_VERSION) {
+                file.close();
+                throw new IOException("File " + fileName + " has format version " + version + ", only versions up to " +
+                        FORMAT_VERSION + " are supported.");
+            }
+            numberOfSections = header.getInt();
+        }
+
+
+        public int getNumberOfSections() {
+            return numberOfSections;
+        }
+
+
+        public int startSection(String name) throws IOException {
+            // read section header and return number of objects in this section
+            if (blocksLeft != 0) throw new IOException("Section " + section + " has " + blocksLeft + " unread blocks.");
+            String found = readString();
+            if (!found.equals(name)) throw new IOException("Expected section " + name + " but found " + found + ".");
+            ByteBuffer counts = readFully(8);
+            numberOfObjects = counts.getInt();
+            blocksLeft = counts.getInt();
+            section = name;
+            return numberOfObjects;
+        }
+
+
+        public int getNumberOfBlocksLeft() {
+            return blocksLeft;
+        }
+
+
+        public byte[] readBytes(String name, byte[] target) throws IOException {
+            // read block into the first elements of target
+            ByteBuffer data = readBlock(name, TYPE_BYTE, target.length);
+            data.get(target, 0, data.remaining());
+            return target;
+        }
+
+
+        public int[] readInts(String name, int[] target) throws IOException {
+            ByteBuffer data = readBlock(name, TYPE_INT, target.length);
+            data.asIntBuffer().get(target, 0, data.remaining() / 4);
+            return target;
+        }
+
+
+        public float[] readFloats(String name, float[] target) throws IOException {
+            ByteBuffer data = readBlock(name, TYPE_FLOAT, target.length);
+            data.asFloatBuffer().get(target, 0, data.remaining() / 4);
+            return target;
+        }
+
+
+        public double[] readDoubles(String name, double[] target) throws IOException {
+            ByteBuffer data = readBlock(name, TYPE_DOUBLE, target.length);
+            data.asDoubleBuffer().get(target, 0, data.remaining() / 8);
+            return target;
+        }
+
+
+        public String[] readStrings(String name) throws IOException {
+            ByteBuffer data = readBlock(name, TYPE_STRING, Integer.MAX_VALUE);
+            String[] values = new String[lastNumberOfElements];
+            for (int i = 0; i < values.length; i++) {
+                byte[] value = new byte[data.getInt()];
+                data.get(value);
+                values[i] = new String(value, StandardCharsets.UTF_8);
+            }
+            return values;
+        }
+
+
+        private ByteBuffer readBlock(String name, byte expectedType, int capacity) throws IOException {
+            if (blocksLeft == 0) throw new IOException("No block " + name + " left in section " + section + ".");
+            blocksLeft--;
+            String found = readString();
+            if (!found.equals(name))
+                throw new IOException("Expected block " + name + " in section " + section + " but found " + found + ".");
+            ByteBuffer header = readFully(10);
+            byte type = header.get();
+            boolean compressed = header.get() == 1;
+            int numberOfElements = header.getInt();
+            int storedLength = header.getInt();
+            if (type != expectedType) throw new IOException("Block " + name + " has unexpected element type " + type + ".");
+            if (numberOfElements > capacity)
+                throw new IOException("Block " + name + " holds " + numberOfElements + " elements, expected at most " + capacity + ".");
+            lastNumberOfElements = numberOfElements;
+            ByteBuffer stored = readFully(storedLength);
+            if (!compressed) return stored;
+            return inflate(stored.array(), name);
+        }
+
+
+        private static ByteBuffer inflate(byte[] stored, String name) throws IOException {
+            Inflater inflater = new Inflater();
+            inflater.setInput(stored);
+            byte[] buffer = new byte[Math.max(stored.length * 4, 64)];
+            int length = 0;
+            try {
+                while (!inflater.finished()) {
+                    if (length == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    int inflated = inflater.inflate(buffer, length, buffer.length - length);
+                    if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                        throw new IOException("Block " + name + " is truncated.");
+                    length += inflated;
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Block " + name + " cannot be decompressed: " + e.getMessage());
+            } finally {
+                inflater.end();
+            }
+            return ByteBuffer.wrap(buffer, 0, length).slice();
+        }
+
+
+        private String readString() throws IOException {
+            int length = readFully(4).getInt();
+            return new String(readFully(length).array(), StandardCharsets.UTF_8);
+        }
+
+
+        private ByteBuffer readFully(int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) throw new IOException("Unexpected end of file in section " + section + ".");
+            }
+            buffer.flip();
+            return buffer;
+        }
+
+
+        @Override
+        public void close() throws IOException {
+            file.close();
+        }
+    }
+}
@@ -19,9 +19,9 @@ package edu.umd.ncsg.data;
 import org.apache.log4j.Logger;
 
 import java.io.PrintWriter;
-import java.util.Map;
-import java.util.HashMap;
+import java.util.AbstractCollection;
 import java.util.Collection;
+import java.util.Iterator;
 
 /**
  * @author Greg Erhardt 
@@ -31,89 +31,132 @@ import java.util.Collection;
 public class Dwelling {
 
     static Logger logger = Logger.getLogger(Dwelling.class);
-    private static final Map<Integer, Dwelling> dwellingMap = new HashMap<>();
-	int id;
-    int zone;
-    int hhId;
-    DwellingType type;
-    int bedrooms;
-    int quality;
-    int price;
-    int yearBuilt;
-    float restriction;
-    double utilOfResident;
-    double[] utilByHhType;
+    private static DwellingStore store = new DwellingStore(1000);
+    private static final DwellingType[] dwellingTypes = DwellingType.values();
+    // Attributes are stored in DwellingStore, a Dwelling object is only a view on the slot of this dwelling
+	private final int id;
+    private final int slot;
 
 
     public Dwelling (int id, int zone, int hhId, DwellingType type, int bedrooms, int quality, int price, float restriction,
                      int year) {
         // Create new dwelling object
+        if (store.contains(id)) removeFromAggregates(store.getSlot(id));
         this.id = id;
-        this.zone = zone;
-        this.hhId = hhId;
-        this.type = type;
-        this.bedrooms = bedrooms;
-        this.quality = quality;
-        this.price = price;
-        this.restriction = restriction;
-        this.yearBuilt = year;
-        this.utilOfResident = 0.;
-        this.utilByHhType = new double[HouseholdType.values().length];
-        dwellingMap.put(id, this);
+        this.slot = store.add(id);
+        store.zone[slot] = zone;
+        store.hhId[slot] = hhId;
+        store.type[slot] = (byte) type.ordinal();
+        store.bedrooms[slot] = bedrooms;
+        store.quality[slot] = quality;
+        store.price[slot] = price;
+        store.restriction[slot] = restriction;
+        store.yearBuilt[slot] = year;
+        store.utilOfResident[slot] = 0.;
+        store.utilByHhType[slot] = new double[HouseholdType.values().length];
+        DwellingAggregates.add(store.type[slot], zone, hhId > 0, price, bedrooms, 1);
+    }
+
+
+    private Dwelling (int id, int slot) {
+        // view on existing dwelling
+        this.id = id;
+        this.slot = slot;
+    }
+
+
+    public static DwellingStore getDwellingStore() {
+        return store;
+    }
+
+
+    public static void setDwellingStore (DwellingStore dwellingStore) {
+        // replace all dwellings, used when reading dwellings from a binary file
+        store = dwellingStore;
+        DwellingAggregates.reset();
     }
 
 
-    public static void saveDwellings (Dwelling[] dds) {
-        for (Dwelling dd: dds) dwellingMap.put(dd.getId(), dd);
+    public static void recycleRemovedDwellings() {
+        // slots of dwellings that were removed may be reused from now on
+        store.recycleReleasedSlots();
     }
 
 
     public static Dwelling getDwellingFromId(int dwellingId) {
-        return dwellingMap.get(dwellingId);
+        int slot = store.getSlot(dwellingId);
+        if (slot < 0) return null;
+        return new Dwelling(dwellingId, slot);
     }
 
 
     public static int getDwellingCount() {
-        return dwellingMap.size();
+        return store.size();
     }
 
     public static Collection<Dwelling> getDwellings() {
-        // return collection of dwellings
-            return dwellingMap.values();
+        // return live collection of dwellings in ascending order of their ids
+        return new AbstractCollection<Dwelling>() {
+            @Override
+            public Iterator<Dwelling> iterator() {
+                return new EntityStore.LiveIterator<Dwelling>(store) {
+                    @Override
+                    protected Dwelling getView(int id, int slot) {
+                        return new Dwelling(id, slot);
+                    }
+                };
+            }
+            @Override
+            public int size() {
+                return store.size();
+            }
+        };
     }
 
     public static Dwelling[] getDwellingArray() {
-        return dwellingMap.values().toArray(new Dwelling[dwellingMap.size()]);
+        int[] ids = store.getIds();
+        Dwelling[] dds = new Dwelling[ids.length];
+        for (int i = 0; i < ids.length; i++) dds[i] = new Dwelling(ids[i], store.getSlot(ids[i]));
+        return dds;
     }
 
 
     public static void removeDwelling(int id) {
-        dwellingMap.remove(id);
+        int slot = store.getSlot(id);
+        if (slot < 0) return;
+        removeFromAggregates(slot);
+        store.remove(id);
+    }
+
+
+    private static void removeFromAggregates(int slot) {
+        DwellingAggregates.add(store.type[slot], store.zone[slot], store.hhId[slot] > 0, store.price[slot],
+                store.bedrooms[slot], -1);
     }
 
 
     public void logAttributes () {
         logger.info("Attributes of dwelling  " + id);
-        logger.info("Located in zone         " + zone);
-        logger.info("Occupied by household   " + hhId);
-        logger.info("Dwelling type           " + type.toString());
-        logger.info("Number of bedroom       " + bedrooms);
-        logger.info("Quality (1 low, 4 high) " + quality);
-        logger.info("Monthly price in US$    " + price);
-        logger.info("Affordable housing      " + restriction);
-        logger.info("Year dwelling was built " + yearBuilt);
+        logger.info("Located in zone         " + store.zone[slot]);
+        logger.info("Occupied by household   " + store.hhId[slot]);
+        logger.info("Dwelling type           " + getType().toString());
+        logger.info("Number of bedroom       " + store.bedrooms[slot]);
+        logger.info("Quality (1 low, 4 high) " + store.quality[slot]);
+        logger.info("Monthly price in US$    " + store.price[slot]);
+        logger.info("Affordable housing      " + store.restriction[slot]);
+        logger.info("Year dwelling was built " + store.yearBuilt[slot]);
     }
 
     public void logAttributes (PrintWriter pw) {
         pw.println ("Attributes of dwelling  " + id);
-        pw.println ("Located in zone         " + zone);
-        pw.println ("Occupied by household   " + hhId);
-        pw.println ("Dwelling type           " + type.toString());
-        pw.println ("Number of bedrooms      " + bedrooms);
-        pw.println ("Quality (1 low, 4 high) " + quality);
-        pw.println ("Monthly price in US$    " + price);
-        pw.println ("Affordable housing      " + restriction);
-        pw.println ("Year dwelling was built " + yearBuilt);
+        pw.println ("Located in zone         " + store.zone[slot]);
+        pw.println ("Occupied by household   " + store.hhId[slot]);
+        pw.println ("Dwelling type           " + getType().toString());
+        pw.println ("Number of bedrooms      " + store.bedrooms[slot]);
+        pw.println ("Quality (1 low, 4 high) " + store.quality[slot]);
+        pw.println ("Monthly price in US$    " + store.price[slot]);
+        pw.println ("Affordable housing      " + store.restriction[slot]);
+        pw.println ("Year dwelling was built " + store.yearBuilt[slot]);
     }
 
 
@@ -122,69 +165,72 @@ public class Dwelling {
     }
 
     public int getQuality () {
-        return quality;
+        return store.quality[slot];
     }
 
     public int getResidentId () {
-        return hhId;
+        return store.hhId[slot];
     }
 
     public int getZone() {
-        return zone;
+        return store.zone[slot];
     }
 
     public int getPrice() {
-        return price;
+        return store.price[slot];
     }
 
     public DwellingType getType() {
-        return type;
+        return dwellingTypes[store.type[slot]];
     }
 
     public int getBedrooms() {
-        return bedrooms;
+        return store.bedrooms[slot];
     }
 
     public int getYearBuilt() {
-        return yearBuilt;
+        return store.yearBuilt[slot];
     }
 
     public float getRestriction() {
         // 0: no restriction, negative value: rent-controlled, positive value: rent-controlled and maximum income of renter
-        return restriction;
+        return store.restriction[slot];
     }
 
     public double[] getUtilByHhType() {
-        return utilByHhType;
+        return store.utilByHhType[slot];
     }
 
     public double getUtilOfResident() {
-        return utilOfResident;
+        return store.utilOfResident[slot];
     }
 
     public void setResidentID(int residentID) {
-        this.hhId = residentID;
+        if (store.getIdInSlot(slot) == id) DwellingAggregates.changeOccupancy(store.type[slot], store.zone[slot],
+                store.hhId[slot] > 0, residentID > 0);
+        store.hhId[slot] = residentID;
     }
     
     public void setQuality (int quality) {
-        this.quality = quality;
+        store.quality[slot] = quality;
     }  
 
     public void setPrice (int price) {
-        this.price = price;
+        if (store.getIdInSlot(slot) == id) DwellingAggregates.changePrice(store.type[slot], store.zone[slot], store.price[slot], price);
+        store.price[slot] = price;
     }
 
     public void setRestriction (float restriction) {
         // 0: no restriction, negative value: rent-controlled, positive value: rent-controlled and maximum income of renter
-        this.restriction = restriction;
+        store.restriction[slot] = restriction;
     }
 
     public void setUtilitiesOfVacantDwelling(double[] utils) {
-        this.utilByHhType = utils;
+        store.utilByHhType[slot] = utils;
     }
 
     public void setUtilOfResident(double utilOfResident) {
-        this.utilOfResident = utilOfResident;
+        store.utilOfResident[slot] = utilOfResident;
     }
 
  }
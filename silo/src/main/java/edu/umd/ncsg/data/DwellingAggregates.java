@@ -0,0 +1,141 @@
+package edu.umd.ncsg.data;
+
+import edu.umd.ncsg.SiloUtil;
+import org.apache.log4j.Logger;
+
+/**
+ * Aggregate cube of dwellings by dwelling type and zone, rolled up to regions. The cube holds the number of dwellings,
+ * the number of occupied dwellings, the sum of prices and the sum of bedrooms. It is built once from all dwellings
+ * the first time it is queried and afterwards kept up-to-date by Dwelling whenever a dwelling is built, demolished,
+ * occupied, vacated or changes its price.
+ **/
+
+public class DwellingAggregates {
+
+    static Logger logger = Logger.getLogger(DwellingAggregates.class);
+
+    private static boolean initialized = false;
+    private static int[] regionOfZone;
+    private static int[][] countByZone;
+    private static int[][] occupiedByZone;
+    private static long[][] priceSumByZone;
+    private static long[][] bedroomSumByZone;
+    private static int[][] countByRegion;
+    private static int[][] occupiedByRegion;
+    private static long[][] priceSumByRegion;
+    private static long[][] bedroomSumByRegion;
+
+
+    private static void rebuild() {
+        // sum up all dwellings, zones and regions have to be defined in geoData at this point
+
+        int highestZone = geoData.getHighestZonalId();
+        int highestRegion = SiloUtil.getHighestVal(geoData.getRegionList());
+        int types = DwellingType.values().length;
+        regionOfZone = new int[highestZone + 1];
+        for (int zone: geoData.getZones()) regionOfZone[zone] = geoData.getRegionOfZone(zone);
+        countByZone = new int[types][highestZone + 1];
+        occupiedByZone = new int[types][highestZone + 1];
+        priceSumByZone = new long[types][highestZone + 1];
+        bedroomSumByZone = new long[types][highestZone + 1];
+        countByRegion = new int[types][highestRegion + 1];
+        occupiedByRegion = new int[types][highestRegion + 1];
+        priceSumByRegion = new long[types][highestRegion + 1];
+        bedroomSumByRegion = new long[types][highestRegion + 1];
+        initialized = true;
+        for (Dwelling dd: Dwelling.getDwellings())
+            add(dd.getType().ordinal(), dd.getZone(), dd.getResidentId() > 0, dd.getPrice(), dd.getBedrooms(), 1);
+        logger.info("  Summarized " + Dwelling.getDwellingCount() + " dwellings by type and zone");
+    }
+
+
+    private static void ensureInitialized() {
+        if (!initialized) rebuild();
+    }
+
+
+    static void reset() {
+        // discard cube, it will be rebuilt from all dwellings when it is queried next time
+        initialized = false;
+    }
+
+
+    static void add(int dto, int zone, boolean occupied, int price, int bedrooms, int sign) {
+        // add (sign = 1) or subtract (sign = -1) one dwelling
+        if (!initialized) return;
+        int region = regionOfZone[zone];
+        countByZone[dto][zone] += sign;
+        countByRegion[dto][region] += sign;
+        if (occupied) {
+            occupiedByZone[dto][zone] += sign;
+            occupiedByRegion[dto][region] += sign;
+        }
+        priceSumByZone[dto][zone] += sign * price;
+        priceSumByRegion[dto][region] += sign * price;
+        bedroomSumByZone[dto][zone] += sign * bedrooms;
+        bedroomSumByRegion[dto][region] += sign * bedrooms;
+    }
+
+
+    static void changeOccupancy(int dto, int zone, boolean wasOccupied, boolean isOccupied) {
+        if (!initialized || wasOccupied == isOccupied) return;
+        int change = isOccupied ? 1 : -1;
+        occupiedByZone[dto][zone] += change;
+        occupiedByRegion[dto][regionOfZone[zone]] += change;
+    }
+
+
+    static void changePrice(int dto, int zone, int oldPrice, int newPrice) {
+        if (!initialized) return;
+        priceSumByZone[dto][zone] += newPrice - oldPrice;
+        priceSumByRegion[dto][regionOfZone[zone]] += newPrice - oldPrice;
+    }
+
+
+    public static int getCountByZone(int dto, int zone) {
+        ensureInitialized();
+        return countByZone[dto][zone];
+    }
+
+
+    public static int getOccupiedByZone(int dto, int zone) {
+        ensureInitialized();
+        return occupiedByZone[dto][zone];
+    }
+
+
+    public static long getPriceSumByZone(int dto, int zone) {
+        ensureInitialized();
+        return priceSumByZone[dto][zone];
+    }
+
+
+    public static long getBedroomSumByZone(int dto, int zone) {
+        ensureInitialized();
+        return bedroomSumByZone[dto][zone];
+    }
+
+
+    public static int getCountByRegion(int dto, int region) {
+        ensureInitialized();
+        return countByRegion[dto][region];
+    }
+
+
+    public static int getOccupiedByRegion(int dto, int region) {
+        ensureInitialized();
+        return occupiedByRegion[dto][region];
+    }
+
+
+    public static long getPriceSumByRegion(int dto, int region) {
+        ensureInitialized();
+        return priceSumByRegion[dto][region];
+    }
+
+
+    public static long getBedroomSumByRegion(int dto, int region) {
+        ensureInitialized();
+        return bedroomSumByRegion[dto][region];
+    }
+}
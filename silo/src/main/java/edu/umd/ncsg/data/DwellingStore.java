@@ -0,0 +1,92 @@
+package edu.umd.ncsg.data;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Columnar storage of all dwellings, Dwelling objects are lightweight views on one slot of these columns
+ **/
+
+public class DwellingStore extends EntityStore {
+
+    private static final long serialVersionUID = 1L;
+
+    int[] zone;
+    int[] hhId;
+    byte[] type;          // ordinal of DwellingType
+    int[] bedrooms;
+    int[] quality;
+    int[] price;
+    int[] yearBuilt;
+    float[] restriction;
+    double[] utilOfResident;
+    double[][] utilByHhType;
+
+
+    public DwellingStore(int initialCapacity) {
+        super(initialCapacity);
+        int capacity = getCapacity();
+        zone = new int[capacity];
+        hhId = new int[capacity];
+        type = new byte[capacity];
+        bedrooms = new int[capacity];
+        quality = new int[capacity];
+        price = new int[capacity];
+        yearBuilt = new int[capacity];
+        restriction = new float[capacity];
+        utilOfResident = new double[capacity];
+        utilByHhType = new double[capacity][];
+    }
+
+
+    @Override
+    protected void growColumns(int capacity) {
+        zone = Arrays.copyOf(zone, capacity);
+        hhId = Arrays.copyOf(hhId, capacity);
+        type = Arrays.copyOf(type, capacity);
+        bedrooms = Arrays.copyOf(bedrooms, capacity);
+        quality = Arrays.copyOf(quality, capacity);
+        price = Arrays.copyOf(price, capacity);
+        yearBuilt = Arrays.copyOf(yearBuilt, capacity);
+        restriction = Arrays.copyOf(restriction, capacity);
+        utilOfResident = Arrays.copyOf(utilOfResident, capacity);
+        utilByHhType = Arrays.copyOf(utilByHhType, capacity);
+    }
+
+
+    void writeColumns(ColumnarBinaryFile.Writer out) throws IOException {
+        // write all dwellings in ascending order of their ids
+        int[] ids = getIds();
+        int[] slots = getSlots(ids);
+        out.startSection("dwellings", ids.length, 12);
+        out.writeInts("id", ids);
+        out.writeInts("zone", gather(zone, slots));
+        out.writeInts("hhId", gather(hhId, slots));
+        out.writeBytes("type", gather(type, slots));
+        out.writeInts("bedrooms", gather(bedrooms, slots));
+        out.writeInts("quality", gather(quality, slots));
+        out.writeInts("price", gather(price, slots));
+        out.writeInts("yearBuilt", gather(yearBuilt, slots));
+        out.writeFloats("restriction", gather(restriction, slots));
+        out.writeDoubles("utilOfResident", gather(utilOfResident, slots));
+        writeArrayColumn(out, "utilByHhType", utilByHhType, slots);
+    }
+
+
+    static DwellingStore readColumns(ColumnarBinaryFile.Reader in) throws IOException {
+        int count = in.startSection("dwellings");
+        DwellingStore store = new DwellingStore(count);
+        store.addInOrder(in.readInts("id", new int[count]));
+        in.readInts("zone", store.zone);
+        in.readInts("hhId", store.hhId);
+        in.readBytes("type", store.type);
+        in.readInts("bedrooms", store.bedrooms);
+        in.readInts("quality", store.quality);
+        in.readInts("price", store.price);
+        in.readInts("yearBuilt", store.yearBuilt);
+        in.readFloats("restriction", store.restriction);
+        in.readDoubles("utilOfResident", store.utilOfResident);
+        readArrayColumn(in, "utilByHhType", store.utilByHhType, count);
+        return store;
+    }
+}
@@ -0,0 +1,412 @@
+package edu.umd.ncsg.data;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Slot-based storage engine for micro data objects. Attributes are kept in dense primitive columns that are indexed by
+ * a compact slot number, and ids are translated into slots by a plain int array. Slots of removed objects are
+ * tombstoned first and only recycled by recycleReleasedSlots(), so that views on removed objects still read their
+ * last attribute values until the model has finished its current pass.
+ *
+ * Objects may be added and removed by several threads at the same time. Slots are taken with compare-and-set,
+ * released slots are collected in lock-striped lists and growing the store excludes all other writers. Attribute
+ * columns are replaced when the store grows, therefore capacity should be reserved with reserve() before a
+ * multi-threaded step writes attributes.
+ **/
+
+public abstract class EntityStore implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    static Logger logger = Logger.getLogger(EntityStore.class);
+
+    private static final int NUMBER_OF_STRIPES = 16;
+
+    private volatile AtomicIntegerArray slotOfId;    // id -> slot, -1 if id is not in use, changed by compare-and-set
+    private volatile int[] idOfSlot;    // slot -> id, -1 if slot is empty
+    private final AtomicInteger slotLimit = new AtomicInteger();     // slots below slotLimit have been used before
+    private final AtomicInteger count = new AtomicInteger();
+    private final AtomicInteger highestId = new AtomicInteger(-1);
+    private int[] freeSlots;
+    private final AtomicInteger numberOfFreeSlots = new AtomicInteger();
+    private final int[][] releasedSlots = new int[NUMBER_OF_STRIPES][];
+    private final int[] numberOfReleasedSlots = new int[NUMBER_OF_STRIPES];
+    private final ReentrantLock[] stripeLocks = new ReentrantLock[NUMBER_OF_STRIPES];
+    private final ReentrantReadWriteLock resizeLock = new ReentrantReadWriteLock();
+
+
+    protected EntityStore(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 16);
+        int[] slots = new int[capacity];
+        Arrays.fill(slots, -1);
+        slotOfId = new AtomicIntegerArray(slots);
+        int[] ids = new int[capacity];
+        Arrays.fill(ids, -1);
+        idOfSlot = ids;
+        freeSlots = new int[16];
+        for (int stripe = 0; stripe < NUMBER_OF_STRIPES; stripe++) {
+            releasedSlots[stripe] = new int[16];
+            stripeLocks[stripe] = new ReentrantLock();
+        }
+    }
+
+
+    protected abstract void growColumns(int capacity);
+
+
+    protected int getCapacity() {
+        // number of slots the attribute columns have to provide
+        return idOfSlot.length;
+    }
+
+
+    public int add(int id) {
+        // register object with id and return its slot; an id that is in use already keeps its slot and is overwritten
+        if (id < 0) {
+            logger.error("Cannot store object with negative id " + id + ".");
+            throw new IllegalArgumentException("Negative id " + id);
+        }
+        while (true) {
+            resizeLock.readLock().lock();
+            try {
+                AtomicIntegerArray slots = slotOfId;
+                if (id < slots.length()) {
+                    int existing = slots.get(id);
+                    if (existing >= 0) return existing;
+                    int slot = takeSlot();
+                    if (slot >= 0) {
+                        idOfSlot[slot] = id;
+                        if (!slots.compareAndSet(id, -1, slot)) {
+                            // another thread added the same id in the meantime
+                            idOfSlot[slot] = -1;
+                            releaseSlot(id, slot);
+                            continue;
+                        }
+                        count.incrementAndGet();
+                        int highest = highestId.get();
+                        while (id > highest && !highestId.compareAndSet(highest, id)) highest = highestId.get();
+                        return slot;
+                    }
+                }
+            } finally {
+                resizeLock.readLock().unlock();
+            }
+            reserve(1, id);
+        }
+    }
+
+
+    private int takeSlot() {
+        // take a recycled slot or a new slot within current capacity, return -1 if the store is full
+        int free = numberOfFreeSlots.get();
+        while (free > 0) {
+            if (numberOfFreeSlots.compareAndSet(free, free - 1)) return freeSlots[free - 1];
+            free = numberOfFreeSlots.get();
+        }
+        int limit = slotLimit.get();
+        while (limit < idOfSlot.length) {
+            if (slotLimit.compareAndSet(limit, limit + 1)) return limit;
+            limit = slotLimit.get();
+        }
+        return -1;
+    }
+
+
+    public void reserve(int additionalObjects, int highestNewId) {
+        // grow store to hold additionalObjects more objects and ids up to highestNewId without further resizing
+        resizeLock.writeLock().lock();
+        try {
+            if (highestNewId >= slotOfId.length()) {
+                int oldLength = slotOfId.length();
+                int[] slots = new int[Math.max(highestNewId + 1, oldLength + (oldLength >> 1))];
+                for (int id = 0; id < oldLength; id++) slots[id] = slotOfId.get(id);
+                Arrays.fill(slots, oldLength, slots.length, -1);
+                slotOfId = new AtomicIntegerArray(slots);
+            }
+            int slotsNeeded = slotLimit.get() + Math.max(additionalObjects - numberOfFreeSlots.get(), 0);
+            if (slotsNeeded > idOfSlot.length) {
+                int oldLength = idOfSlot.length;
+                int newLength = Math.max(slotsNeeded, oldLength + (oldLength >> 1));
+                int[] ids = Arrays.copyOf(idOfSlot, newLength);
+                Arrays.fill(ids, oldLength, newLength, -1);
+                growColumns(newLength);
+                idOfSlot = ids;
+            }
+        } finally {
+            resizeLock.writeLock().unlock();
+        }
+    }
+
+
+    public void remove(int id) {
+        // tombstone object with id, its slot is not reused before recycleReleasedSlots() is called. The id is cleared
+        // by compare-and-set, so that only one of several threads removing the same id releases the slot
+        resizeLock.readLock().lock();
+        try {
+            int slot = getSlot(id);
+            if (slot < 0 || !slotOfId.compareAndSet(id, slot, -1)) return;
+            idOfSlot[slot] = -1;
+            count.decrementAndGet();
+            releaseSlot(id, slot);
+        } finally {
+            resizeLock.readLock().unlock();
+        }
+    }
+
+
+    private void releaseSlot(int id, int slot) {
+        // collect slot for recycleReleasedSlots(), called with the read lock held
+        int stripe = id % NUMBER_OF_STRIPES;
+        stripeLocks[stripe].lock();
+        try {
+            if (numberOfReleasedSlots[stripe] == releasedSlots[stripe].length)
+                releasedSlots[stripe] = Arrays.copyOf(releasedSlots[stripe], releasedSlots[stripe].length * 2);
+            releasedSlots[stripe][numberOfReleasedSlots[stripe]++] = slot;
+        } finally {
+            stripeLocks[stripe].unlock();
+        }
+    }
+
+
+    public void recycleReleasedSlots() {
+        // make slots of removed objects available for new objects, must not run concurrently with add()
+        resizeLock.writeLock().lock();
+        try {
+            int free = numberOfFreeSlots.get();
+            for (int stripe = 0; stripe < NUMBER_OF_STRIPES; stripe++) {
+                int released = numberOfReleasedSlots[stripe];
+                if (free + released > freeSlots.length) freeSlots = Arrays.copyOf(freeSlots, 2 * (free + released));
+                System.arraycopy(releasedSlots[stripe], 0, freeSlots, free, released);
+                free += released;
+                numberOfReleasedSlots[stripe] = 0;
+            }
+            numberOfFreeSlots.set(free);
+        } finally {
+            resizeLock.writeLock().unlock();
+        }
+    }
+
+
+    public int getSlot(int id) {
+        // return slot of object with id, or -1 if no such object exists
+        AtomicIntegerArray slots = slotOfId;
+        if (id < 0 || id >= slots.length()) return -1;
+        return slots.get(id);
+    }
+
+
+    public boolean contains(int id) {
+        return getSlot(id) >= 0;
+    }
+
+
+    public int getIdInSlot(int slot) {
+        // return id of object stored in slot, or -1 if slot is empty
+        return idOfSlot[slot];
+    }
+
+
+    public int size() {
+        return count.get();
+    }
+
+
+    public int getIdLimit() {
+        // all ids in use are smaller than this value
+        return slotOfId.length();
+    }
+
+
+    public int getHighestId() {
+        // return highest id that has been stored so far
+        return highestId.get();
+    }
+
+
+    public int getNextId(int previousId, int lastId) {
+        // return the smallest id in use that is larger than previousId and not larger than lastId, or -1 if none is left
+        AtomicIntegerArray slots = slotOfId;
+        int limit = Math.min(lastId, slots.length() - 1);
+        for (int id = Math.max(previousId + 1, 0); id <= limit; id++) if (slots.get(id) >= 0) return id;
+        return -1;
+    }
+
+
+    public int[] getIds() {
+        // return ids of all objects in ascending order
+        AtomicIntegerArray slots = slotOfId;
+        int[] ids = new int[size()];
+        int pos = 0;
+        for (int id = 0; id < slots.length() && pos < ids.length; id++) if (slots.get(id) >= 0) ids[pos++] = id;
+        return pos == ids.length ? ids : Arrays.copyOf(ids, pos);
+    }
+
+
+    protected int[] getSlots(int[] ids) {
+        // return slots of ids
+        int[] slots = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) slots[i] = getSlot(ids[i]);
+        return slots;
+    }
+
+
+    protected void addInOrder(int[] ids) throws IOException {
+        // add ids to an empty store, the object with ids[i] is stored in slot i
+        for (int i = 0; i < ids.length; i++) {
+            if (add(ids[i]) != i) throw new IOException("Id " + ids[i] + " is stored more than once.");
+        }
+    }
+
+
+    protected static int[] gather(int[] column, int[] slots) {
+        // copy values of slots into a dense array
+        int[] values = new int[slots.length];
+        for (int i = 0; i < slots.length; i++) values[i] = column[slots[i]];
+        return values;
+    }
+
+
+    protected static byte[] gather(byte[] column, int[] slots) {
+        byte[] values = new byte[slots.length];
+        for (int i = 0; i < slots.length; i++) values[i] = column[slots[i]];
+        return values;
+    }
+
+
+    protected static float[] gather(float[] column, int[] slots) {
+        float[] values = new float[slots.length];
+        for (int i = 0; i < slots.length; i++) values[i] = column[slots[i]];
+        return values;
+    }
+
+
+    protected static double[] gather(double[] column, int[] slots) {
+        double[] values = new double[slots.length];
+        for (int i = 0; i < slots.length; i++) values[i] = column[slots[i]];
+        return values;
+    }
+
+
+    protected static void writeArrayColumn(ColumnarBinaryFile.Writer out, String name, int[][] column, int[] slots)
+            throws IOException {
+        // store arrays of slots as their lengths (-1 for null) and all elements in one block
+        int[] lengths = new int[slots.length];
+        int total = 0;
+        for (int i = 0; i < slots.length; i++) {
+            lengths[i] = column[slots[i]] == null ? -1 : column[slots[i]].length;
+            total += Math.max(lengths[i], 0);
+        }
+        int[] elements = new int[total];
+        int pos = 0;
+        for (int slot: slots) {
+            if (column[slot] == null) continue;
+            System.arraycopy(column[slot], 0, elements, pos, column[slot].length);
+            pos += column[slot].length;
+        }
+        out.writeInts(name + "Length", lengths);
+        out.writeInts(name, elements);
+    }
+
+
+    protected static void writeArrayColumn(ColumnarBinaryFile.Writer out, String name, double[][] column, int[] slots)
+            throws IOException {
+        int[] lengths = new int[slots.length];
+        int total = 0;
+        for (int i = 0; i < slots.length; i++) {
+            lengths[i] = column[slots[i]] == null ? -1 : column[slots[i]].length;
+            total += Math.max(lengths[i], 0);
+        }
+        double[] elements = new double[total];
+        int pos = 0;
+        for (int slot: slots) {
+            if (column[slot] == null) continue;
+            System.arraycopy(column[slot], 0, elements, pos, column[slot].length);
+            pos += column[slot].length;
+        }
+        out.writeInts(name + "Length", lengths);
+        out.writeDoubles(name, elements);
+    }
+
+
+    protected static void readArrayColumn(ColumnarBinaryFile.Reader in, String name, int[][] column, int count)
+            throws IOException {
+        // counterpart of writeArrayColumn(), fills the first count slots of column
+        int[] lengths = in.readInts(name + "Length", new int[count]);
+        int total = 0;
+        for (int length: lengths) total += Math.max(length, 0);
+        int[] elements = in.readInts(name, new int[total]);
+        int pos = 0;
+        for (int i = 0; i < count; i++) {
+            if (lengths[i] < 0) continue;
+            column[i] = Arrays.copyOfRange(elements, pos, pos + lengths[i]);
+            pos += lengths[i];
+        }
+    }
+
+
+    protected static void readArrayColumn(ColumnarBinaryFile.Reader in, String name, double[][] column, int count)
+            throws IOException {
+        int[] lengths = in.readInts(name + "Length", new int[count]);
+        int total = 0;
+        for (int length: lengths) total += Math.max(length, 0);
+        double[] elements = in.readDoubles(name, new double[total]);
+        int pos = 0;
+        for (int i = 0; i < count; i++) {
+            if (lengths[i] < 0) continue;
+            column[i] = Arrays.copyOfRange(elements, pos, pos + lengths[i]);
+            pos += lengths[i];
+        }
+    }
+
+
+    /**
+     * Iterates over the objects of a store in ascending order of their ids without copying the store. Objects that are
+     * removed during the pass are skipped, objects that are added during the pass are not visited, which corresponds
+     * to iterating over a snapshot taken at the beginning of the pass.
+     **/
+    public static abstract class LiveIterator<T> implements Iterator<T> {
+
+        private final EntityStore store;
+        private final int lastId;
+        private int currentId = -1;
+        private int nextId;
+
+        protected LiveIterator(EntityStore store) {
+            this.store = store;
+            this.lastId = store.getHighestId();
+            this.nextId = store.getNextId(-1, lastId);
+        }
+
+        protected abstract T getView(int id, int slot);
+
+        @Override
+        public boolean hasNext() {
+            // skip objects that were removed since nextId was identified
+            while (nextId >= 0 && !store.contains(nextId)) nextId = store.getNextId(nextId, lastId);
+            return nextId >= 0;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            currentId = nextId;
+            nextId = store.getNextId(currentId, lastId);
+            return getView(currentId, store.getSlot(currentId));
+        }
+
+        @Override
+        public void remove() {
+            store.remove(currentId);
+        }
+    }
+}
@@ -20,10 +20,10 @@ import edu.umd.ncsg.SiloUtil;
 import org.apache.log4j.Logger;
 
 import java.io.PrintWriter;
-import java.util.Map;
-import java.util.HashMap;
+import java.util.AbstractCollection;
+import java.util.Arrays;
 import java.util.Collection;
-import java.io.Serializable;
+import java.util.Iterator;
 
 import edu.umd.ncsg.SiloModel;
 import edu.umd.ncsg.demography.BirthModel;
@@ -33,80 +33,117 @@ import edu.umd.ncsg.demography.BirthModel;
  * Created on Dec 2, 2009
  *
  */
-public class Household implements Serializable {
+public class Household {
 
     static Logger logger = Logger.getLogger(Household.class);
 
-    private static final Map<Integer, Household> householdMap = new HashMap<>();
+    private static HouseholdStore store = new HouseholdStore(1000);
+    private static final HouseholdType[] householdTypes = HouseholdType.values();
+    private static final Race[] races = Race.values();
     // Note: if attributes are edited, remember to edit attributes for inmigrants in \relocation\ImOutMigration\setupInOutMigration.java and \relocation\ImOutMigration\inmigrateHh.java as well
-    private int hhId;
-    private int dwellingId;
-    private int hhSize;
-    private Race race;
-    private int autos;
-    private int homeZone;
-    private HouseholdType type;
-    private Person[] persons;
+    // Attributes are stored in HouseholdStore, a Household object is only a view on the slot of this household
+    private final int hhId;
+    private final int slot;
 
 
     public Household(int id, int dwellingID, int homeZone, int hhSize, int autos) {
         this.hhId = id;
-        this.dwellingId = dwellingID;
-        this.homeZone = homeZone;
-        this.hhSize = hhSize;
-        this.autos = autos;
-        persons = new Person[hhSize];
-        householdMap.put(id,this);
+        this.slot = store.add(id);
+        store.dwellingId[slot] = dwellingID;
+        store.homeZone[slot] = homeZone;
+        store.hhSize[slot] = hhSize;
+        store.autos[slot] = autos;
+        store.race[slot] = -1;
+        store.type[slot] = -1;
+        int[] personIds = new int[hhSize];
+        Arrays.fill(personIds, -1);
+        store.personIds[slot] = personIds;
+    }
+
+
+    private Household(int id, int slot) {
+        // view on existing household
+        this.hhId = id;
+        this.slot = slot;
     }
 
 
     public static Household[] getHouseholdArray() {
-        return householdMap.values().toArray(new Household[householdMap.size()]);
+        int[] ids = store.getIds();
+        Household[] hhs = new Household[ids.length];
+        for (int i = 0; i < ids.length; i++) hhs[i] = new Household(ids[i], store.getSlot(ids[i]));
+        return hhs;
     }
 
 
     public static Household getHouseholdFromId(int householdId) {
-        return householdMap.get(householdId);
+        int slot = store.getSlot(householdId);
+        if (slot < 0) return null;
+        return new Household(householdId, slot);
     }
 
 
     public static int getHouseholdCount() {
-        return householdMap.size();
+        return store.size();
     }
 
 
     public static Collection<Household> getHouseholds() {
-//        Collection<Household> households = null;
-//        for (Household household: households) {
-//        }
-        return householdMap.values();
+        // live collection of all households in ascending order of their ids, iterating does not copy the registry
+        return new AbstractCollection<Household>() {
+            @Override
+            public Iterator<Household> iterator() {
+                return new EntityStore.LiveIterator<Household>(store) {
+                    @Override
+                    protected Household getView(int id, int slot) {
+                        return new Household(id, slot);
+                    }
+                };
+            }
+            @Override
+            public int size() {
+                return store.size();
+            }
+        };
     }
 
 
-    public static void saveHouseholds (Household[] hhs) {
-        for (Household hh: hhs) householdMap.put(hh.getId(), hh);
+    public static HouseholdStore getHouseholdStore() {
+        return store;
+    }
+
+
+    public static void setHouseholdStore (HouseholdStore householdStore) {
+        // replace all households, used when reading households from a binary file
+        store = householdStore;
+    }
+
+
+    public static void recycleRemovedHouseholds() {
+        // slots of households that were removed may be reused from now on
+        store.recycleReleasedSlots();
     }
 
 
     public static void remove (int hhID) {
-        householdMap.remove(hhID);
+        store.remove(hhID);
     }
 
 
     public void logAttributes () {
         logger.info("Attributes of household " + hhId);
-        logger.info("Dwelling ID             " + dwellingId);
-        logger.info("Household size          " + hhSize);
-        logger.info("Home zone               " + homeZone);
-        logger.info("Household race          " + race);
-        for (Person pp: persons) logger.info("Member of hh is person  " + pp.getId());
+        logger.info("Dwelling ID             " + getDwellingId());
+        logger.info("Household size          " + getHhSize());
+        logger.info("Home zone               " + getHomeZone());
+        logger.info("Household race          " + getRace());
+        for (Person pp: getPersons()) logger.info("Member of hh is person  " + pp.getId());
     }
 
     public void logAttributes (PrintWriter pw) {
         pw.println ("Attributes of household " + hhId);
-        pw.println ("Dwelling ID             " + dwellingId);
-        pw.println ("Household size          " + hhSize);
-        pw.println ("Home zone               " + homeZone);
+        pw.println ("Dwelling ID             " + getDwellingId());
+        pw.println ("Household size          " + getHhSize());
+        pw.println ("Home zone               " + getHomeZone());
         // cannot log person attributes or race, because when households are read (and logged) persons are not known yet
     }
 
@@ -116,30 +153,34 @@ public class Household implements Serializable {
     }
 
     public int getHhSize() {
-        return hhSize;
+        return store.hhSize[slot];
     }
 
     public int getDwellingId() {
-        return dwellingId;
+        return store.dwellingId[slot];
     }
 
     public int getAutos() {
-        return autos;
+        return store.autos[slot];
     }
 
     public Person[] getPersons(){
+        int[] personIds = store.personIds[slot];
+        Person[] persons = new Person[personIds.length];
+        for (int i = 0; i < personIds.length; i++) if (personIds[i] >= 0) persons[i] = Person.getPersonFromId(personIds[i]);
         return persons;
     }
 
     public HouseholdType getHouseholdType() {
-        return type;
+        byte t = store.type[slot];
+        return t < 0 ? null : householdTypes[t];
     }
 
     public int getHhIncome () {
         // return annual household income
         int hhInc = 0;
         try {
-            for (Person pp : persons) hhInc += pp.getIncome();
+            for (int id: store.personIds[slot]) hhInc += Person.getIncomeOfPerson(id);
         } catch (Exception e) {
             logger.info("While attempting to calculate the income of household " + hhId + ", an error occurred.");
             logger.info("Error: " + e);
@@ -149,30 +190,34 @@ public class Household implements Serializable {
     }
 
     public int getHomeZone() {
-        return homeZone;
+        return store.homeZone[slot];
     }
 
-    public Race getRace() {return race; }
+    public Race getRace() {
+        byte r = store.race[slot];
+        return r < 0 ? null : races[r];
+    }
 
     public int getNumberOfWorkers () {
         int wrk = 0;
-        for (Person pp: persons) if (pp.getOccupation() == 1) wrk++;
+        for (int id: store.personIds[slot]) if (Person.getOccupationOfPerson(id) == 1) wrk++;
         return wrk;
     }
 
     public void setDwelling (int id) {
-        this.dwellingId = id;
+        store.dwellingId[slot] = id;
         setHomeZone(Dwelling.getDwellingFromId(id).getZone());
     }
 
     public void setHomeZone (int zone) {
-        this.homeZone = zone;
+        store.homeZone[slot] = zone;
     }
 
 
     public void setType() {
         int incCat = HouseholdDataManager.getIncomeCategoryForIncome(getHhIncome());
-        this.type = HouseholdDataManager.defineHouseholdType(hhSize, incCat);
+        HouseholdType type = HouseholdDataManager.defineHouseholdType(getHhSize(), incCat);
+        store.type[slot] = type == null ? -1 : (byte) type.ordinal();
     }
 
 
@@ -183,22 +228,23 @@ public class Household implements Serializable {
         if (getHhSize() > 1) {
             for (Person pp: pps) if (pp.getRace() != householdRace) householdRace = Race.other;
         }
-        this.race = householdRace;
+        store.race[slot] = householdRace == null ? -1 : (byte) householdRace.ordinal();
     }
 
 
     public void setAutos (int autos) {
-        this.autos = autos;
+        store.autos[slot] = autos;
     }
 
 
     public void addPersonForInitialSetup(Person per){
         // This method adds a person to the household without increasing the HH size. Only used for initial setup
 
+        int[] personIds = store.personIds[slot];
         for (int i = 0; i < getHhSize(); i++) {
-            if (persons[i] == null) {
-                persons[i] = per;
-                persons[i].setHhId(hhId);
+            if (personIds[i] < 0) {
+                personIds[i] = per.getId();
+                per.setHhId(hhId);
                 return;
             }
         }
@@ -208,17 +254,18 @@ public class Household implements Serializable {
 
     public void removePerson (Person per) {
         // remove this person from household and reduce household size by one
-        if (hhSize >= 2) {
-            Person[] remainingPersons = new Person[persons.length - 1];
+        if (getHhSize() >= 2) {
+            int[] personIds = store.personIds[slot];
+            int[] remainingPersons = new int[personIds.length - 1];
             int counter = 0;
-            for (Person pers: persons) {
-                if (pers.getId() != per.getId()) {
-                    remainingPersons[counter] = pers;
+            for (int persId: personIds) {
+                if (persId != per.getId()) {
+                    remainingPersons[counter] = persId;
                     counter++;
                 }
             }
-            persons = remainingPersons;
-            hhSize -= 1;
+            store.personIds[slot] = remainingPersons;
+            store.hhSize[slot] -= 1;
             setType();
             setHouseholdRace();
         } else {
@@ -232,11 +279,11 @@ public class Household implements Serializable {
     public void addAdultPerson(Person per) {
         // add existing person per (not a newborn child) to household
 
-        Person[] newPersons = new Person[persons.length + 1];
-        System.arraycopy(persons, 0, newPersons, 0, persons.length);
-        newPersons[persons.length] = per;
-        persons = newPersons;
-        hhSize++;
+        int[] personIds = store.personIds[slot];
+        int[] newPersons = Arrays.copyOf(personIds, personIds.length + 1);
+        newPersons[personIds.length] = per.getId();
+        store.personIds[slot] = newPersons;
+        store.hhSize[slot]++;
         per.setHhId(hhId);
         setType();
         setHouseholdRace();
@@ -252,12 +299,11 @@ public class Household implements Serializable {
         if (SiloModel.rand.nextDouble() <= BirthModel.getProbabilityForGirl()) gender = 2;
         Person per = new Person (id, hhId, 0, gender, race, 0, 0, 0);
         per.setRole(PersonRole.child);
-        Person previousPers[] = getPersons();
-        Person newPers[] = new Person[previousPers.length+1];
-        System.arraycopy(previousPers, 0, newPers, 0, previousPers.length);
-        newPers[previousPers.length] = per;
-        persons = newPers;
-        hhSize++;
+        int previousPers[] = store.personIds[slot];
+        int newPers[] = Arrays.copyOf(previousPers, previousPers.length+1);
+        newPers[previousPers.length] = id;
+        store.personIds[slot] = newPers;
+        store.hhSize[slot]++;
         per.setHhId(hhId);
         setType();
         if (id == SiloUtil.trackPp || hhId == SiloUtil.trackHh) SiloUtil.trackWriter.println("A child named "
@@ -267,7 +313,7 @@ public class Household implements Serializable {
 
     public static int getTotalPopulation () {
         int tp = 0;
-        for (Household hh: getHouseholdArray()) tp += hh.getHhSize();
+        for (int hhSlot = 0; hhSlot < store.getCapacity(); hhSlot++) if (store.getIdInSlot(hhSlot) >= 0) tp += store.hhSize[hhSlot];
         return tp;
     }
 
@@ -275,7 +321,7 @@ public class Household implements Serializable {
     public static float getAverageHouseholdSize () {
         float ahs = 0;
         int cnt = 0;
-        for (Household hh: getHouseholdArray()) {
+        for (Household hh: getHouseholds())  {
             ahs += hh.getHhSize();
             cnt++;
         }
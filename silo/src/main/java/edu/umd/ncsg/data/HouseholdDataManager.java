@@ -24,6 +24,8 @@ import com.pb.common.datafile.TableDataSet;
 import edu.umd.ncsg.SiloModel;
 import edu.umd.ncsg.SiloUtil;
 import edu.umd.ncsg.events.EventRules;
+import edu.umd.ncsg.utils.PrefixSumSampler;
+import edu.umd.ncsg.utils.RandomStream;
 import com.pb.sawdust.calculator.Function1;
 import com.pb.sawdust.util.array.ArrayUtil;
 import com.pb.sawdust.util.concurrent.ForkJoinPoolFactory;
@@ -59,13 +61,34 @@ public class HouseholdDataManager {
     public static int[] startNewJobPersonIds;
     public static int[] quitJobPersonIds;
     private float[][][] currentIncomeDistribution;
+    private IncomeChangeTable[][][] incomeChangeTables;                // by gender, age and occupation, set every year
+    private static PrefixSumSampler initialIncomeChangeSampler;       // change from average income for new workers
+    private static int[] initialIncomeChanges;
     private static float[] medianIncome;
 
 
+    /**
+     * Distribution of income changes of one gender, age and occupation class. Change number sel is
+     * lowerBound + step * sel.
+     **/
+    private static class IncomeChangeTable {
+        final int lowerBound;
+        final int step;
+        final PrefixSumSampler sampler;
+
+        IncomeChangeTable(int lowerBound, int step, PrefixSumSampler sampler) {
+            this.lowerBound = lowerBound;
+            this.step = step;
+            this.sampler = sampler;
+        }
+    }
+
+
     public HouseholdDataManager(ResourceBundle rb) {
         // constructor
         this.rb = rb;
         meanIncomeChange = (float) ResourceUtil.getDoubleProperty(rb, PROPERTIES_INCOME_CHANGE);
+        createInitialIncomeChangeTable();
     }
 
 
@@ -85,57 +108,53 @@ public class HouseholdDataManager {
         logger.info("Reading household micro data from ascii file");
 
         int year = SiloUtil.getStartYear();
-        String fileName = SiloUtil.baseDirectory + ResourceUtil.getProperty(rb, PROPERTIES_HH_FILE_ASCII) + "_" + year + ".csv";
+        final String fileName = SiloUtil.baseDirectory + ResourceUtil.getProperty(rb, PROPERTIES_HH_FILE_ASCII) + "_" + year + ".csv";
 
-        String recString = "";
         int recCount = 0;
         try {
-            BufferedReader in = new BufferedReader(new FileReader(fileName));
-            recString = in.readLine();
+            ParallelCsvReader reader = new ParallelCsvReader(fileName);
 
             // read header
-            String[] header = recString.split(",");
-            int posId    = SiloUtil.findPositionInArray("id", header);
-            int posDwell = SiloUtil.findPositionInArray("dwelling",header);
-            int posTaz   = SiloUtil.findPositionInArray("zone",header);
-            int posSize  = SiloUtil.findPositionInArray("hhSize",header);
-            int posAutos = SiloUtil.findPositionInArray("autos",header);
-
-            // read line
-            while ((recString = in.readLine()) != null) {
-                recCount++;
-                String[] lineElements = recString.split(",");
-                int id         = Integer.parseInt(lineElements[posId]);
-                int dwellingID = Integer.parseInt(lineElements[posDwell]);
-                int taz        = Integer.parseInt(lineElements[posTaz]);
-                int hhSize     = Integer.parseInt(lineElements[posSize]);
-                int autos      = Integer.parseInt(lineElements[posAutos]);
-
-                new Household(id, dwellingID, taz, hhSize, autos);  // this automatically puts it in id->household map in Household class
-                if (id == SiloUtil.trackHh) {
-                    SiloUtil.trackWriter.println("Read household with following attributes from " + fileName);
-                    Household.getHouseholdFromId(id).logAttributes(SiloUtil.trackWriter);
+            String[] header = reader.getHeader();
+            final int posId    = SiloUtil.findPositionInArray("id", header);
+            final int posDwell = SiloUtil.findPositionInArray("dwelling",header);
+            final int posTaz   = SiloUtil.findPositionInArray("zone",header);
+            final int posSize  = SiloUtil.findPositionInArray("hhSize",header);
+            final int posAutos = SiloUtil.findPositionInArray("autos",header);
+
+            // reserve space for all households, then read lines in parallel
+            recCount = reader.countRecords();
+            Household.getHouseholdStore().reserve(recCount, -1);
+            reader.read(new ParallelCsvReader.RecordHandler() {
+                public void processRecord(ParallelCsvReader.Record record) {
+                    int id         = record.getInt(posId);
+                    int dwellingID = record.getInt(posDwell);
+                    int taz        = record.getInt(posTaz);
+                    int hhSize     = record.getInt(posSize);
+                    int autos      = record.getInt(posAutos);
+
+                    new Household(id, dwellingID, taz, hhSize, autos);  // this automatically puts it in id->household map in Household class
+                    if (id == SiloUtil.trackHh) {
+                        SiloUtil.trackWriter.println("Read household with following attributes from " + fileName);
+                        Household.getHouseholdFromId(id).logAttributes(SiloUtil.trackWriter);
+                    }
                 }
-            }
+            });
         } catch (IOException e) {
             logger.fatal("IO Exception caught reading synpop household file: " + fileName);
-            logger.fatal("recCount = " + recCount + ", recString = <" + recString + ">");
+            logger.fatal("recCount = " + recCount + ", " + e);
         }
         logger.info("Finished reading " + recCount + " households.");
     }
 
-
     public static void writeBinaryPopulationDataObjects(ResourceBundle appRb) {
         // Store population object data in binary file
         String fileName = SiloUtil.baseDirectory + ResourceUtil.getProperty(appRb, PROPERTIES_POP_FILE_BIN);
         logger.info("  Writing population data to binary file.");
-        Object[] data = {Household.getHouseholds().toArray(new Household[Household.getHouseholdCount()]),
-                Person.getPersons().toArray(new Person[Person.getPersonCount()])};
-        try {
-            File fl = new File(fileName);
-            ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(fl));
-            out.writeObject(data);
-            out.close();
+        boolean compress = ResourceUtil.getBooleanProperty(appRb, ColumnarBinaryFile.PROPERTIES_COMPRESS_BIN_FILES, false);
+        try (ColumnarBinaryFile.Writer out = new ColumnarBinaryFile.Writer(fileName, compress)) {
+            Household.getHouseholdStore().writeColumns(out);
+            Person.getPersonStore().writeColumns(out);
         } catch (Exception e) {
             logger.error("Error saving to binary file " + fileName + ". Object not saved.\n" + e);
         }
@@ -147,12 +166,19 @@ public class HouseholdDataManager {
         String fileName = SiloUtil.baseDirectory + ResourceUtil.getProperty(rb, PROPERTIES_POP_FILE_BIN);
         logger.info("Reading population data from binary file.");
         try {
-            ObjectInputStream in = new ObjectInputStream(new FileInputStream(new File(fileName)));
-            Object[] data = (Object[]) in.readObject();
-            Household.saveHouseholds((Household[]) data[0]);
-            Person.savePersons((Person[]) data[1]);
+            if (!ColumnarBinaryFile.isColumnarFile(fileName)) {
+                // files of earlier versions contain serialized Household and Person objects that cannot be converted
+                logger.error("Binary file " + fileName + " was written by an earlier version of SILO and cannot be " +
+                        "read. Read the population data from the ascii files and write a new binary file.");
+                System.exit(1);
+            }
+            try (ColumnarBinaryFile.Reader in = new ColumnarBinaryFile.Reader(fileName)) {
+                Household.setHouseholdStore(HouseholdStore.readColumns(in));
+                Person.setPersonStore(PersonStore.readColumns(in));
+            }
         } catch (Exception e) {
-            logger.error ("Error reading from binary file " + fileName + ". Object not read.\n" + e);
+            logger.error ("Error reading from binary file " + fileName + ". Program exits.\n" + e);
+            System.exit(1);
         }
         setHighestHouseholdAndPersonId();
         logger.info("Finished reading " + Household.getHouseholdCount() + " households.");
@@ -164,59 +190,58 @@ public class HouseholdDataManager {
         logger.info("Reading person micro data from ascii file");
 
         int year = SiloUtil.getStartYear();
-        String fileName = SiloUtil.baseDirectory + ResourceUtil.getProperty(rb, PROPERTIES_PP_FILE_ASCII) + "_" + year + ".csv";
+        final String fileName = SiloUtil.baseDirectory + ResourceUtil.getProperty(rb, PROPERTIES_PP_FILE_ASCII) + "_" + year + ".csv";
 
-        String recString = "";
         int recCount = 0;
         try {
-            BufferedReader in = new BufferedReader(new FileReader(fileName));
-            recString = in.readLine();
+            ParallelCsvReader reader = new ParallelCsvReader(fileName);
 
             // read header
-            String[] header = recString.split(",");
-            int posId = SiloUtil.findPositionInArray("id", header);
-            int posHhId = SiloUtil.findPositionInArray("hhid",header);
-            int posAge = SiloUtil.findPositionInArray("age",header);
-            int posGender = SiloUtil.findPositionInArray("gender",header);
-            int posRelShp = SiloUtil.findPositionInArray("relationShip",header);
-            int posRace = SiloUtil.findPositionInArray("race",header);
-            int posOccupation = SiloUtil.findPositionInArray("occupation",header);
-            int posWorkplace = SiloUtil.findPositionInArray("workplace",header);
-            int posIncome = SiloUtil.findPositionInArray("income",header);
-
-            // read line
-            while ((recString = in.readLine()) != null) {
-                recCount++;
-                String[] lineElements = recString.split(",");
-                int id         = Integer.parseInt(lineElements[posId]);
-                int hhid       = Integer.parseInt(lineElements[posHhId]);
-                int age        = Integer.parseInt(lineElements[posAge]);
-                int gender     = Integer.parseInt(lineElements[posGender]);
-                String relShp  = lineElements[posRelShp].replace("\"", "");
-                PersonRole pr  = PersonRole.valueOf(relShp);
-                String strRace = lineElements[posRace].replace("\"", "");
-                Race race = Race.valueOf(strRace);
-                int occupation = Integer.parseInt(lineElements[posOccupation]);
-                int workplace  = Integer.parseInt(lineElements[posWorkplace]);
-                int income     = Integer.parseInt(lineElements[posIncome]);
-                Person pp = new Person(id, hhid, age, gender, race, occupation, workplace, income); //this automatically puts it in id->person map in Person class
-                pp.setRole(pr);
-                if (id == SiloUtil.trackPp) {
-                    SiloUtil.trackWriter.println("Read person with following attributes from " + fileName);
-                    Person.getPersonFromId(id).logAttributes(SiloUtil.trackWriter);
+            String[] header = reader.getHeader();
+            final int posId = SiloUtil.findPositionInArray("id", header);
+            final int posHhId = SiloUtil.findPositionInArray("hhid",header);
+            final int posAge = SiloUtil.findPositionInArray("age",header);
+            final int posGender = SiloUtil.findPositionInArray("gender",header);
+            final int posRelShp = SiloUtil.findPositionInArray("relationShip",header);
+            final int posRace = SiloUtil.findPositionInArray("race",header);
+            final int posOccupation = SiloUtil.findPositionInArray("occupation",header);
+            final int posWorkplace = SiloUtil.findPositionInArray("workplace",header);
+            final int posIncome = SiloUtil.findPositionInArray("income",header);
+
+            // reserve space for all persons, then read lines in parallel
+            recCount = reader.countRecords();
+            Person.getPersonStore().reserve(recCount, -1);
+            reader.read(new ParallelCsvReader.RecordHandler() {
+                public void processRecord(ParallelCsvReader.Record record) {
+                    int id         = record.getInt(posId);
+                    int hhid       = record.getInt(posHhId);
+                    int age        = record.getInt(posAge);
+                    int gender     = record.getInt(posGender);
+                    String relShp  = record.getString(posRelShp).replace("\"", "");
+                    PersonRole pr  = PersonRole.valueOf(relShp);
+                    String strRace = record.getString(posRace).replace("\"", "");
+                    Race race = Race.valueOf(strRace);
+                    int occupation = record.getInt(posOccupation);
+                    int workplace  = record.getInt(posWorkplace);
+                    int income     = record.getInt(posIncome);
+                    Person pp = new Person(id, hhid, age, gender, race, occupation, workplace, income); //this automatically puts it in id->person map in Person class
+                    pp.setRole(pr);
+                    if (id == SiloUtil.trackPp) {
+                        SiloUtil.trackWriter.println("Read person with following attributes from " + fileName);
+                        Person.getPersonFromId(id).logAttributes(SiloUtil.trackWriter);
+                    }
                 }
-            }
+            });
         } catch (IOException e) {
             logger.fatal("IO Exception caught reading synpop household file: " + fileName);
-            logger.fatal("recCount = " + recCount + ", recString = <" + recString + ">");
+            logger.fatal("recCount = " + recCount + ", " + e);
         }
         logger.info("Finished reading " + recCount + " persons.");
     }
 
-
     public void connectPersonsToHouseholds () {
         // connect person objects to household objects
-        for (Person per: Person.getPersonArray()) {
+        for (Person per: Person.getPersons()) {
             Household hhOfThisPerson = Household.getHouseholdFromId(per.getHhId());
             hhOfThisPerson.addPersonForInitialSetup(per);
             if (per.getHhId() == SiloUtil.trackHh || per.getId() == SiloUtil.trackPp) {
@@ -228,7 +253,7 @@ public class HouseholdDataManager {
 
     public void setTypeOfAllHouseholds () {
         // define household types
-        for (Household hh: Household.getHouseholdArray()) {
+        for (Household hh: Household.getHouseholds()) {
             hh.setType();
             hh.setHouseholdRace();
         }
@@ -383,7 +408,7 @@ public class HouseholdDataManager {
 
         int pers[][] = new int[2][101];
         int ppRace[] = new int[4];
-        for (Person per: Person.getPersonArray()) {
+        for (Person per: Person.getPersons()) {
             int gender = per.getGender();
             int age = Math.min(per.getAge(), 100);
             pers[gender-1][age] += 1;
@@ -405,7 +430,7 @@ public class HouseholdDataManager {
         summarizeData.resultFile("black," + ppRace[1]);
         summarizeData.resultFile("hispanic," + ppRace[2]);
         summarizeData.resultFile("other," + ppRace[3]);
-        for (Household hh: Household.getHouseholdArray()) {
+        for (Household hh: Household.getHouseholds()) {
             int hhSize = Math.min(hh.getHhSize(), 10);
             hhs[hhSize - 1]++;
             hht[hh.getHouseholdType().ordinal()]++;
@@ -436,7 +461,7 @@ public class HouseholdDataManager {
         // labor participation and commuting distance
         float[][][] labP = new float[2][2][5];
         float[][] commDist = new float[2][SiloUtil.getHighestVal(geoData.getRegionList()) + 1];
-        for (Person per: Person.getPersonArray()) {
+        for (Person per: Person.getPersons()) {
             int age = per.getAge();
             int gender = per.getGender() - 1;
             boolean employed = per.getWorkplace() > 0;
@@ -468,9 +493,9 @@ public class HouseholdDataManager {
     public void setHighestHouseholdAndPersonId () {
         // identify highest household ID and highest person ID in use
         highestHouseholdIdInUse = 0;
-        for (Household hh: Household.getHouseholdArray()) highestHouseholdIdInUse = Math.max(highestHouseholdIdInUse, hh.getId());
+        for (Household hh: Household.getHouseholds()) highestHouseholdIdInUse = Math.max(highestHouseholdIdInUse, hh.getId());
         highestPersonIdInUse = 0;
-        for (Person pp: Person.getPersonArray()) highestPersonIdInUse = Math.max(highestPersonIdInUse, pp.getId());
+        for (Person pp: Person.getPersons()) highestPersonIdInUse = Math.max(highestPersonIdInUse, pp.getId());
     }
 
 
@@ -488,6 +513,19 @@ public class HouseholdDataManager {
     }
 
 
+    public void writeCheckpoint(ObjectOutputStream out) throws IOException {
+        // ids are not reused, therefore the highest ids ever assigned are part of the checkpoint
+        out.writeInt(highestHouseholdIdInUse);
+        out.writeInt(highestPersonIdInUse);
+    }
+
+
+    public void readCheckpoint(ObjectInputStream in) throws IOException {
+        highestHouseholdIdInUse = in.readInt();
+        highestPersonIdInUse = in.readInt();
+    }
+
+
     public static int getHighestHouseholdIdInUse() {
         return highestHouseholdIdInUse;
     }
@@ -553,7 +591,7 @@ public class HouseholdDataManager {
 
         laborParticipationShares = new float[2][100];
         int[][] count = new int[2][100];
-        for (Person pp: Person.getPersonArray()) {
+        for (Person pp: Person.getPersons()) {
             int age = pp.getAge();
             if (age > 99) continue;  // people older than 99 will always be unemployed/retired
             int gender = pp.getGender();
@@ -582,7 +620,7 @@ public class HouseholdDataManager {
 
         float[][][] averageIncome = new float[2][100][2];              // income by gender, age and unemployed/employed
         int[][][] count = new int[2][100][2];
-        for (Person pp: Person.getPersonArray()) {
+        for (Person pp: Person.getPersons()) {
             int age = Math.min(99, pp.getAge());
             int occupation = 0;
             if (pp.getOccupation() == 1) occupation = 1;
@@ -609,18 +647,31 @@ public class HouseholdDataManager {
     }
 
 
-    public void adjustIncome() {
-        // select who will get a raise or drop in salary
+    public void adjustIncome(final int year) {
+        // select who will get a raise or drop in salary, every person draws from its own random stream, which makes the
+        // result independent of the number of threads
 
         currentIncomeDistribution = calculateIncomeDistribution();   // income by gender, age and unemployed/employed
+        // the distribution of income changes only depends on gender, age and occupation
+        incomeChangeTables = new IncomeChangeTable[currentIncomeDistribution.length][][];
+        for (int gender = 0; gender < currentIncomeDistribution.length; gender++) {
+            incomeChangeTables[gender] = new IncomeChangeTable[currentIncomeDistribution[gender].length][];
+            for (int age = 0; age < currentIncomeDistribution[gender].length; age++) {
+                incomeChangeTables[gender][age] = new IncomeChangeTable[currentIncomeDistribution[gender][age].length];
+                for (int occ = 0; occ < currentIncomeDistribution[gender][age].length; occ++) {
+                    float desiredShift = initialIncomeDistribution[gender][age][occ] - currentIncomeDistribution[gender][age][occ];
+                    incomeChangeTables[gender][age][occ] = createIncomeChangeTable(desiredShift);
+                }
+            }
+        }
         Integer[] personArray = new Integer[Person.getPersonCount()];
-        Person[] pps = Person.getPersonArray();
-        for (int per = 0; per < pps.length; per++) personArray[per] = pps[per].getId();
+        int per = 0;
+        for (Person pp: Person.getPersons()) personArray[per++] = pp.getId();
 
         // Multi-threading code
         Function1<Integer, Void> incomeChangeFunction = new Function1<Integer, Void>() {
             public Void apply(Integer per) {
-                adjustIncomeForPerson(per);
+                adjustIncomeForPerson(per, year);
                 return null;
             }
         };
@@ -633,22 +684,22 @@ public class HouseholdDataManager {
     }
 
 
-    private void adjustIncomeForPerson (int per) {
+    private void adjustIncomeForPerson (int per, int year) {
         // adjust income of person with ID per
 
         Person pp = Person.getPersonFromId(per);
-        int gender = pp.gender - 1;
-        int age = Math.min(99, pp.age);
+        int gender = pp.getGender() - 1;
+        int age = Math.min(99, pp.getAge());
         int occ = 0;
-        if (pp.occupation == 1) occ = 1;
-        float desiredShift = initialIncomeDistribution[gender][age][occ] - currentIncomeDistribution[gender][age][occ];
-        int newIncome = selectNewIncome(pp.getIncome(), desiredShift);
-        pp.setIncome(newIncome);
+        if (pp.getOccupation() == 1) occ = 1;
+        IncomeChangeTable table = incomeChangeTables[gender][age][occ];
+        int sel = table.sampler.sample(new RandomStream(year, RandomStream.Model.incomeChange, per));
+        pp.setIncome(Math.max(pp.getIncome() + table.lowerBound + table.step * sel, 0));
     }
 
 
-    private int selectNewIncome (int currentIncome, float desiredShift) {
-        // calculate new income using a normal distribution
+    private IncomeChangeTable createIncomeChangeTable (float desiredShift) {
+        // calculate distribution of income changes using a normal distribution
 
         double[] prob = new double[21];
         int lowerBound;
@@ -676,24 +727,30 @@ public class HouseholdDataManager {
                     (2 * Math.pow(meanIncomeChange, 2))));
         }
         prob[smallestAbsValuePos] = prob[smallestAbsValuePos] * 10;   // make no change most likely
-        int sel = SiloUtil.select(prob);
-        return Math.max((currentIncome + lowerBound + (upperBound - lowerBound) / prob.length * sel), 0);
+        return new IncomeChangeTable(lowerBound, (upperBound - lowerBound) / prob.length, new PrefixSumSampler(prob));
     }
 
 
-    public static int selectIncomeForPerson (int gender, int age, int occupation) {
-        // select income for household based on gender, age and occupation
+    private static void createInitialIncomeChangeTable () {
+        // calculate distribution of changes from the average income for persons who start to work
 
         double[] prob = new double[21];
-        int[] change = new int[21];
+        initialIncomeChanges = new int[21];
         for (int i = 0; i < prob.length; i++) {
             // normal distribution to calculate change of income
-            change[i] = (int) (-5000f + 10000f * (float) i / (prob.length - 1f));
+            initialIncomeChanges[i] = (int) (-5000f + 10000f * (float) i / (prob.length - 1f));
             prob[i] = (1 / (meanIncomeChange * Math.sqrt(2 * 3.1416))) *
-                    Math.exp(-(Math.pow(change[i], 2) / (2 * Math.pow(meanIncomeChange, 2))));
+                    Math.exp(-(Math.pow(initialIncomeChanges[i], 2) / (2 * Math.pow(meanIncomeChange, 2))));
         }
-        int sel = SiloUtil.select(prob);
-        return Math.max((int) initialIncomeDistribution[gender][age][occupation] + change[sel], 0);
+        initialIncomeChangeSampler = new PrefixSumSampler(prob);
+    }
+
+
+    public static int selectIncomeForPerson (int gender, int age, int occupation) {
+        // select income for household based on gender, age and occupation
+
+        int sel = initialIncomeChangeSampler.sample(SiloModel.rand);
+        return Math.max((int) initialIncomeDistribution[gender][age][occupation] + initialIncomeChanges[sel], 0);
     }
 
 
@@ -706,7 +763,7 @@ public class HouseholdDataManager {
         // count currently employed people
         final float[][] currentlyEmployed = new float[2][100];
         final float[][] currentlyUnemployed = new float[2][100];
-        for (Person pp : Person.getPersonArray()) {
+        for (Person pp : Person.getPersons()) {
             int age = pp.getAge();
             if (age > 99) continue;  // people older than 99 will always be unemployed/retired
             int gender = pp.getGender();
@@ -738,7 +795,7 @@ public class HouseholdDataManager {
         // plan employment changes
         ArrayList<Integer> alFindJob = new ArrayList<>();
         ArrayList<Integer> alQuitJob = new ArrayList<>();
-        for (Person pp : Person.getPersonArray()) {
+        for (Person pp : Person.getPersons()) {
             int age = pp.getAge();
             if (age > 99) continue;  // people older than 99 will always be unemployed/retired
             int gen = pp.getGender() - 1;
@@ -779,7 +836,7 @@ public class HouseholdDataManager {
         // return HashMap<Zone, ArrayOfHouseholdIds>
 
         HashMap<Integer, int[]> hhByZone = new HashMap<>();
-        for (Household hh: Household.getHouseholdArray()) {
+        for (Household hh: Household.getHouseholds()) {
             int zone = hh.getHomeZone();
             if (hhByZone.containsKey(zone)) {
                 int[] oldList = hhByZone.get(zone);
@@ -797,7 +854,7 @@ public class HouseholdDataManager {
     public static int[] getNumberOfHouseholdsByRegion() {
         // return number of households by region
         int[] hhByRegion = new int[geoData.getRegionList().length];
-        for (Household hh: Household.getHouseholdArray()) {
+        for (Household hh: Household.getHouseholds()) {
             if (hh.getHomeZone() == -1) continue;  // unclear why this is needed
             int region = geoData.getRegionOfZone(hh.getHomeZone());
             hhByRegion[geoData.getRegionIndex(region)]++;
@@ -810,7 +867,7 @@ public class HouseholdDataManager {
         // calculate median income for each MSA
 
         HashMap<Integer, ArrayList<Integer>> incomeHashMap = new HashMap<>();
-        for (Household hh: Household.getHouseholdArray()) {
+        for (Household hh: Household.getHouseholds()) {
             int homeMSA = geoData.getMSAOfZone(hh.getHomeZone());
             if (incomeHashMap.containsKey(homeMSA)) {
                 ArrayList<Integer> inc = incomeHashMap.get(homeMSA);
@@ -854,7 +911,7 @@ public class HouseholdDataManager {
         HashMap<Integer, ArrayList> hhByDistToMetro = new HashMap<>();
         for (Integer dist = 0; dist <= 20; dist++) hhByDistToMetro.put(dist, new ArrayList<Integer>());
 
-        for (Household hh: Household.getHouseholdArray()) {
+        for (Household hh: Household.getHouseholds()) {
             int incCat = getIncomeCategoryForIncome(hh.getHhIncome());
             Integer smallestDist = 21;
             for (int row = 1; row <= selectedMetro.getRowCount(); row++) {
@@ -0,0 +1,77 @@
+package edu.umd.ncsg.data;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Columnar storage of all households, Household objects are lightweight views on one slot of these columns
+ **/
+
+public class HouseholdStore extends EntityStore {
+
+    private static final long serialVersionUID = 1L;
+
+    int[] dwellingId;
+    int[] hhSize;
+    byte[] race;          // ordinal of Race, -1 if undefined
+    int[] autos;
+    int[] homeZone;
+    byte[] type;          // ordinal of HouseholdType, -1 if undefined
+    int[][] personIds;    // ids of household members, -1 for members not yet added during initial setup
+
+
+    public HouseholdStore(int initialCapacity) {
+        super(initialCapacity);
+        int capacity = getCapacity();
+        dwellingId = new int[capacity];
+        hhSize = new int[capacity];
+        race = new byte[capacity];
+        autos = new int[capacity];
+        homeZone = new int[capacity];
+        type = new byte[capacity];
+        personIds = new int[capacity][];
+    }
+
+
+    @Override
+    protected void growColumns(int capacity) {
+        dwellingId = Arrays.copyOf(dwellingId, capacity);
+        hhSize = Arrays.copyOf(hhSize, capacity);
+        race = Arrays.copyOf(race, capacity);
+        autos = Arrays.copyOf(autos, capacity);
+        homeZone = Arrays.copyOf(homeZone, capacity);
+        type = Arrays.copyOf(type, capacity);
+        personIds = Arrays.copyOf(personIds, capacity);
+    }
+
+
+    void writeColumns(ColumnarBinaryFile.Writer out) throws IOException {
+        // write all households in ascending order of their ids
+        int[] ids = getIds();
+        int[] slots = getSlots(ids);
+        out.startSection("households", ids.length, 9);
+        out.writeInts("id", ids);
+        out.writeInts("dwellingId", gather(dwellingId, slots));
+        out.writeInts("hhSize", gather(hhSize, slots));
+        out.writeBytes("race", gather(race, slots));
+        out.writeInts("autos", gather(autos, slots));
+        out.writeInts("homeZone", gather(homeZone, slots));
+        out.writeBytes("type", gather(type, slots));
+        writeArrayColumn(out, "personIds", personIds, slots);
+    }
+
+
+    static HouseholdStore readColumns(ColumnarBinaryFile.Reader in) throws IOException {
+        int count = in.startSection("households");
+        HouseholdStore store = new HouseholdStore(count);
+        store.addInOrder(in.readInts("id", new int[count]));
+        in.readInts("dwellingId", store.dwellingId);
+        in.readInts("hhSize", store.hhSize);
+        in.readBytes("race", store.race);
+        in.readInts("autos", store.autos);
+        in.readInts("homeZone", store.homeZone);
+        in.readBytes("type", store.type);
+        readArrayColumn(in, "personIds", store.personIds, count);
+        return store;
+    }
+}
@@ -17,10 +17,9 @@
 package edu.umd.ncsg.data;
 
 import java.io.PrintWriter;
-import java.util.Map;
-import java.util.HashMap;
+import java.util.AbstractCollection;
 import java.util.Collection;
-import java.util.Set;
+import java.util.Iterator;
 
 /**
  * Class to hold job data
@@ -30,61 +29,98 @@ import java.util.Set;
 
 public class Job {
 
-    private static final Map<Integer, Job> jobMap = new HashMap<>();
-	private int id;
-    private int zone;
-    private int workerId;
-    private String type;
+    private static JobStore store = new JobStore(1000);
+    // Attributes are stored in JobStore, a Job object is only a view on the slot of this job
+	private final int id;
+    private final int slot;
 
 
     public Job (int id, int zone, int workerId, String type) {
         // Create new job object
         this.id = id;
-        this.zone = zone;
-        this.workerId = workerId;
-        this.type = type;
-        jobMap.put(id, this);
+        this.slot = store.add(id);
+        store.zone[slot] = zone;
+        store.workerId[slot] = workerId;
+        store.type[slot] = store.getTypeCode(type);
     }
 
 
-    public static void saveJobs (Job[] jjs) {
-        for (Job jj: jjs) jobMap.put(jj.getId(), jj);
+    private Job (int id, int slot) {
+        // view on existing job
+        this.id = id;
+        this.slot = slot;
+    }
+
+
+    public static JobStore getJobStore() {
+        return store;
+    }
+
+
+    public static void setJobStore (JobStore jobStore) {
+        // replace all jobs, used when reading jobs from a binary file
+        store = jobStore;
+    }
+
+
+    public static void recycleRemovedJobs() {
+        // slots of jobs that were removed may be reused from now on
+        store.recycleReleasedSlots();
     }
 
 
     public static Job getJobFromId(int jobId) {
-        return jobMap.get(jobId);
+        int slot = store.getSlot(jobId);
+        if (slot < 0) return null;
+        return new Job(jobId, slot);
     }
 
 
     public static int getJobCount() {
-        return jobMap.size();
+        return store.size();
     }
 
     public static Collection<Job> getJobs() {
-        // return collection of jobs
-            return jobMap.values();
+        // return live collection of jobs in ascending order of their ids
+        return new AbstractCollection<Job>() {
+            @Override
+            public Iterator<Job> iterator() {
+                return new EntityStore.LiveIterator<Job>(store) {
+                    @Override
+                    protected Job getView(int id, int slot) {
+                        return new Job(id, slot);
+                    }
+                };
+            }
+            @Override
+            public int size() {
+                return store.size();
+            }
+        };
     }
 
     public static Job[] getJobArray() {
-        return jobMap.values().toArray(new Job[jobMap.size()]);
+        int[] ids = store.getIds();
+        Job[] jjs = new Job[ids.length];
+        for (int i = 0; i < ids.length; i++) jjs[i] = new Job(ids[i], store.getSlot(ids[i]));
+        return jjs;
     }
 
 
-    public static Set<Integer> getJobMapIDs () {
-        return jobMap.keySet();
+    public static int[] getJobMapIDs () {
+        return store.getIds();
     }
 
     public static void removeJob(int id) {
-        jobMap.remove(id);
+        store.remove(id);
     }
 
 
     public void logAttributes (PrintWriter pw) {
         pw.println ("Attributes of job       " + id);
-        pw.println ("Located in zone         " + zone);
-        pw.println ("Filled by person        " + workerId);
-        pw.println ("Job type                " + type);
+        pw.println ("Located in zone         " + getZone());
+        pw.println ("Filled by person        " + getWorkerId());
+        pw.println ("Job type                " + getType());
     }
 
 
@@ -93,19 +129,19 @@ public class Job {
     }
 
     public int getWorkerId() {
-        return workerId;
+        return store.workerId[slot];
     }
 
     public int getZone() {
-        return zone;
+        return store.zone[slot];
     }
 
     public String getType() {
-        return type;
+        return store.getTypeName(store.type[slot]);
     }
 
     public void setWorkerID(int personID) {
-        this.workerId = personID;
+        store.workerId[slot] = personID;
     }
     
  }
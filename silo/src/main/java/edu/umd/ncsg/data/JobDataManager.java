@@ -18,11 +18,12 @@ package edu.umd.ncsg.data;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.pb.common.datafile.TableDataSet;
 import com.pb.common.util.ResourceUtil;
+import edu.umd.ncsg.SiloModel;
 import edu.umd.ncsg.SiloUtil;
-import edu.umd.ncsg.events.IssueCounter;
 import org.apache.log4j.Logger;
 
 
@@ -41,13 +42,17 @@ public class JobDataManager {
     protected static final String PROPERTIES_MAX_NUM_VAC_JOB  = "vacant.job.by.reg.array";
     public static final String PROPERTIES_EMPLOYMENT_FORECAST = "interpol.empl.forecast";
     public static final String PROPERTIES_JOB_CONTROL_TOTAL   = "job.control.total";
+    protected static final String PROPERTIES_WRITE_EMPL_FORECAST = "write.employment.forecast.files";
     private ResourceBundle rb;
 
-    private static int highestJobIdInUse;
-    private static int[][] vacantJobsByRegion;
-    private static int[] vacantJobsByRegionPos;
+    private static final AtomicInteger highestJobIdInUse = new AtomicInteger();
+    private static VacancyIndex vacantJobs;
     private static int numberOfStoredVacantJobs;
+    private static double[][] commuteWeightByHomeZone;      // [zone][regionIndex] work trip length frequency to region
+    private static double[][] distanceWeightByHomeZone;     // [zone][regionIndex] inverse distance to region
+    private static double[] regionProbability;
     private static float[] zonalJobDensity;
+    private static float[][][] employmentForecast;           // [jobType][year - 2000][zone] interpolated number of jobs
 
 
     public JobDataManager(ResourceBundle rb) {
@@ -74,54 +79,50 @@ public class JobDataManager {
         logger.info("Reading job micro data from ascii file");
 
         int year = SiloUtil.getStartYear();
-        String fileName = SiloUtil.baseDirectory + ResourceUtil.getProperty(rb, PROPERTIES_JJ_FILE_ASCII) + "_" + year + ".csv";
+        final String fileName = SiloUtil.baseDirectory + ResourceUtil.getProperty(rb, PROPERTIES_JJ_FILE_ASCII) + "_" + year + ".csv";
 
-        String recString = "";
         int recCount = 0;
         try {
-            BufferedReader in = new BufferedReader(new FileReader(fileName));
-            recString = in.readLine();
+            ParallelCsvReader reader = new ParallelCsvReader(fileName);
 
             // read header
-            String[] header = recString.split(",");
-            int posId = SiloUtil.findPositionInArray("id", header);
-            int posZone = SiloUtil.findPositionInArray("zone",header);
-            int posWorker = SiloUtil.findPositionInArray("personId",header);
-            int posType = SiloUtil.findPositionInArray("type",header);
-
-            // read line
-            while ((recString = in.readLine()) != null) {
-                recCount++;
-                String[] lineElements = recString.split(",");
-                int id      = Integer.parseInt(lineElements[posId]);
-                int zone    = Integer.parseInt(lineElements[posZone]);
-                int worker  = Integer.parseInt(lineElements[posWorker]);
-                String type = lineElements[posType].replace("\"", "");
-                new Job(id, zone, worker, type);
-                if (id == SiloUtil.trackJj) {
-                    SiloUtil.trackWriter.println("Read job with following attributes from " + fileName);
-                    Job.getJobFromId(id).logAttributes(SiloUtil.trackWriter);
+            String[] header = reader.getHeader();
+            final int posId = SiloUtil.findPositionInArray("id", header);
+            final int posZone = SiloUtil.findPositionInArray("zone",header);
+            final int posWorker = SiloUtil.findPositionInArray("personId",header);
+            final int posType = SiloUtil.findPositionInArray("type",header);
+
+            // reserve space for all jobs, then read lines in parallel
+            recCount = reader.countRecords();
+            Job.getJobStore().reserve(recCount, -1);
+            reader.read(new ParallelCsvReader.RecordHandler() {
+                public void processRecord(ParallelCsvReader.Record record) {
+                    int id      = record.getInt(posId);
+                    int zone    = record.getInt(posZone);
+                    int worker  = record.getInt(posWorker);
+                    String type = record.getString(posType).replace("\"", "");
+                    new Job(id, zone, worker, type);
+                    if (id == SiloUtil.trackJj) {
+                        SiloUtil.trackWriter.println("Read job with following attributes from " + fileName);
+                        Job.getJobFromId(id).logAttributes(SiloUtil.trackWriter);
+                    }
                 }
-            }
+            });
         } catch (IOException e) {
             logger.fatal("IO Exception caught reading synpop job file: " + fileName);
-            logger.fatal("recCount = " + recCount + ", recString = <" + recString + ">");
+            logger.fatal("recCount = " + recCount + ", " + e);
         }
         logger.info("Finished reading " + recCount + " jobs.");
     }
 
-
     public static void writeBinaryJobDataObjects(ResourceBundle appRb) {
         // Store job object data in binary file
 
         String fileName = SiloUtil.baseDirectory + ResourceUtil.getProperty(appRb, PROPERTIES_JJ_FILE_BIN);
         logger.info("  Writing job data to binary file.");
-        Object[] data = Job.getJobs().toArray(new Job[Job.getJobCount()]);
-        try {
-            File fl = new File(fileName);
-            ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(fl));
-            out.writeObject(data);
-            out.close();
+        boolean compress = ResourceUtil.getBooleanProperty(appRb, ColumnarBinaryFile.PROPERTIES_COMPRESS_BIN_FILES, false);
+        try (ColumnarBinaryFile.Writer out = new ColumnarBinaryFile.Writer(fileName, compress)) {
+            Job.getJobStore().writeColumns(out);
         } catch (Exception e) {
             logger.error("Error saving to binary file " + fileName + ". Object not saved.\n" + e);
         }
@@ -133,11 +134,18 @@ public class JobDataManager {
         String fileName = SiloUtil.baseDirectory + ResourceUtil.getProperty(rb, PROPERTIES_JJ_FILE_BIN);
         logger.info("Reading job data from binary file.");
         try {
-            ObjectInputStream in = new ObjectInputStream(new FileInputStream(new File(fileName)));
-            Object[] data = (Object[]) in.readObject();
-            Job.saveJobs((Job[]) data[0]);
+            if (!ColumnarBinaryFile.isColumnarFile(fileName)) {
+                // files of earlier versions contain serialized Job objects that cannot be converted
+                logger.error("Binary file " + fileName + " was written by an earlier version of SILO and cannot be " +
+                        "read. Read the job data from the ascii file and write a new binary file.");
+                System.exit(1);
+            }
+            try (ColumnarBinaryFile.Reader in = new ColumnarBinaryFile.Reader(fileName)) {
+                Job.setJobStore(JobStore.readColumns(in));
+            }
         } catch (Exception e) {
-            logger.error ("Error reading from binary file " + fileName + ". Object not read.\n" + e);
+            logger.error ("Error reading from binary file " + fileName + ". Program exits.\n" + e);
+            System.exit(1);
         }
         logger.info("Finished reading " + Job.getJobCount() + " jobs.");
     }
@@ -145,20 +153,37 @@ public class JobDataManager {
 
     public void setHighestJobId () {
         // identify highest job ID in use
-        highestJobIdInUse = 0;
-        for (Job jj: Job.getJobArray()) highestJobIdInUse = Math.max(highestJobIdInUse, jj.getId());
+        int highestId = 0;
+        for (Job jj: Job.getJobs()) highestId = Math.max(highestId, jj.getId());
+        highestJobIdInUse.set(highestId);
+    }
+
+
+    public void writeCheckpoint(ObjectOutputStream out) throws IOException {
+        out.writeInt(highestJobIdInUse.get());
+        out.writeObject(vacantJobs);
+    }
+
+
+    public void readCheckpoint(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        highestJobIdInUse.set(in.readInt());
+        vacantJobs = (VacancyIndex) in.readObject();
+    }
+
+
+    public static int getHighestJobId () {
+        return highestJobIdInUse.get();
     }
 
 
     public static int getNextJobId () {
-        // increase highestJobIdInUse by 1 and return value
-        highestJobIdInUse++;
-        return highestJobIdInUse;
+        // increase highestJobIdInUse by 1 and return value, safe to be called by several threads at the same time
+        return highestJobIdInUse.incrementAndGet();
     }
 
 
     public void updateEmploymentForecast() {
-        // create yearly employment forecast files
+        // interpolate employment forecast for every year, files are written for diagnostic purposes only
 
         String[] yearsGiven = {"00", "07", "10", "30", "40"};  // Warning: if years are changed, also change interpolation loop below under "// interpolate employment data"
         int highestYear = SiloUtil.getHighestVal(yearsGiven);
@@ -209,6 +234,9 @@ public class JobDataManager {
             }
         }
 
+        employmentForecast = jobInventory;
+        if (!ResourceUtil.getBooleanProperty(rb, PROPERTIES_WRITE_EMPL_FORECAST, false)) return;
+
         String dir = SiloUtil.baseDirectory + "scenOutput/" + SiloUtil.scenarioName + "/employmentForecast/";
         SiloUtil.createDirectoryIfNotExistingYet(dir);
         for (int yr = Integer.parseInt(yearsGiven[0]); yr <= highestYear; yr++) {
@@ -228,36 +256,45 @@ public class JobDataManager {
     }
 
 
+    public static int getEmploymentForecast(int jobType, int year, int zone) {
+        // return interpolated number of jobs of jobType (ordinal) in zone in year, truncated to int as before
+        return (int) employmentForecast[jobType][year - 2000][zone];
+    }
+
+
+    public static boolean hasEmploymentForecast(int year) {
+        return employmentForecast != null && year >= 2000 && year - 2000 < employmentForecast[0].length;
+    }
+
+
     public void identifyVacantJobs() {
         // identify vacant jobs by region (one-time task at beginning of model run only)
 
         int highestRegionID = SiloUtil.getHighestVal(geoData.getRegionList());
-        vacantJobsByRegion = new int[highestRegionID + 1][numberOfStoredVacantJobs + 1];
-        vacantJobsByRegion = SiloUtil.setArrayToValue(vacantJobsByRegion, 0);
-        vacantJobsByRegionPos = new int[highestRegionID + 1];
-        vacantJobsByRegionPos = SiloUtil.setArrayToValue(vacantJobsByRegionPos, 0);
+        vacantJobs = new VacancyIndex(highestRegionID, numberOfStoredVacantJobs);
+        commuteWeightByHomeZone = new double[geoData.getHighestZonalId() + 1][];
+        distanceWeightByHomeZone = new double[geoData.getHighestZonalId() + 1][];
+        regionProbability = new double[geoData.getRegionList().length];
 
         logger.info("  Identifying vacant jobs");
-        for (Job jj : Job.getJobArray()) {
+        for (Job jj : Job.getJobs()) {
             if (jj == null) continue;   // should not happen, but model crashes without this statement.
             if (jj.getWorkerId() == -1) {
                 int jobId = jj.getId();
                 int region = geoData.getRegionOfZone(jj.getZone());
-                vacantJobsByRegion[region][vacantJobsByRegionPos[region]] = jobId;
-                if (vacantJobsByRegionPos[region] < numberOfStoredVacantJobs) vacantJobsByRegionPos[region]++;
-                if (vacantJobsByRegionPos[region] >= numberOfStoredVacantJobs) IssueCounter.countExcessOfVacantJobs(region);
+                vacantJobs.add(region, jobId);
                 if (jobId == SiloUtil.trackJj)
                     SiloUtil.trackWriter.println("Added job " + jobId + " to list of vacant jobs.");
             }
         }
 //        for (int region: SiloUtil.getRegionList()) logger.info ("Region " + region + " has vacant jobs: " +
-//                (vacantJobsByRegionPos[region]));
+//                (vacantJobs.size(region)));
 //        System.exit(1);
     }
 
 
     public static int getNumberOfVacantJobsByRegion (int region) {
-        return vacantJobsByRegionPos[region];
+        return vacantJobs.size(region);
     }
 
 
@@ -291,59 +328,75 @@ public class JobDataManager {
         // select vacant job for person living in homeZone
 
         int[] regions = geoData.getRegionList();
-        double[] regionProbability = new double[SiloUtil.getHighestVal(regions) + 1];
+        double sum = 0;
 
         if (homeZone > 0) {
             // person has home location (i.e., is not inmigrating right now)
-            for (int reg: regions) {
-                if (vacantJobsByRegionPos[reg] > 0) {
-                    int distance = (int) (Accessibility.getMinDistanceFromZoneToRegion(homeZone, reg) + 0.5);
-                    regionProbability[reg] = Accessibility.getWorkTLFD(distance) * (double) getNumberOfVacantJobsByRegion(reg);
-                }
+            if (commuteWeightByHomeZone[homeZone] == null) calculateRegionWeights(homeZone);
+            double[] commuteWeight = commuteWeightByHomeZone[homeZone];
+            for (int i = 0; i < regions.length; i++) {
+                regionProbability[i] = commuteWeight[i] * (double) vacantJobs.size(regions[i]);
+                sum += regionProbability[i];
             }
-            if (SiloUtil.getSum(regionProbability) == 0) {
+            if (sum == 0) {
                 // could not find job in reasonable distance. Person will have to commute far and is likely to relocate in the future
-                for (int reg: regions) {
-                    if (vacantJobsByRegionPos[reg] > 0) {
-                        int distance = (int) (Accessibility.getMinDistanceFromZoneToRegion(homeZone, reg) + 0.5);
-                        regionProbability[reg] = 1f / distance;
-                    }
+                double[] distanceWeight = distanceWeightByHomeZone[homeZone];
+                for (int i = 0; i < regions.length; i++) {
+                    regionProbability[i] = vacantJobs.size(regions[i]) > 0 ? distanceWeight[i] : 0;
+                    sum += regionProbability[i];
                 }
             }
         } else {
             // person has no home location because (s)he is inmigrating right now and a dwelling has not been chosen yet
-            for (int reg: regions) {
-                if (vacantJobsByRegionPos[reg] > 0) {
-                    regionProbability[reg] = getNumberOfVacantJobsByRegion(reg);
-                }
+            for (int i = 0; i < regions.length; i++) {
+                regionProbability[i] = vacantJobs.size(regions[i]);
+                sum += regionProbability[i];
             }
         }
 
-        if (SiloUtil.getSum(regionProbability) == 0) {
+        if (sum == 0) {
             logger.warn("No jobs remaining. Could not find new job.");
             return -1;
         }
-        int selectedRegion = SiloUtil.select(regionProbability);
-        float[] jobProbability = new float[getNumberOfVacantJobsByRegion(selectedRegion)];
-        jobProbability = SiloUtil.setArrayToValue(jobProbability, 1);
-        int selectedJob = SiloUtil.select(jobProbability);
-
-        int jobId = vacantJobsByRegion[selectedRegion][selectedJob];
-        vacantJobsByRegion[selectedRegion][selectedJob] = vacantJobsByRegion[selectedRegion][vacantJobsByRegionPos[selectedRegion] - 1];
-        vacantJobsByRegion[selectedRegion][vacantJobsByRegionPos[selectedRegion] - 1] = 0;
-        vacantJobsByRegionPos[selectedRegion] -= 1;
+        double selPos = sum * SiloModel.rand.nextDouble();
+        int selectedRegion = regions[regions.length - 1];
+        double cumulated = 0;
+        for (int i = 0; i < regions.length; i++) {
+            cumulated += regionProbability[i];
+            if (cumulated > selPos) {
+                selectedRegion = regions[i];
+                break;
+            }
+        }
+
+        int jobId = vacantJobs.sample(selectedRegion, SiloModel.rand);
+        vacantJobs.remove(jobId);
         if (jobId == SiloUtil.trackJj) SiloUtil.trackWriter.println("Removed job " + jobId + " from list of vacant jobs.");
         return jobId;
     }
 
 
+    private static void calculateRegionWeights(int homeZone) {
+        // weights by region depend on travel times only and are calculated once per home zone
+
+        int[] regions = geoData.getRegionList();
+        double[] commuteWeight = new double[regions.length];
+        double[] distanceWeight = new double[regions.length];
+        for (int i = 0; i < regions.length; i++) {
+            int distance = (int) (Accessibility.getMinDistanceFromZoneToRegion(homeZone, regions[i]) + 0.5);
+            commuteWeight[i] = Accessibility.getWorkTLFD(distance);
+            distanceWeight[i] = 1f / distance;
+        }
+        commuteWeightByHomeZone[homeZone] = commuteWeight;
+        distanceWeightByHomeZone[homeZone] = distanceWeight;
+    }
+
+
     public static void addJobToVacancyList(int zone, int jobId) {
         // add job jobId to vacancy list
 
         int region = geoData.getRegionOfZone(zone);
-        vacantJobsByRegion[region][vacantJobsByRegionPos[region]] = jobId;
-        if (vacantJobsByRegionPos[region] < numberOfStoredVacantJobs) vacantJobsByRegionPos[region]++;
-        if (vacantJobsByRegionPos[region] >= numberOfStoredVacantJobs) IssueCounter.countExcessOfVacantJobs(region);
+        vacantJobs.add(region, jobId);
         if (jobId == SiloUtil.trackJj) SiloUtil.trackWriter.println("Added job " + jobId + " to list of vacant jobs.");
     }
 
@@ -356,7 +409,7 @@ public class JobDataManager {
         summarizeData.resultFile(txt + ",total");
 
         int[][] jobsByTypeAndRegion = new int[JobType.getNumberOfJobTypes()][SiloUtil.getHighestVal(geoData.getRegionList()) + 1];
-        for (Job job: Job.getJobArray()) {
+        for (Job job: Job.getJobs()) {
             jobsByTypeAndRegion[JobType.getOrdinal(job.getType())][geoData.getRegionOfZone(job.getZone())]++;
         }
 
@@ -374,7 +427,7 @@ public class JobDataManager {
 
     public void calculateJobDensityByZone() {
         zonalJobDensity = new float[geoData.getZones().length];
-        for (Job jj: Job.getJobArray()) zonalJobDensity[geoData.getZoneIndex(jj.getZone())]++;
+        for (Job jj: Job.getJobs()) zonalJobDensity[geoData.getZoneIndex(jj.getZone())]++;
         for (int zone: geoData.getZones())
             zonalJobDensity[geoData.getZoneIndex(zone)] /= geoData.getSizeOfZoneInAcres(zone);
     }
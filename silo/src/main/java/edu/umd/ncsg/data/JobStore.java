@@ -0,0 +1,85 @@
+package edu.umd.ncsg.data;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Columnar storage of all jobs, Job objects are lightweight views on one slot of these columns
+ **/
+
+public class JobStore extends EntityStore {
+
+    private static final long serialVersionUID = 1L;
+
+    int[] zone;
+    int[] workerId;
+    byte[] type;                       // index into typeNames
+    private volatile String[] typeNames;
+
+
+    public JobStore(int initialCapacity) {
+        super(initialCapacity);
+        int capacity = getCapacity();
+        zone = new int[capacity];
+        workerId = new int[capacity];
+        type = new byte[capacity];
+        typeNames = new String[0];
+    }
+
+
+    @Override
+    protected void growColumns(int capacity) {
+        zone = Arrays.copyOf(zone, capacity);
+        workerId = Arrays.copyOf(workerId, capacity);
+        type = Arrays.copyOf(type, capacity);
+    }
+
+
+    byte getTypeCode(String jobType) {
+        // return code of job type without locking, job types are registered the first time they are seen
+        String[] names = typeNames;
+        for (int code = 0; code < names.length; code++) if (names[code].equals(jobType)) return (byte) code;
+        return registerType(jobType);
+    }
+
+
+    private synchronized byte registerType(String jobType) {
+        // another thread may have registered the same job type in the meantime
+        String[] names = typeNames;
+        for (int code = 0; code < names.length; code++) if (names[code].equals(jobType)) return (byte) code;
+        names = Arrays.copyOf(names, names.length + 1);
+        names[names.length - 1] = jobType;
+        typeNames = names;
+        return (byte) (names.length - 1);
+    }
+
+
+    String getTypeName(byte code) {
+        return typeNames[code];
+    }
+
+
+    void writeColumns(ColumnarBinaryFile.Writer out) throws IOException {
+        // write all jobs in ascending order of their ids, job types are written as codes plus the list of type names
+        int[] ids = getIds();
+        int[] slots = getSlots(ids);
+        out.startSection("jobs", ids.length, 5);
+        out.writeInts("id", ids);
+        out.writeInts("zone", gather(zone, slots));
+        out.writeInts("workerId", gather(workerId, slots));
+        out.writeBytes("type", gather(type, slots));
+        out.writeStrings("typeNames", typeNames);
+    }
+
+
+    static JobStore readColumns(ColumnarBinaryFile.Reader in) throws IOException {
+        int count = in.startSection("jobs");
+        JobStore store = new JobStore(count);
+        store.addInOrder(in.readInts("id", new int[count]));
+        in.readInts("zone", store.zone);
+        in.readInts("workerId", store.workerId);
+        in.readBytes("type", store.type);
+        store.typeNames = in.readStrings("typeNames");
+        return store;
+    }
+}
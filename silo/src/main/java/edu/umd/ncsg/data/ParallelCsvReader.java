@@ -0,0 +1,235 @@
+package edu.umd.ncsg.data;
+
+import com.pb.sawdust.calculator.Function1;
+import com.pb.sawdust.util.concurrent.ForkJoinPoolFactory;
+import com.pb.sawdust.util.concurrent.IteratorAction;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reads large comma-separated micro data files in parallel. The file is split into chunks that end at line breaks,
+ * every chunk is memory-mapped and parsed by its own task. Integer fields are parsed directly from the bytes of the
+ * file. The first line of the file is the header, blank lines are skipped.
+ **/
+
+public class ParallelCsvReader {
+
+    static Logger logger = Logger.getLogger(ParallelCsvReader.class);
+
+    private static final long CHUNK_SIZE = 32 * 1024 * 1024;
+
+    private final String fileName;
+    private final String[] header;
+    private final long[] chunkStart;    // chunk i covers bytes chunkStart[i] to chunkStart[i + 1] - 1
+    private int[] recordsInChunk;
+
+
+    /**
+     * Callback that is called once for every record of the file. Records of different chunks are processed at the
+     * same time by different threads, records of the same chunk are processed in the order of the file.
+     **/
+    public interface RecordHandler {
+        void processRecord(Record record);
+    }
+
+
+    public ParallelCsvReader(String fileName) throws IOException {
+        this.fileName = fileName;
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "r")) {
+            FileChannel channel = file.getChannel();
+            long size = channel.size();
+            long headerEnd = findNextLineStart(channel, 0, size);
+            ByteBuffer headerBytes = ByteBuffer.allocate((int) headerEnd);
+            channel.read(headerBytes, 0);
+            String headerLine = new String(headerBytes.array(), StandardCharsets.UTF_8).replace("\n", "").replace("\r", "");
+            header = headerLine.split(",");
+
+            ArrayList<Long> starts = new ArrayList<>();
+            long start = headerEnd;
+            while (start < size) {
+                starts.add(start);
+                start = findNextLineStart(channel, Math.min(start + CHUNK_SIZE, size), size);
+            }
+            starts.add(size);
+            chunkStart = new long[starts.size()];
+            for (int i = 0; i < chunkStart.length; i++) chunkStart[i] = starts.get(i);
+        }
+    }
+
+
+    private static long findNextLineStart(FileChannel channel, long position, long size) throws IOException {
+        // return position of the first byte after the next line break at or after position, or size if there is none
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (position < size) {
+            buffer.clear();
+            int bytes = channel.read(buffer, position);
+            if (bytes <= 0) break;
+            for (int i = 0; i < bytes; i++) if (buffer.get(i) == '\n') return position + i + 1;
+            position += bytes;
+        }
+        return size;
+    }
+
+
+    public String[] getHeader() {
+        return header;
+    }
+
+
+    public int countRecords() {
+        // count non-blank lines after the header, used to reserve space before records are processed in parallel
+        recordsInChunk = new int[chunkStart.length - 1];
+        processChunks(null);
+        int count = 0;
+        for (int records: recordsInChunk) count += records;
+        return count;
+    }
+
+
+    public void read(RecordHandler handler) {
+        // process all records of the file with handler
+        processChunks(handler);
+    }
+
+
+    private void processChunks(final RecordHandler handler) {
+        // count records (handler == null) or process records of all chunks in parallel
+
+        Integer[] chunks = new Integer[chunkStart.length - 1];
+        for (int i = 0; i < chunks.length; i++) chunks[i] = i;
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        Function1<Integer, Void> chunkReader = new Function1<Integer, Void>() {
+            public Void apply(Integer chunk) {
+                try {
+                    processChunk(chunk, handler);
+                } catch (IOException e) {
+                    logger.fatal("IO Exception caught reading " + fileName + ": " + e);
+                    failure.compareAndSet(null, new RuntimeException(e));
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+                return null;
+            }
+        };
+        IteratorAction<Integer> itTask = new IteratorAction<>(Arrays.asList(chunks), chunkReader);
+        ForkJoinPool pool = ForkJoinPoolFactory.getForkJoinPool();
+        pool.execute(itTask);
+        itTask.waitForCompletion();
+        if (failure.get() != null) throw failure.get();
+    }
+
+
+    private void processChunk(int chunk, RecordHandler handler) throws IOException {
+        long start = chunkStart[chunk];
+        long length = chunkStart[chunk + 1] - start;
+        MappedByteBuffer buffer;
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "r")) {
+            buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, start, length);
+        }
+        Record record = new Record(buffer, header.length);
+        int records = 0;
+        int lineStart = 0;
+        int end = (int) length;
+        while (lineStart < end) {
+            int lineEnd = lineStart;
+            while (lineEnd < end && buffer.get(lineEnd) != '\n') lineEnd++;
+            int nextLineStart = lineEnd + 1;
+            if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r') lineEnd--;
+            if (lineEnd > lineStart) {
+                records++;
+                if (handler != null) {
+                    record.setLine(lineStart, lineEnd);
+                    handler.processRecord(record);
+                }
+            }
+            lineStart = nextLineStart;
+        }
+        if (handler == null) recordsInChunk[chunk] = records;
+    }
+
+
+    /**
+     * One line of the file. Fields are addressed by their position in the header, as returned by
+     * SiloUtil.findPositionInArray(). A Record object is reused for all lines of a chunk.
+     **/
+    public static class Record {
+
+        private final ByteBuffer buffer;
+        private int[] fieldStart;
+        private int[] fieldEnd;
+        private int numberOfFields;
+
+        private Record(ByteBuffer buffer, int expectedFields) {
+            this.buffer = buffer;
+            this.fieldStart = new int[Math.max(expectedFields, 1)];
+            this.fieldEnd = new int[Math.max(expectedFields, 1)];
+        }
+
+        private void setLine(int start, int end) {
+            // find start and end of every field of this line
+            numberOfFields = 0;
+            int fieldBegin = start;
+            for (int pos = start; pos <= end; pos++) {
+                if (pos == end || buffer.get(pos) == ',') {
+                    if (numberOfFields == fieldStart.length) {
+                        fieldStart = Arrays.copyOf(fieldStart, numberOfFields * 2);
+                        fieldEnd = Arrays.copyOf(fieldEnd, numberOfFields * 2);
+                    }
+                    fieldStart[numberOfFields] = fieldBegin;
+                    fieldEnd[numberOfFields] = pos;
+                    numberOfFields++;
+                    fieldBegin = pos + 1;
+                }
+            }
+        }
+
+        public int getInt(int field) {
+            // parse integer field like Integer.parseInt() without creating a String
+            checkField(field);
+            int pos = fieldStart[field];
+            int end = fieldEnd[field];
+            boolean negative = false;
+            if (pos < end && (buffer.get(pos) == '-' || buffer.get(pos) == '+')) {
+                negative = buffer.get(pos) == '-';
+                pos++;
+            }
+            if (pos == end) throw new NumberFormatException("For input string: \"" + getString(field) + "\"");
+            long value = 0;
+            for (; pos < end; pos++) {
+                int digit = buffer.get(pos) - '0';
+                if (digit < 0 || digit > 9) throw new NumberFormatException("For input string: \"" + getString(field) + "\"");
+                value = value * 10 + digit;
+                if (value > (long) Integer.MAX_VALUE + 1)
+                    throw new NumberFormatException("For input string: \"" + getString(field) + "\"");
+            }
+            if (negative) value = -value;
+            if (value > Integer.MAX_VALUE) throw new NumberFormatException("For input string: \"" + getString(field) + "\"");
+            return (int) value;
+        }
+
+        public float getFloat(int field) {
+            return Float.parseFloat(getString(field));
+        }
+
+        public String getString(int field) {
+            checkField(field);
+            byte[] bytes = new byte[fieldEnd[field] - fieldStart[field]];
+            for (int i = 0; i < bytes.length; i++) bytes[i] = buffer.get(fieldStart[field] + i);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private void checkField(int field) {
+            if (field < 0 || field >= numberOfFields) throw new ArrayIndexOutOfBoundsException(field);
+        }
+    }
+}
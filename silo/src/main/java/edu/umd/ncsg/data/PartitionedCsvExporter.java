@@ -0,0 +1,254 @@
+package edu.umd.ncsg.data;
+
+import com.pb.sawdust.calculator.Function1;
+import com.pb.sawdust.util.concurrent.ForkJoinPoolFactory;
+import com.pb.sawdust.util.concurrent.IteratorAction;
+import org.apache.log4j.Logger;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes micro data tables as comma-separated files. The ids of every table are split into partitions of consecutive
+ * ids, partitions of all tables are formatted in parallel into byte buffers and then written in the order of their
+ * ids. The result is the same as printing every row with a PrintWriter. Optionally, every partition is written to a
+ * numbered part file with its own header instead of one file per table.
+ **/
+
+public class PartitionedCsvExporter {
+
+    static Logger logger = Logger.getLogger(PartitionedCsvExporter.class);
+
+    private static final int ROWS_PER_PARTITION = 100000;
+
+    private final boolean writePartFiles;
+    private final List<Table> tables = new ArrayList<>();
+
+
+    /**
+     * Formats the row of object id. Rows of different partitions are formatted at the same time by different threads.
+     **/
+    public interface RowFormatter {
+        void formatRow(int id, RowBuffer row);
+    }
+
+
+    private static class Table {
+        final String fileName;
+        final String header;
+        final int[] ids;
+        final RowFormatter formatter;
+        FileChannel channel;
+
+        Table(String fileName, String header, int[] ids, RowFormatter formatter) {
+            this.fileName = fileName;
+            this.header = header;
+            this.ids = ids;
+            this.formatter = formatter;
+        }
+    }
+
+
+    private static class Partition {
+        final Table table;
+        final int number;
+        final int from;
+        final int to;
+        RowBuffer rows;
+
+        Partition(Table table, int number, int from, int to) {
+            this.table = table;
+            this.number = number;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+
+    public PartitionedCsvExporter(boolean writePartFiles) {
+        this.writePartFiles = writePartFiles;
+    }
+
+
+    public void addTable(String fileName, String header, int[] ids, RowFormatter formatter) {
+        // ids need to be in the order in which rows are written
+        tables.add(new Table(fileName, header, ids, formatter));
+    }
+
+
+    public void export() throws IOException {
+        // format and write all tables
+
+        List<Partition> partitions = new ArrayList<>();
+        int highestPartitionCount = 0;
+        for (Table table: tables) highestPartitionCount = Math.max(highestPartitionCount, getPartitionCount(table));
+        // alternate between tables, so that all tables are formatted at the same time
+        for (int number = 0; number < highestPartitionCount; number++) {
+            for (Table table: tables) {
+                if (number >= getPartitionCount(table)) continue;
+                int from = number * ROWS_PER_PARTITION;
+                partitions.add(new Partition(table, number, from, Math.min(from + ROWS_PER_PARTITION, table.ids.length)));
+            }
+        }
+
+        ForkJoinPool pool = ForkJoinPoolFactory.getForkJoinPool();
+        int partitionsPerRound = Math.max(4 * pool.getParallelism(), tables.size());
+        try {
+            if (!writePartFiles) for (Table table: tables) table.channel = openFile(table.fileName, table.header);
+            for (int first = 0; first < partitions.size(); first += partitionsPerRound) {
+                List<Partition> round = partitions.subList(first, Math.min(first + partitionsPerRound, partitions.size()));
+                formatPartitions(round, pool);
+                for (Partition partition: round) {
+                    if (writePartFiles) {
+                        try (FileChannel channel = openFile(getPartFileName(partition), partition.table.header)) {
+                            partition.rows.writeTo(channel);
+                        }
+                    } else {
+                        partition.rows.writeTo(partition.table.channel);
+                    }
+                    partition.rows = null;
+                }
+            }
+        } finally {
+            for (Table table: tables) {
+                if (table.channel != null) table.channel.close();
+                table.channel = null;
+            }
+        }
+    }
+
+
+    private static int getPartitionCount(Table table) {
+        // every table has at least one partition, which ensures that a part file with the header is written
+        return Math.max((table.ids.length + ROWS_PER_PARTITION - 1) / ROWS_PER_PARTITION, 1);
+    }
+
+
+    private static void formatPartitions(List<Partition> partitions, ForkJoinPool pool) {
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        Function1<Partition, Void> partitionFormatter = new Function1<Partition, Void>() {
+            public Void apply(Partition partition) {
+                try {
+                    RowBuffer rows = new RowBuffer(64 * (partition.to - partition.from) + 64);
+                    for (int i = partition.from; i < partition.to; i++) {
+                        partition.table.formatter.formatRow(partition.table.ids[i], rows);
+                        rows.endRow();
+                    }
+                    partition.rows = rows;
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+                return null;
+            }
+        };
+        IteratorAction<Partition> itTask = new IteratorAction<>(partitions, partitionFormatter);
+        pool.execute(itTask);
+        itTask.waitForCompletion();
+        if (failure.get() != null) throw failure.get();
+    }
+
+
+    private static String getPartFileName(Partition partition) {
+        // file.csv is split into file_part1.csv, file_part2.csv, ...
+        String fileName = partition.table.fileName;
+        int extension = fileName.lastIndexOf('.');
+        if (extension < 0 || extension < fileName.lastIndexOf('/')) extension = fileName.length();
+        return fileName.substring(0, extension) + "_part" + (partition.number + 1) + fileName.substring(extension);
+    }
+
+
+    private static FileChannel openFile(String fileName, String header) throws IOException {
+        FileChannel channel = new FileOutputStream(fileName, false).getChannel();
+        RowBuffer headerRow = new RowBuffer(header.length() + 2);
+        headerRow.append(header);
+        headerRow.endRow();
+        headerRow.writeTo(channel);
+        return channel;
+    }
+
+
+    /**
+     * Growing byte buffer that holds formatted rows. Text is encoded with the default charset and rows end with the line
+     * separator of the platform, like the output of a PrintWriter.
+     **/
+    public static class RowBuffer {
+
+        private static final Charset CHARSET = Charset.defaultCharset();
+        private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(CHARSET);
+        private static final byte[] MIN_INT = String.valueOf(Integer.MIN_VALUE).getBytes(CHARSET);
+
+        private byte[] bytes;
+        private int length = 0;
+
+        private RowBuffer(int initialCapacity) {
+            bytes = new byte[Math.max(initialCapacity, 16)];
+        }
+
+        public RowBuffer append(int value) {
+            // format like Integer.toString() without creating a String
+            if (value == Integer.MIN_VALUE) return append(MIN_INT);
+            ensureCapacity(11);
+            if (value < 0) {
+                bytes[length++] = '-';
+                value = -value;
+            }
+            int digits = 1;
+            for (int rest = value / 10; rest != 0; rest /= 10) digits++;
+            int pos = length + digits;
+            do {
+                bytes[--pos] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value != 0);
+            length += digits;
+            return this;
+        }
+
+        public RowBuffer append(char value) {
+            // only for ASCII characters such as separators and quotes
+            ensureCapacity(1);
+            bytes[length++] = (byte) value;
+            return this;
+        }
+
+        public RowBuffer append(float value) {
+            return append(String.valueOf(value));
+        }
+
+        public RowBuffer append(String value) {
+            return append(value.getBytes(CHARSET));
+        }
+
+        public RowBuffer append(Object value) {
+            return append(String.valueOf(value));
+        }
+
+        private RowBuffer append(byte[] value) {
+            ensureCapacity(value.length);
+            System.arraycopy(value, 0, bytes, length, value.length);
+            length += value.length;
+            return this;
+        }
+
+        private void endRow() {
+            append(LINE_SEPARATOR);
+        }
+
+        private void ensureCapacity(int additionalBytes) {
+            if (length + additionalBytes > bytes.length)
+                bytes = Arrays.copyOf(bytes, Math.max(length + additionalBytes, bytes.length + (bytes.length >> 1)));
+        }
+
+        private void writeTo(FileChannel channel) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+    }
+}
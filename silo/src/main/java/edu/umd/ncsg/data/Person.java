@@ -20,81 +20,122 @@ import org.apache.log4j.Logger;
 
 import java.io.PrintWriter;
 import java.util.*;
-import java.io.Serializable;
 
 /**
  * @author Greg Erhardt 
  * Created on Dec 2, 2009
  *
  */
-public class Person implements Serializable {
+public class Person {
 
     static Logger logger = Logger.getLogger(Person.class);
 
-    private static final Map<Integer,Person> personMap = new HashMap<>();
+    private static PersonStore store = new PersonStore(1000);
+    private static final PersonType[] personTypes = PersonType.values();
+    private static final PersonRole[] personRoles = PersonRole.values();
+    private static final Race[] races = Race.values();
     // Note: if attributes are edited, remember to edit attributes for inmigrants in \relocation\InOutMigration\setupInOutMigration.java and \relocation\InOutMigration\inmigrateHh.java as well
-    int id;
-	int hhid;
-	int age;
-	int gender;
-	Race race;
-	int occupation;
-    int workplace;
-	int income;
-	Household hh;
-	PersonType type;
-    PersonRole role;
+    // Attributes are stored in PersonStore, a Person object is only a view on the slot of this person
+    private final int id;
+    private final int slot;
 //    private Lock lock = new ReentrantLock();
 
 
 
     public Person(int id, int hhid, int age, int gender, Race race, int occupation, int workplace, int income) {
 		this.id = id;
-		this.hhid = hhid; 
-		this.age = age; 
-		this.gender = gender; 
-		this.race = race;
-		this.occupation = occupation;
-        this.workplace = workplace;
-		this.income = income; 
-        this.hh = Household.getHouseholdFromId(hhid);
+        this.slot = store.add(id);
+		store.hhId[slot] = hhid;
+		store.age[slot] = age;
+		store.gender[slot] = (byte) gender;
+		store.race[slot] = race == null ? -1 : (byte) race.ordinal();
+		store.occupation[slot] = (byte) occupation;
+        store.workplace[slot] = workplace;
+		store.income[slot] = income;
+        store.role[slot] = -1;
 		setType(age, gender);
-        personMap.put(id,this);
     }
-    
+
+
+    private Person(int id, int slot) {
+        // view on existing person
+        this.id = id;
+        this.slot = slot;
+    }
+
+
     public static Person getPersonFromId(int id) {
-        return personMap.get(id);
+        int slot = store.getSlot(id);
+        if (slot < 0) return null;
+        return new Person(id, slot);
+    }
+
+    static int getIncomeOfPerson(int id) {
+        // read income from the store without creating a view, used by household loops over member ids
+        return store.income[store.getSlot(id)];
+    }
+
+    static int getOccupationOfPerson(int id) {
+        return store.occupation[store.getSlot(id)];
     }
 
     public static void removePerson(int id) {
-        personMap.remove(id);
+        store.remove(id);
     }
 
     public static int getPersonCount() {
-        return personMap.size();
+        return store.size();
     }
 
 
     public static Collection<Person> getPersons() {
-//        Collection<Person> persons = null;
-//        for (Person person : persons) {
-//        }
-//
-        return personMap.values();
+        // live collection of all persons in ascending order of their ids, iterating does not copy the registry and
+        // persons removed during a pass are skipped
+        return new AbstractCollection<Person>() {
+            @Override
+            public Iterator<Person> iterator() {
+                return new EntityStore.LiveIterator<Person>(store) {
+                    @Override
+                    protected Person getView(int id, int slot) {
+                        return new Person(id, slot);
+                    }
+                };
+            }
+            @Override
+            public int size() {
+                return store.size();
+            }
+        };
+    }
+
+
+    public static PersonStore getPersonStore() {
+        return store;
+    }
+
+
+    public static void setPersonStore (PersonStore personStore) {
+        // replace all persons, used when reading persons from a binary file
+        store = personStore;
     }
 
 
-    public static void savePersons (Person[] pps) {
-        for (Person pp: pps) personMap.put(pp.getId(), pp);
+    public static void recycleRemovedPersons() {
+        // slots of persons that were removed may be reused from now on
+        store.recycleReleasedSlots();
     }
 
 
     public static Person[] getPersonArray() {
-        return personMap.values().toArray(new Person[personMap.size()]);
+        int[] ids = store.getIds();
+        Person[] pps = new Person[ids.length];
+        for (int i = 0; i < ids.length; i++) pps[i] = new Person(ids[i], store.getSlot(ids[i]));
+        return pps;
     }
 
 
      public void setType (int age, int gender) {
+        PersonType type;
         if (gender == 1) {
         if (age==0) type = PersonType.menAge0;
         else if (age<=4) type = PersonType.menAge1to4;
@@ -142,33 +183,33 @@ public class Person implements Serializable {
             else if (age<=99) type = PersonType.womenAge95to99;
             else type = PersonType.womenAge100plus;
         }
+        store.type[slot] = (byte) type.ordinal();
     }
 
 
     public void setHhId(int hhId) {
-        this.hhid = hhId;
-        this.hh = Household.getHouseholdFromId(hhId);
+        store.hhId[slot] = hhId;
     }
 
     public void setRole(PersonRole pr) {
-        this.role = pr;
+        store.role[slot] = pr == null ? -1 : (byte) pr.ordinal();
     }
 
     public void setAge(int newAge) {
-        this.age = newAge;
+        store.age[slot] = newAge;
     }
 
     public void setIncome (int newIncome) {
-        this.income = newIncome;
-        Household.getHouseholdFromId(hhid).setType();
+        store.income[slot] = newIncome;
+        Household.getHouseholdFromId(getHhId()).setType();
     }
 
     public void setWorkplace(int newWorkplace) {
-        this.workplace = newWorkplace;
+        store.workplace[slot] = newWorkplace;
     }
 
     public void setOccupation(int newOccupation) {
-        this.occupation = newOccupation;
+        store.occupation[slot] = (byte) newOccupation;
     }
 
 //    public Lock getLock () {
@@ -178,30 +219,30 @@ public class Person implements Serializable {
 
     public void logAttributes () {
         logger.info("Attributes of person " + id);
-        logger.info("Household id         " + hhid);
-        logger.info("Age                  " + age);
-        logger.info("Gender (1 m, 2 f)    " + gender);
-        logger.info("Role in household    " + role);
-        logger.info("Race                 " + race);
-        logger.info("Occupation           " + occupation);
-        logger.info("Workplace ID         " + workplace);
-        logger.info("Income               " + income);
-        logger.info("Person type          " + type.toString());
-        logger.info("Person role          " + role.toString());
+        logger.info("Household id         " + getHhId());
+        logger.info("Age                  " + getAge());
+        logger.info("Gender (1 m, 2 f)    " + getGender());
+        logger.info("Role in household    " + getRole());
+        logger.info("Race                 " + getRace());
+        logger.info("Occupation           " + getOccupation());
+        logger.info("Workplace ID         " + getWorkplace());
+        logger.info("Income               " + getIncome());
+        logger.info("Person type          " + getType().toString());
+        logger.info("Person role          " + getRole().toString());
     }
 
 
     public void logAttributes (PrintWriter pw) {
         pw.println ("Attributes of person " + id);
-        pw.println ("Household id         " + hhid);
-        pw.println ("Age                  " + age);
-        pw.println ("Gender (1 m, 2 f)    " + gender);
-        pw.println ("Role in household    " + role);
-        pw.println ("Race                 " + race);
-        pw.println ("Occupation           " + occupation);
-        pw.println ("Workplace ID         " + workplace);
-        pw.println ("Income               " + income);
-        pw.println ("Person type          " + type.toString());
+        pw.println ("Household id         " + getHhId());
+        pw.println ("Age                  " + getAge());
+        pw.println ("Gender (1 m, 2 f)    " + getGender());
+        pw.println ("Role in household    " + getRole());
+        pw.println ("Race                 " + getRace());
+        pw.println ("Occupation           " + getOccupation());
+        pw.println ("Workplace ID         " + getWorkplace());
+        pw.println ("Income               " + getIncome());
+        pw.println ("Person type          " + getType().toString());
         // cannot log person role here because when persons are read, the role is not defined yet.
     }
 
@@ -211,54 +252,57 @@ public class Person implements Serializable {
 	}
 	
 	public int getHomeTaz() {
-		return Household.getHouseholdFromId(hhid).getHomeZone();
+		return Household.getHouseholdFromId(getHhId()).getHomeZone();
 	}
 	
 	public int getAge() {
-		return age; 
+		return store.age[slot];
 	}
 
     public int getGender() {
-        return gender;
+        return store.gender[slot];
     }
 
     public int getHhId() {
-        return hhid;
+        return store.hhId[slot];
     }
 
     public Race getRace() {
-        return race;
+        byte r = store.race[slot];
+        return r < 0 ? null : races[r];
     }
 
     public int getOccupation() {
-        return occupation;
+        return store.occupation[slot];
     }
 
     public int getIncome() {
-        return income;
+        return store.income[slot];
     }
 
     public PersonType getType() {
-		return type;
+		return personTypes[store.type[slot]];
 	}
 
     public PersonRole getRole() {
-		return role;
+        byte r = store.role[slot];
+		return r < 0 ? null : personRoles[r];
 	}
 
     public int getWorkplace() {
-        return workplace;
+        return store.workplace[slot];
     }
 
     public void quitJob (boolean makeJobAvailableToOthers) {
         // Person quits job and the job is added to the vacantJobList
         // <makeJobAvailableToOthers> is false if this job disappears from the job market
+        int workplace = getWorkplace();
         Job jb = Job.getJobFromId(workplace);
         if (makeJobAvailableToOthers) JobDataManager.addJobToVacancyList(jb.getZone(), workplace);
         jb.setWorkerID(-1);
-        workplace = -1;
-        occupation = 2;
-        income = (int) (income * 0.6 + 0.5);  //  todo: think about smarter retirement/social welfare algorithm to adjust income after employee leaves work.
+        store.workplace[slot] = -1;
+        store.occupation[slot] = 2;
+        store.income[slot] = (int) (getIncome() * 0.6 + 0.5);  //  todo: think about smarter retirement/social welfare algorithm to adjust income after employee leaves work.
     }
 
 }
@@ -0,0 +1,87 @@
+package edu.umd.ncsg.data;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Columnar storage of all persons, Person objects are lightweight views on one slot of these columns
+ **/
+
+public class PersonStore extends EntityStore {
+
+    private static final long serialVersionUID = 1L;
+
+    int[] hhId;
+    int[] age;
+    byte[] gender;
+    byte[] race;          // ordinal of Race, -1 if undefined
+    byte[] occupation;
+    int[] workplace;
+    int[] income;
+    byte[] type;          // ordinal of PersonType, -1 if undefined
+    byte[] role;          // ordinal of PersonRole, -1 if undefined
+
+
+    public PersonStore(int initialCapacity) {
+        super(initialCapacity);
+        int capacity = getCapacity();
+        hhId = new int[capacity];
+        age = new int[capacity];
+        gender = new byte[capacity];
+        race = new byte[capacity];
+        occupation = new byte[capacity];
+        workplace = new int[capacity];
+        income = new int[capacity];
+        type = new byte[capacity];
+        role = new byte[capacity];
+    }
+
+
+    @Override
+    protected void growColumns(int capacity) {
+        hhId = Arrays.copyOf(hhId, capacity);
+        age = Arrays.copyOf(age, capacity);
+        gender = Arrays.copyOf(gender, capacity);
+        race = Arrays.copyOf(race, capacity);
+        occupation = Arrays.copyOf(occupation, capacity);
+        workplace = Arrays.copyOf(workplace, capacity);
+        income = Arrays.copyOf(income, capacity);
+        type = Arrays.copyOf(type, capacity);
+        role = Arrays.copyOf(role, capacity);
+    }
+
+
+    void writeColumns(ColumnarBinaryFile.Writer out) throws IOException {
+        // write all persons in ascending order of their ids
+        int[] ids = getIds();
+        int[] slots = getSlots(ids);
+        out.startSection("persons", ids.length, 10);
+        out.writeInts("id", ids);
+        out.writeInts("hhId", gather(hhId, slots));
+        out.writeInts("age", gather(age, slots));
+        out.writeBytes("gender", gather(gender, slots));
+        out.writeBytes("race", gather(race, slots));
+        out.writeBytes("occupation", gather(occupation, slots));
+        out.writeInts("workplace", gather(workplace, slots));
+        out.writeInts("income", gather(income, slots));
+        out.writeBytes("type", gather(type, slots));
+        out.writeBytes("role", gather(role, slots));
+    }
+
+
+    static PersonStore readColumns(ColumnarBinaryFile.Reader in) throws IOException {
+        int count = in.startSection("persons");
+        PersonStore store = new PersonStore(count);
+        store.addInOrder(in.readInts("id", new int[count]));
+        in.readInts("hhId", store.hhId);
+        in.readInts("age", store.age);
+        in.readBytes("gender", store.gender);
+        in.readBytes("race", store.race);
+        in.readBytes("occupation", store.occupation);
+        in.readInts("workplace", store.workplace);
+        in.readInts("income", store.income);
+        in.readBytes("type", store.type);
+        in.readBytes("role", store.role);
+        return store;
+    }
+}
@@ -1,7 +1,6 @@
 package edu.umd.ncsg.data;
 
 import edu.umd.ncsg.SiloUtil;
-import edu.umd.ncsg.events.IssueCounter;
 import org.apache.log4j.Logger;
 import com.pb.common.util.ResourceUtil;
 import com.pb.common.datafile.TableDataSet;
@@ -43,9 +42,7 @@ public class RealEstateDataManager {
     public static int rentCategories;
     private static HashMap<Integer, float[]> ddPriceByHhType;
     private static int[] dwellingsByRegion;
-    private static int[][] vacDwellingsByRegion;
-    private static int[] vacDwellingsByRegionPos;
-    private static int numberOfStoredVacantDD;
+    private static VacancyIndex vacantDwellings;
     private double[] avePrice;
     private double[] aveVac;
     private static float[] medianRent;
@@ -72,80 +69,76 @@ public class RealEstateDataManager {
 
         logger.info("Reading dwelling micro data from ascii file");
         int year = SiloUtil.getStartYear();
-        String fileName = SiloUtil.baseDirectory + ResourceUtil.getProperty(rb, PROPERTIES_DD_FILE_ASCII) + "_" + year + ".csv";
+        final String fileName = SiloUtil.baseDirectory + ResourceUtil.getProperty(rb, PROPERTIES_DD_FILE_ASCII) + "_" + year + ".csv";
 
-        String recString = "";
         int recCount = 0;
         try {
-            BufferedReader in = new BufferedReader(new FileReader(fileName));
-            recString = in.readLine();
+            ParallelCsvReader reader = new ParallelCsvReader(fileName);
 
             // read header
-            String[] header = recString.split(",");
-            int posId      = SiloUtil.findPositionInArray("id", header);
-            int posZone    = SiloUtil.findPositionInArray("zone",header);
-            int posHh      = SiloUtil.findPositionInArray("hhId",header);
-            int posType    = SiloUtil.findPositionInArray("type",header);
-            int posRooms   = SiloUtil.findPositionInArray("bedrooms",header);
-            int posQuality = SiloUtil.findPositionInArray("quality",header);
-            int posCosts   = SiloUtil.findPositionInArray("monthlyCost",header);
-            int posRestr   = SiloUtil.findPositionInArray("restriction",header);
-            int posYear    = SiloUtil.findPositionInArray("yearBuilt",header);
-
-            // read line
-            while ((recString = in.readLine()) != null) {
-                recCount++;
-                String[] lineElements = recString.split(",");
-                int id        = Integer.parseInt(lineElements[posId]);
-                int zone      = Integer.parseInt(lineElements[posZone]);
-                int hhId      = Integer.parseInt(lineElements[posHh]);
-                String tp     = lineElements[posType].replace("\"", "");
-                DwellingType type = DwellingType.valueOf(tp);
-                int price     = Integer.parseInt(lineElements[posCosts]);
-                int area      = Integer.parseInt(lineElements[posRooms]);
-                int quality   = Integer.parseInt(lineElements[posQuality]);
-                float restrict  = Float.parseFloat(lineElements[posRestr]);
-                int yearBuilt = Integer.parseInt(lineElements[posYear]);
-                new Dwelling(id, zone, hhId, type, area, quality, price, restrict, yearBuilt);   // this automatically puts it in id->dwelling map in Dwelling class
-                if (id == SiloUtil.trackDd) {
-                    SiloUtil.trackWriter.println("Read dwelling with following attributes from " + fileName);
-                    Dwelling.getDwellingFromId(id).logAttributes(SiloUtil.trackWriter);
+            String[] header = reader.getHeader();
+            final int posId      = SiloUtil.findPositionInArray("id", header);
+            final int posZone    = SiloUtil.findPositionInArray("zone",header);
+            final int posHh      = SiloUtil.findPositionInArray("hhId",header);
+            final int posType    = SiloUtil.findPositionInArray("type",header);
+            final int posRooms   = SiloUtil.findPositionInArray("bedrooms",header);
+            final int posQuality = SiloUtil.findPositionInArray("quality",header);
+            final int posCosts   = SiloUtil.findPositionInArray("monthlyCost",header);
+            final int posRestr   = SiloUtil.findPositionInArray("restriction",header);
+            final int posYear    = SiloUtil.findPositionInArray("yearBuilt",header);
+
+            // reserve space for all dwellings, then read lines in parallel
+            recCount = reader.countRecords();
+            Dwelling.getDwellingStore().reserve(recCount, -1);
+            reader.read(new ParallelCsvReader.RecordHandler() {
+                public void processRecord(ParallelCsvReader.Record record) {
+                    int id        = record.getInt(posId);
+                    int zone      = record.getInt(posZone);
+                    int hhId      = record.getInt(posHh);
+                    String tp     = record.getString(posType).replace("\"", "");
+                    DwellingType type = DwellingType.valueOf(tp);
+                    int price     = record.getInt(posCosts);
+                    int area      = record.getInt(posRooms);
+                    int quality   = record.getInt(posQuality);
+                    float restrict  = record.getFloat(posRestr);
+                    int yearBuilt = record.getInt(posYear);
+                    new Dwelling(id, zone, hhId, type, area, quality, price, restrict, yearBuilt);   // this automatically puts it in id->dwelling map in Dwelling class
+                    if (id == SiloUtil.trackDd) {
+                        SiloUtil.trackWriter.println("Read dwelling with following attributes from " + fileName);
+                        Dwelling.getDwellingFromId(id).logAttributes(SiloUtil.trackWriter);
+                    }
                 }
-            }
+            });
         } catch (IOException e) {
             logger.fatal("IO Exception caught reading synpop dwelling file: " + fileName);
-            logger.fatal("recCount = " + recCount + ", recString = <" + recString + ">");
+            logger.fatal("recCount = " + recCount + ", " + e);
         }
+        // dwellings were added by several threads, summarize them again when aggregates are queried next time
+        DwellingAggregates.reset();
         logger.info("Finished reading " + recCount + " dwellings.");
     }
 
-
     public void identifyVacantDwellings() {
         // walk through all dwellings and identify vacant dwellings (one-time task at beginning of model run only)
 
         int highestRegion = SiloUtil.getHighestVal(geoData.getRegionList());
-        numberOfStoredVacantDD = ResourceUtil.getIntegerProperty(rb, PROPERTIES_MAX_NUM_VAC_DD);
+        int initialCapacity = ResourceUtil.getIntegerProperty(rb, PROPERTIES_MAX_NUM_VAC_DD);
         dwellingsByRegion = new int[highestRegion + 1];
-        vacDwellingsByRegion = new int[highestRegion + 1][numberOfStoredVacantDD + 1];
-        vacDwellingsByRegion = SiloUtil.setArrayToValue(vacDwellingsByRegion, 0);
-        vacDwellingsByRegionPos = new int[highestRegion + 1];
-        vacDwellingsByRegionPos = SiloUtil.setArrayToValue(vacDwellingsByRegionPos, 0);
+        vacantDwellings = new VacancyIndex(highestRegion, initialCapacity);
 
         logger.info("  Identifying vacant dwellings");
-        for (Dwelling dd : Dwelling.getDwellingArray()) {
+        for (Dwelling dd : Dwelling.getDwellings()) {
             if (dd.getResidentId() == -1) {
                 int dwellingId = dd.getId();
                 int region = geoData.getRegionOfZone(dd.getZone());
                 dwellingsByRegion[region]++;
-                vacDwellingsByRegion[region][vacDwellingsByRegionPos[region]] = dwellingId;
-                if (vacDwellingsByRegionPos[region] < numberOfStoredVacantDD) vacDwellingsByRegionPos[region]++;
-                if (vacDwellingsByRegionPos[region] >= numberOfStoredVacantDD) IssueCounter.countExcessOfVacantDwellings(region);
+                vacantDwellings.add(region, dwellingId);
                 if (dwellingId == SiloUtil.trackDd)
                     SiloUtil.trackWriter.println("Added dwelling " + dwellingId + " to list of vacant dwelling.");
             }
         }
 //        for (int region: SiloUtil.getRegionList()) System.out.println ("Region " + region + " has vacant dwellings: " +
-//                (vacDwellingsByRegionPos[region]));
+//                (vacantDwellings.size(region)));
 //        System.exit(1);
     }
 
@@ -155,12 +148,9 @@ public class RealEstateDataManager {
 
         String fileName = SiloUtil.baseDirectory + ResourceUtil.getProperty(appRb, PROPERTIES_DD_FILE_BIN);
         logger.info("  Writing dwelling data to binary file.");
-        Object[] data = Dwelling.getDwellings().toArray(new Dwelling[Dwelling.getDwellingCount()]);
-        try {
-            File fl = new File(fileName);
-            ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(fl));
-            out.writeObject(data);
-            out.close();
+        boolean compress = ResourceUtil.getBooleanProperty(appRb, ColumnarBinaryFile.PROPERTIES_COMPRESS_BIN_FILES, false);
+        try (ColumnarBinaryFile.Writer out = new ColumnarBinaryFile.Writer(fileName, compress)) {
+            Dwelling.getDwellingStore().writeColumns(out);
         } catch (Exception e) {
             logger.error ("Error saving to binary file " + fileName + ". Object not saved.\n" + e);
         }
@@ -173,11 +163,18 @@ public class RealEstateDataManager {
         String fileName = SiloUtil.baseDirectory + ResourceUtil.getProperty(rb, PROPERTIES_DD_FILE_BIN);
         logger.info("  Reading dwelling data from binary file.");
         try {
-            ObjectInputStream in = new ObjectInputStream(new FileInputStream(new File(fileName)));
-            Object data = in.readObject();
-            Dwelling.saveDwellings((Dwelling[]) data);
+            if (!ColumnarBinaryFile.isColumnarFile(fileName)) {
+                // files of earlier versions contain serialized Dwelling objects that cannot be converted
+                logger.error("Binary file " + fileName + " was written by an earlier version of SILO and cannot be " +
+                        "read. Read the dwelling data from the ascii file and write a new binary file.");
+                System.exit(1);
+            }
+            try (ColumnarBinaryFile.Reader in = new ColumnarBinaryFile.Reader(fileName)) {
+                Dwelling.setDwellingStore(DwellingStore.readColumns(in));
+            }
         } catch (Exception e) {
-            logger.error ("Error reading from binary file " + fileName + ". Object not read.\n" + e);
+            logger.error ("Error reading from binary file " + fileName + ". Program exits.\n" + e);
+            System.exit(1);
         }
         logger.info("  Finished reading " + Dwelling.getDwellingCount() + " dwellings.");
     }
@@ -247,7 +244,7 @@ public class RealEstateDataManager {
         // identify how much rent (specified by 25 rent categories) is paid by households of each income category
         rentCategories = 25;
         float[][] priceByIncome = new float[SiloUtil.incBrackets.length + 1][rentCategories + 1];
-        for (Dwelling dd: Dwelling.getDwellingArray()) {
+        for (Dwelling dd: Dwelling.getDwellings()) {
             highestDwellingIdInUse = Math.max(highestDwellingIdInUse, dd.getId());
             largestNoBedrooms = Math.max(largestNoBedrooms, dd.getBedrooms());
             int hhId = dd.getResidentId();
@@ -282,6 +279,27 @@ public class RealEstateDataManager {
     }
 
 
+    public void writeCheckpoint(ObjectOutputStream out) throws IOException {
+        // state of dwelling market that is carried over from one year to the next besides the dwellings themselves
+        out.writeInt(highestDwellingIdInUse);
+        out.writeObject(dwellingsByQuality);
+        out.writeObject(dwellingsByRegion);
+        out.writeObject(vacantDwellings);
+        out.writeObject(landUse);
+        out.writeObject(developmentCapacity);
+    }
+
+
+    public void readCheckpoint(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        highestDwellingIdInUse = in.readInt();
+        dwellingsByQuality = (int[]) in.readObject();
+        dwellingsByRegion = (int[]) in.readObject();
+        vacantDwellings = (VacancyIndex) in.readObject();
+        landUse = (TableDataSet) in.readObject();
+        developmentCapacity = (TableDataSet) in.readObject();
+    }
+
+
     public static int getNextDwellingId() {
         // increase highestDwellingIdInUse by 1 and return value
         highestDwellingIdInUse++;
@@ -306,7 +324,7 @@ public class RealEstateDataManager {
         // calculate median rent by MSA
 
         HashMap<Integer, ArrayList<Integer>> rentHashMap = new HashMap<>();
-        for (Dwelling dd: Dwelling.getDwellingArray()) {
+        for (Dwelling dd: Dwelling.getDwellings()) {
             int dwellingMSA = geoData.getMSAOfZone(dd.getZone());
             if (rentHashMap.containsKey(dwellingMSA)) {
                 ArrayList<Integer> rents = rentHashMap.get(dwellingMSA);
@@ -338,7 +356,7 @@ public class RealEstateDataManager {
             summarizeData.resultFile(row);
         }
         int[] ddByType = new int[DwellingType.values().length];
-        for (Dwelling dd: Dwelling.getDwellingArray()) ddByType[dd.getType().ordinal()]++;
+        for (Dwelling dd: Dwelling.getDwellings()) ddByType[dd.getType().ordinal()]++;
         for (DwellingType dt: DwellingType.values()) {
             summarizeData.resultFile("CountOfDD,"+dt.toString()+","+ddByType[dt.ordinal()]);
         }
@@ -371,7 +389,7 @@ public class RealEstateDataManager {
         summarizeData.resultFile(header);
         int[][] rentByIncome = new int[10][10];
         int[] rents = new int[10];
-        for (Household hh: Household.getHouseholdArray()) {
+        for (Household hh: Household.getHouseholds()) {
             int hhInc = hh.getHhIncome();
             int rent = Dwelling.getDwellingFromId(hh.getDwellingId()).getPrice();
             int incCat = Math.min((hhInc / 10000), 9);
@@ -410,37 +428,30 @@ public class RealEstateDataManager {
 
     public static int[] getListOfVacantDwellingsInRegion (int region) {
         // return array with IDs of vacant dwellings in region
+        return vacantDwellings.getIds(region);
+    }
 
-        int[] vacancies = new int[vacDwellingsByRegionPos[region]];
-        System.arraycopy(vacDwellingsByRegion[region], 0, vacancies, 0, vacDwellingsByRegionPos[region]);
-        return vacancies;
+
+    public static int[] sampleVacantDwellingsInRegion (int region, int numberOfDwellings, Random rand) {
+        // return up to numberOfDwellings different vacant dwellings in region, drawn with equal probability
+        return vacantDwellings.sample(region, numberOfDwellings, rand);
     }
 
 
     public static int getNumberOfVacantDDinRegion (int region) {
-        return Math.max(vacDwellingsByRegionPos[region] - 1, 0);
+        return Math.max(vacantDwellings.size(region) - 1, 0);
     }
 
 
     public static void removeDwellingFromVacancyList (int ddId) {
         // remove dwelling with ID ddId from list of vacant dwellings
 
-        boolean found = false;
-
-        // todo: when selecting a vacant dwelling, I should be able to store the index of this dwelling in the vacDwellingByRegion array, which should make it faster to remove the vacant dwelling from this array.
-        int region = geoData.getRegionOfZone(Dwelling.getDwellingFromId(ddId).getZone());
-        for (int i = 0; i < vacDwellingsByRegionPos[region]; i++) {
-            if (vacDwellingsByRegion[region][i] == ddId) {
-                vacDwellingsByRegion[region][i] = vacDwellingsByRegion[region][vacDwellingsByRegionPos[region] - 1];
-                vacDwellingsByRegion[region][vacDwellingsByRegionPos[region] - 1] = 0;
-                vacDwellingsByRegionPos[region] -= 1;
-                if (ddId == SiloUtil.trackDd) SiloUtil.trackWriter.println("Removed dwelling " + ddId +
-                        " from list of vacant dwellings.");
-                found = true;
-                break;
-            }
+        if (vacantDwellings.remove(ddId)) {
+            if (ddId == SiloUtil.trackDd) SiloUtil.trackWriter.println("Removed dwelling " + ddId +
+                    " from list of vacant dwellings.");
+        } else {
+            logger.warn("Consistency error: Could not find vacant dwelling " + ddId + " in vacantDwellings.");
         }
-        if (!found) logger.warn("Consistency error: Could not find vacant dwelling " + ddId + " in vacDwellingsByRegion.");
     }
 
 
@@ -448,9 +459,7 @@ public class RealEstateDataManager {
         // add dwelling to vacancy list
 
         int region = geoData.getRegionOfZone(dd.getZone());
-        vacDwellingsByRegion[region][vacDwellingsByRegionPos[region]] = dd.getId();
-        if (vacDwellingsByRegionPos[region] < numberOfStoredVacantDD) vacDwellingsByRegionPos[region]++;
-        if (vacDwellingsByRegionPos[region] >= numberOfStoredVacantDD) IssueCounter.countExcessOfVacantDwellings(region);
+        vacantDwellings.add(region, dd.getId());
         if (dd.getId() == SiloUtil.trackDd) SiloUtil.trackWriter.println("Added dwelling " + dd.getId() +
                 " to list of vacant dwellings.");
     }
@@ -462,14 +471,13 @@ public class RealEstateDataManager {
         int[][] vacOcc = SiloUtil.setArrayToValue(new int[2][DwellingType.values().length], 0);
         long[] price = SiloUtil.setArrayToValue(new long[DwellingType.values().length], 0);
 
-        for (Dwelling dd: Dwelling.getDwellings()) {
-            int dto = dd.getType().ordinal();
-            price[dto] += dd.getPrice();
-
-            if (dd.getResidentId() > 0) {
-                vacOcc[1][dto] ++;
-            } else {
-                vacOcc[0][dto]++;
+        for (DwellingType dt: DwellingType.values()) {
+            int dto = dt.ordinal();
+            for (int region: geoData.getRegionList()) {
+                price[dto] += DwellingAggregates.getPriceSumByRegion(dto, region);
+                vacOcc[1][dto] += DwellingAggregates.getOccupiedByRegion(dto, region);
+                vacOcc[0][dto] += DwellingAggregates.getCountByRegion(dto, region) -
+                        DwellingAggregates.getOccupiedByRegion(dto, region);
             }
         }
         aveVac = new double[DwellingType.values().length];
@@ -494,22 +502,14 @@ public class RealEstateDataManager {
         // calculate vacancy rate by region and dwelling type
 
         int[] regionList = geoData.getRegionList();
-        int[][][] vacOcc = SiloUtil.setArrayToValue(new int[2][DwellingType.values().length][SiloUtil.getHighestVal(regionList) + 1], 0);
-
-        for (Dwelling dd: Dwelling.getDwellings()) {
-            int dto = dd.getType().ordinal();
-            if (dd.getResidentId() > 0) {
-                vacOcc[1][dto][geoData.getRegionOfZone(dd.getZone())]++;
-            } else {
-                vacOcc[0][dto][geoData.getRegionOfZone(dd.getZone())]++;
-            }
-        }
         double[][] vacRate = new double[DwellingType.values().length][SiloUtil.getHighestVal(regionList) + 1];
         for (DwellingType dt: DwellingType.values()) {
             int dto = dt.ordinal();
-            for (int region: geoData.getRegionList()) {
-                if ((vacOcc[0][dto][region] + vacOcc[1][dto][region]) > 0) {
-                    vacRate[dto][region] = (double) vacOcc[0][dto][region] / (double) (vacOcc[0][dto][region] + vacOcc[1][dto][region]);
+            for (int region: regionList) {
+                int count = DwellingAggregates.getCountByRegion(dto, region);
+                if (count > 0) {
+                    int vacant = count - DwellingAggregates.getOccupiedByRegion(dto, region);
+                    vacRate[dto][region] = (double) vacant / (double) count;
                 } else {
                     vacRate[dto][region] = 0.;
                 }
@@ -541,8 +541,9 @@ public class RealEstateDataManager {
         int[][] dwellingCount =
                 SiloUtil.setArrayToValue(new int[DwellingType.values().length][SiloUtil.getHighestVal(regionList) + 1], 1);
 
-        for (Dwelling dd: Dwelling.getDwellings()) {
-            dwellingCount[dd.getType().ordinal()][geoData.getRegionOfZone(dd.getZone())] ++;
+        for (DwellingType dt: DwellingType.values()) {
+            int dto = dt.ordinal();
+            for (int region: regionList) dwellingCount[dto][region] += DwellingAggregates.getCountByRegion(dto, region);
         }
         return dwellingCount;
     }
@@ -0,0 +1,128 @@
+package edu.umd.ncsg.data;
+
+import com.pb.common.util.ResourceUtil;
+import edu.umd.ncsg.SiloModel;
+import edu.umd.ncsg.SiloUtil;
+import edu.umd.ncsg.events.IssueCounter;
+import edu.umd.ncsg.utils.RandomStream;
+import org.apache.log4j.Logger;
+
+import java.io.*;
+import java.util.Random;
+import java.util.ResourceBundle;
+
+/**
+ * Checkpoint of the complete simulation state at the end of a simulation period. A checkpoint for year t holds the
+ * state after changes from year t-1 to year t were simulated and allows to continue the run with year t. Households,
+ * persons, dwellings and jobs are written in the columnar binary format, all other state that is carried over from one
+ * year to the next is written with Java serialization. Plans that are drawn at the beginning of every year (couples
+ * to marry, persons to start or quit a job, new construction) are not part of the checkpoint, as they are recreated
+ * from the restored state.
+ **/
+
+public class SimulationCheckpoint {
+
+    static Logger logger = Logger.getLogger(SimulationCheckpoint.class);
+
+    public static final String PROPERTIES_WRITE_CHECKPOINTS = "write.checkpoints";
+    public static final String PROPERTIES_RESUME_FROM_YEAR  = "resume.from.year";
+
+    private static final int CHECKPOINT_VERSION = 4;
+
+
+    public static boolean isWritingCheckpoints(ResourceBundle rb) {
+        return ResourceUtil.getBooleanProperty(rb, PROPERTIES_WRITE_CHECKPOINTS, false);
+    }
+
+
+    public static int getResumeYear(ResourceBundle rb) {
+        // return year to continue simulation with, or -1 if the run starts in the start year
+        return ResourceUtil.getIntegerProperty(rb, PROPERTIES_RESUME_FROM_YEAR, -1);
+    }
+
+
+    private static String getFileName(int year, String extension) {
+        String directory = SiloUtil.baseDirectory + "scenOutput/" + SiloUtil.scenarioName + "/checkpoints";
+        SiloUtil.createDirectoryIfNotExistingYet(directory);
+        return directory + "/checkpoint_" + year + "." + extension;
+    }
+
+
+    public static void write(int year, HouseholdDataManager householdData, RealEstateDataManager realEstateData,
+                             JobDataManager jobData, Accessibility acc, long[][] timeCounter) {
+        // write state to continue simulation with year
+
+        logger.info("  Writing checkpoint for year " + year);
+        String microDataFile = getFileName(year, "bin");
+        String stateFile = getFileName(year, "state");
+        try {
+            try (ColumnarBinaryFile.Writer out = new ColumnarBinaryFile.Writer(microDataFile, false)) {
+                Household.getHouseholdStore().writeColumns(out);
+                Person.getPersonStore().writeColumns(out);
+                Dwelling.getDwellingStore().writeColumns(out);
+                Job.getJobStore().writeColumns(out);
+            }
+            try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(stateFile)))) {
+                out.writeInt(CHECKPOINT_VERSION);
+                out.writeInt(year);
+                out.writeObject(SiloModel.rand);
+                out.writeLong(RandomStream.getSeed());
+                householdData.writeCheckpoint(out);
+                realEstateData.writeCheckpoint(out);
+                jobData.writeCheckpoint(out);
+                acc.writeCheckpoint(out);
+                IssueCounter.writeCheckpoint(out);
+                out.writeObject(timeCounter);
+            }
+        } catch (IOException e) {
+            logger.error("Could not write checkpoint for year " + year + " to " + stateFile + ": " + e);
+        }
+    }
+
+
+    public static void read(int year, HouseholdDataManager householdData, RealEstateDataManager realEstateData,
+                            JobDataManager jobData, Accessibility acc, long[][] timeCounter) {
+        // restore state written by write() to continue simulation with year
+
+        logger.info("Resuming simulation from checkpoint for year " + year);
+        if (year <= SiloUtil.getStartYear() || year > SiloUtil.getEndYear()) {
+            logger.error("Cannot resume from year " + year + ", it needs to be after start year " +
+                    SiloUtil.getStartYear() + " and not after end year " + SiloUtil.getEndYear() + ".");
+            System.exit(1);
+        }
+        String microDataFile = getFileName(year, "bin");
+        String stateFile = getFileName(year, "state");
+        try {
+            try (ColumnarBinaryFile.Reader in = new ColumnarBinaryFile.Reader(microDataFile)) {
+                Household.setHouseholdStore(HouseholdStore.readColumns(in));
+                Person.setPersonStore(PersonStore.readColumns(in));
+                Dwelling.setDwellingStore(DwellingStore.readColumns(in));
+                Job.setJobStore(JobStore.readColumns(in));
+            }
+            try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(stateFile)))) {
+                int version = in.readInt();
+                if (version != CHECKPOINT_VERSION)
+                    throw new IOException("Checkpoint has version " + version + ", expected " + CHECKPOINT_VERSION);
+                int checkpointYear = in.readInt();
+                if (checkpointYear != year)
+                    throw new IOException("Checkpoint was written for year " + checkpointYear + ", expected " + year);
+                SiloModel.rand = (Random) in.readObject();
+                RandomStream.setSeed(in.readLong());
+                householdData.readCheckpoint(in);
+                realEstateData.readCheckpoint(in);
+                jobData.readCheckpoint(in);
+                acc.readCheckpoint(in);
+                IssueCounter.readCheckpoint(in);
+                long[][] savedTimeCounter = (long[][]) in.readObject();
+                for (int i = 0; i < Math.min(savedTimeCounter.length, timeCounter.length); i++)
+                    System.arraycopy(savedTimeCounter[i], 0, timeCounter[i], 0,
+                            Math.min(savedTimeCounter[i].length, timeCounter[i].length));
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            logger.error("Could not resume from checkpoint " + stateFile + ": " + e);
+            System.exit(1);
+        }
+        logger.info("  Restored " + Household.getHouseholdCount() + " households, " + Person.getPersonCount() +
+                " persons, " + Dwelling.getDwellingCount() + " dwellings and " + Job.getJobCount() + " jobs.");
+    }
+}
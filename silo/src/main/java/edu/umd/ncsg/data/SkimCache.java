@@ -0,0 +1,183 @@
+package edu.umd.ncsg.data;
+
+import com.pb.common.matrix.BinaryMatrixWriter;
+import com.pb.common.matrix.MappedMatrix;
+import com.pb.common.matrix.Matrix;
+import com.pb.common.matrix.MatrixException;
+import com.pb.common.util.ResourceUtil;
+import edu.umd.ncsg.SiloUtil;
+import omx.OmxFile;
+import omx.OmxMatrix;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.ResourceBundle;
+import java.util.zip.CRC32;
+
+/**
+ * Provides skims read from OMX files. Every skim is converted once into a matrix file of the BinaryMatrixWriter in the
+ * skim cache directory, which is memory-mapped afterwards as a read-only MappedMatrix, so that only rows that are
+ * actually used are paged in. A cache file is reused across years and model runs as long as its OMX file is unchanged,
+ * which is checked by file size and modification time, and by a checksum of the OMX file if only the modification time
+ * changed. Skims that were mapped once are reused by all later requests of the same run.
+ *
+ * Every cache file has a check file of HEADER_SIZE bytes (magic number, version, rows, columns, size, modification time
+ * and checksum of the OMX file in little-endian byte order). The check file is written after the matrix file is
+ * complete, a matrix file without check file is never used.
+ **/
+
+public class SkimCache {
+
+    static Logger logger = Logger.getLogger(SkimCache.class);
+
+    protected static final String PROPERTIES_USE_SKIM_CACHE       = "use.skim.cache";
+    protected static final String PROPERTIES_SKIM_CACHE_DIRECTORY = "skim.cache.directory";
+
+    private static final int MAGIC_NUMBER = 0x534b494d;    // "SKIM"
+    private static final int CACHE_VERSION = 2;
+    private static final int HEADER_SIZE = 64;
+
+    private static final HashMap<String, Matrix> mappedSkims = new HashMap<>();
+
+
+    public static boolean isEnabled(ResourceBundle rb) {
+        return ResourceUtil.getBooleanProperty(rb, PROPERTIES_USE_SKIM_CACHE, false);
+    }
+
+
+    public static Matrix getSkim(ResourceBundle rb, String omxFileName, String matrixName) {
+        // return skim matrixName of omxFileName, converting it into a cache file if necessary
+
+        String key = new File(omxFileName).getAbsolutePath() + "#" + matrixName;
+        synchronized (mappedSkims) {
+            if (mappedSkims.containsKey(key)) return mappedSkims.get(key);
+        }
+        String directory = SiloUtil.baseDirectory + ResourceUtil.getProperty(rb, PROPERTIES_SKIM_CACHE_DIRECTORY, "skims/cache");
+        SiloUtil.createDirectoryIfNotExistingYet(directory);
+        File cacheFile = new File(directory, getCacheFileName(omxFileName, matrixName));
+        File checkFile = new File(cacheFile.getPath() + ".check");
+        Matrix skim;
+        try {
+            if (!isCacheFileValid(cacheFile, checkFile, new File(omxFileName))) {
+                writeCacheFile(cacheFile, checkFile, omxFileName, matrixName);
+            } else {
+                logger.info("  Using cached skim " + matrixName + " of " + omxFileName);
+            }
+            skim = MappedMatrix.open(cacheFile, false);
+        } catch (IOException | MatrixException e) {
+            logger.error("Could not use skim cache file " + cacheFile + ", reading " + omxFileName + " instead: " + e);
+            skim = readOmxSkim(omxFileName, matrixName);
+        }
+        synchronized (mappedSkims) {
+            mappedSkims.put(key, skim);
+        }
+        return skim;
+    }
+
+
+    public static Matrix readOmxSkim(String fileName, String matrixName) {
+        // read one matrix of an OMX file and report time and size
+        long startTime = System.currentTimeMillis();
+        OmxFile omxFile = new OmxFile(fileName);
+        omxFile.openReadOnly();
+        OmxMatrix<?, ?> omxMatrix = omxFile.getMatrix(matrixName);
+        Matrix skim = SiloUtil.convertOmxToMatrix(omxMatrix);
+        omxFile.close();
+        float seconds = (System.currentTimeMillis() - startTime) / 1000f;
+        long bytes = 4L * skim.getRowCount() * skim.getColumnCount();
+        logger.info("  Read skim " + matrixName + " (" + skim.getRowCount() + " x " + skim.getColumnCount() + ", " +
+                SiloUtil.rounder(bytes / 1048576f, 1) + " MB) from " + fileName + " in " + SiloUtil.rounder(seconds, 2) +
+                " seconds");
+        return skim;
+    }
+
+
+    private static String getCacheFileName(String omxFileName, String matrixName) {
+        // OMX files of the same name in different directories may share one cache directory, therefore the name of
+        // the cache file includes a hash of the canonical path of the OMX file
+        File omxFile = new File(omxFileName);
+        String path;
+        try {
+            path = omxFile.getCanonicalPath();
+        } catch (IOException e) {
+            path = omxFile.getAbsolutePath();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(path.getBytes(StandardCharsets.UTF_8));
+        return omxFile.getName() + "." + String.format("%08x", crc.getValue()) + "." + matrixName + ".skim";
+    }
+
+
+    private static boolean isCacheFileValid(File cacheFile, File checkFile, File omxFile) throws IOException {
+        // check the check file against the OMX file. Files are opened read-only, so that cache directories without
+        // write access can be used. Only if the modification time of the OMX file changed but its checksum did not, the
+        // check file is updated with the new modification time if possible.
+        if (!cacheFile.exists() || !checkFile.exists() || checkFile.length() < HEADER_SIZE) return false;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        try (RandomAccessFile file = new RandomAccessFile(checkFile, "r")) {
+            file.getChannel().read(header, 0);
+        }
+        header.flip();
+        if (header.getInt() != MAGIC_NUMBER || header.getInt() != CACHE_VERSION) return false;
+        long rows = header.getInt();
+        long columns = header.getInt();
+        long omxSize = header.getLong();
+        long omxModified = header.getLong();
+        long omxChecksum = header.getLong();
+        if (cacheFile.length() < 4 * rows * columns || omxSize != omxFile.length()) return false;
+        if (omxModified == omxFile.lastModified()) return true;
+        if (omxChecksum != getChecksum(omxFile)) return false;
+        ByteBuffer modified = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        modified.putLong(omxFile.lastModified());
+        modified.flip();
+        try (RandomAccessFile file = new RandomAccessFile(checkFile, "rw")) {
+            file.getChannel().write(modified, 24);
+        } catch (IOException e) {
+            logger.info("  Could not update modification time in " + checkFile + ", checksum will be calculated again");
+        }
+        return true;
+    }
+
+
+    private static void writeCacheFile(File cacheFile, File checkFile, String omxFileName, String matrixName)
+            throws IOException {
+        // convert skim into cache file, the matrix is written under a temporary name and renamed when complete, and
+        // the check file is written last
+
+        Matrix skim = readOmxSkim(omxFileName, matrixName);
+        File omxFile = new File(omxFileName);
+        Files.deleteIfExists(checkFile.toPath());
+        File tempFile = new File(cacheFile.getPath() + ".tmp");
+        new BinaryMatrixWriter(tempFile).writeMatrix(skim);
+        Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC_NUMBER).putInt(CACHE_VERSION).putInt(skim.getRowCount()).putInt(skim.getColumnCount());
+        header.putLong(omxFile.length()).putLong(omxFile.lastModified()).putLong(getChecksum(omxFile));
+        header.rewind();
+        try (RandomAccessFile file = new RandomAccessFile(checkFile, "rw")) {
+            file.setLength(0);
+            while (header.hasRemaining()) file.getChannel().write(header);
+        }
+        logger.info("  Wrote skim cache file " + cacheFile);
+    }
+
+
+    private static long getChecksum(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            byte[] buffer = new byte[8 * 1024 * 1024];
+            int bytes;
+            while ((bytes = in.read(buffer)) > 0) crc.update(buffer, 0, bytes);
+        }
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,115 @@
+package edu.umd.ncsg.data;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Lists of vacant objects (dwellings or jobs) by region. Every object remembers its position in the list of its
+ * region, which allows to add and remove objects and to draw a uniformly distributed vacant object in constant time.
+ * Lists grow as needed.
+ **/
+
+public class VacancyIndex implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private int[][] idsByRegion;
+    private int[] sizeByRegion;
+    private int[] positionOfId;    // position of id in list of its region, -1 if id is not vacant
+    private int[] regionOfId;
+
+
+    public VacancyIndex(int highestRegion, int initialCapacityPerRegion) {
+        idsByRegion = new int[highestRegion + 1][Math.max(initialCapacityPerRegion, 1)];
+        sizeByRegion = new int[highestRegion + 1];
+        positionOfId = new int[0];
+        regionOfId = new int[0];
+    }
+
+
+    public boolean add(int region, int id) {
+        // add id to list of region, return false if id is listed already
+        if (contains(id)) return false;
+        if (id >= positionOfId.length) {
+            int oldLength = positionOfId.length;
+            int newLength = Math.max(id + 1, oldLength + (oldLength >> 1));
+            positionOfId = Arrays.copyOf(positionOfId, newLength);
+            Arrays.fill(positionOfId, oldLength, newLength, -1);
+            regionOfId = Arrays.copyOf(regionOfId, newLength);
+        }
+        int size = sizeByRegion[region];
+        if (size == idsByRegion[region].length)
+            idsByRegion[region] = Arrays.copyOf(idsByRegion[region], size + (size >> 1) + 1);
+        idsByRegion[region][size] = id;
+        positionOfId[id] = size;
+        regionOfId[id] = region;
+        sizeByRegion[region] = size + 1;
+        return true;
+    }
+
+
+    public boolean remove(int id) {
+        // remove id by moving the last id of its region into its position, return false if id was not listed
+        if (!contains(id)) return false;
+        int region = regionOfId[id];
+        int position = positionOfId[id];
+        int last = sizeByRegion[region] - 1;
+        int movedId = idsByRegion[region][last];
+        idsByRegion[region][position] = movedId;
+        positionOfId[movedId] = position;
+        idsByRegion[region][last] = 0;
+        positionOfId[id] = -1;
+        sizeByRegion[region] = last;
+        return true;
+    }
+
+
+    public boolean contains(int id) {
+        return id >= 0 && id < positionOfId.length && positionOfId[id] >= 0;
+    }
+
+
+    public int size(int region) {
+        return sizeByRegion[region];
+    }
+
+
+    public int get(int region, int position) {
+        return idsByRegion[region][position];
+    }
+
+
+    public int sample(int region, Random rand) {
+        // return uniformly drawn id of region, or -1 if region has no vacancies
+        int size = sizeByRegion[region];
+        if (size == 0) return -1;
+        return idsByRegion[region][rand.nextInt(size)];
+    }
+
+
+    public int[] sample(int region, int numberOfIds, Random rand) {
+        // return up to numberOfIds distinct ids of region drawn uniformly without replacement (Floyd's algorithm)
+        int size = sizeByRegion[region];
+        int n = Math.min(numberOfIds, size);
+        int[] positions = new int[n];
+        for (int i = 0; i < n; i++) {
+            int candidate = rand.nextInt(size - n + i + 1);
+            for (int j = 0; j < i; j++) {
+                if (positions[j] == candidate) {
+                    candidate = size - n + i;
+                    break;
+                }
+            }
+            positions[i] = candidate;
+        }
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) ids[i] = idsByRegion[region][positions[i]];
+        return ids;
+    }
+
+
+    public int[] getIds(int region) {
+        return Arrays.copyOf(idsByRegion[region], sizeByRegion[region]);
+    }
+}
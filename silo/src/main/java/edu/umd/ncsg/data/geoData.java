@@ -3,6 +3,7 @@ package edu.umd.ncsg.data;
 import com.pb.common.datafile.TableDataSet;
 import com.pb.common.util.ResourceUtil;
 import edu.umd.ncsg.SiloUtil;
+import org.apache.log4j.Logger;
 
 import java.util.HashMap;
 import java.util.ResourceBundle;
@@ -15,17 +16,26 @@ import java.util.ResourceBundle;
 
 public class geoData {
 
+    static Logger logger = Logger.getLogger(geoData.class);
+
     protected static final String PROPERTIES_ZONAL_DATA_FILE                   = "zonal.data.file";
     protected static final String PROPERTIES_ZONAL_SCHOOL_QUALITY_INDEX        = "school.quality.index";
     protected static final String PROPERTIES_COUNTY_CRIME_INDEX                = "crime.index";
     protected static final String PROPERTIES_REGION_DEF_FILE                   = "region.definition.file";
 
+    private static int[] zones;
     private static int[] zoneIndex;
     private static int highestZonalId;
     private static HashMap<Integer, int[]> regionDefinition;
     private static int[] regionList;
     private static int[] regionIndex;
-    private static TableDataSet regDef;
+    // zonal attributes by zone ID, copied from the zonal data tables to avoid column-label lookups
+    private static int[] regionOfZone;
+    private static int[] msaOfZone;
+    private static int[] pumaOfZone;
+    private static int[] simplifiedPumaOfZone;
+    private static int[] countyOfZone;
+    private static float[] acresOfZone;
     private static int[] counties;
     private static int[] countyIndex;
     private static float[] zonalSchoolQuality;
@@ -52,12 +62,25 @@ public class geoData {
         highestZonalId = SiloUtil.getHighestVal(SiloUtil.zonalData.getColumnAsInt("ZoneId"));
         SiloUtil.zonalData.buildIndex(SiloUtil.zonalData.getColumnPosition("ZoneId"));
 
-        int[] zones = getZones();
+        zones = SiloUtil.zonalData.getColumnAsInt("ZoneId");
         zoneIndex = SiloUtil.createIndexArray(zones);
+        msaOfZone = createZonalArray(SiloUtil.zonalData, "ZoneId", "msa");
+        pumaOfZone = createZonalArray(SiloUtil.zonalData, "ZoneId", "PUMA");
+        simplifiedPumaOfZone = createZonalArray(SiloUtil.zonalData, "ZoneId", "simplifiedPUMA");
+        countyOfZone = createZonalArray(SiloUtil.zonalData, "ZoneId", "COUNTYFIPS");
+        acresOfZone = new float[highestZonalId + 1];
+        int acresColumn = SiloUtil.zonalData.getColumnPosition("ACRES");
+        if (acresColumn > 0) {
+            for (int row = 1; row <= SiloUtil.zonalData.getRowCount(); row++)
+                acresOfZone[zones[row - 1]] = SiloUtil.zonalData.getValueAt(row, acresColumn);
+        } else {
+            logger.warn("Zonal data have no column ACRES.");
+        }
 
         // read region definition
         String regFileName = SiloUtil.baseDirectory + ResourceUtil.getProperty(rb, PROPERTIES_REGION_DEF_FILE);
-        regDef = SiloUtil.readCSVfile(regFileName);
+        TableDataSet regDef = SiloUtil.readCSVfile(regFileName);
+        regionOfZone = createZonalArray(regDef, "ZoneId", "Region");
         regionDefinition = new HashMap<>();
         for (int row = 1; row <= regDef.getRowCount(); row++) {
             int taz = (int) regDef.getValueAt(row, "ZoneId");
@@ -72,7 +95,6 @@ public class geoData {
         }
         regionList = SiloUtil.idendifyUniqueValues(regDef.getColumnAsInt("Region"));
         regionIndex = SiloUtil.createIndexArray(regionList);
-        regDef.buildIndex(regDef.getColumnPosition("ZoneId"));
 
         // read school quality
         String sqFileName = SiloUtil.baseDirectory + ResourceUtil.getProperty(rb, PROPERTIES_ZONAL_SCHOOL_QUALITY_INDEX);
@@ -114,6 +136,19 @@ public class geoData {
             regionalCrimeRate[region] = regionalCrimeRate[region] / regionalArea[region];
     }
 
+    private static int[] createZonalArray (TableDataSet table, String zoneColumn, String attributeColumn) {
+        // copy integer attribute into array indexed by zone ID, a missing attribute is a fatal error
+        if (table.getColumnPosition(attributeColumn) <= 0) {
+            logger.error("Zonal data have no column " + attributeColumn + ". Program exits.");
+            System.exit(1);
+        }
+        int[] tableZones = table.getColumnAsInt(zoneColumn);
+        int[] values = table.getColumnAsInt(attributeColumn);
+        int[] valueOfZone = new int[Math.max(SiloUtil.getHighestVal(tableZones), highestZonalId) + 1];
+        for (int row = 0; row < tableZones.length; row++) valueOfZone[tableZones[row]] = values[row];
+        return valueOfZone;
+    }
+
     public static int getHighestZonalId () {
         // return highest zone ID
         return highestZonalId;
@@ -121,15 +156,15 @@ public class geoData {
 
     public static int[] getZones () {
         // return array with zone IDs
-        return SiloUtil.zonalData.getColumnAsInt("ZoneId");
+        return zones.clone();
     }
 
     public static float getSizeOfZoneInAcres(int zone) {
-        return SiloUtil.zonalData.getIndexedValueAt(zone, "ACRES");
+        return acresOfZone[zone];
     }
 
     public static int getCountyOfZone(int zone) {
-        return (int) SiloUtil.zonalData.getIndexedValueAt(zone, "COUNTYFIPS");
+        return countyOfZone[zone];
     }
 
     public static int getZoneIndex(int zone) {
@@ -149,21 +184,21 @@ public class geoData {
     }
 
     public static int getRegionOfZone (int zone) {
-        return (int) regDef.getIndexedValueAt(zone, "Region");
+        return regionOfZone[zone];
     }
 
     public static int getPUMAofZone (int taz) {
         // return PUMA in which taz is located
-        return (int) SiloUtil.zonalData.getIndexedValueAt(taz, "PUMA");
+        return pumaOfZone[taz];
     }
 
     public static int getMSAOfZone (int zone) {
-        return (int) SiloUtil.zonalData.getIndexedValueAt(zone, "msa");
+        return msaOfZone[zone];
     }
 
     public static int getSimplifiedPUMAofZone (int taz) {
         // return PUMA in which taz is located (less geographic detail, last digit is rounded to 1)
-        return (int) SiloUtil.zonalData.getIndexedValueAt(taz, "simplifiedPUMA");
+        return simplifiedPumaOfZone[taz];
     }
 
     public static float getZonalSchoolQuality (int zone) {
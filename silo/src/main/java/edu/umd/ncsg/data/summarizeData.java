@@ -6,6 +6,7 @@ import com.sun.org.apache.xpath.internal.operations.Bool;
 import edu.umd.ncsg.SiloUtil;
 import edu.umd.ncsg.relocation.MovesModel;
 import org.apache.log4j.Logger;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.HashMap;
 import java.util.ResourceBundle;
@@ -34,6 +35,7 @@ public class summarizeData {
     protected static final String PROPERTIES_WRITE_BIN_POP_FILES          = "write.binary.pop.files";
     protected static final String PROPERTIES_WRITE_BIN_DD_FILE            = "write.binary.dd.file";
     protected static final String PROPERTIES_WRITE_BIN_JJ_FILE            = "write.binary.jj.file";
+    protected static final String PROPERTIES_WRITE_PART_FILES             = "write.micro.data.part.files";
     protected static final String PROPERTIES_PRESTO_REGION_DEFINITION     = "presto.regions";
     protected static final String PROPERTIES_PRESTO_SUMMARY_FILE          = "presto.summary.file";
 
@@ -55,9 +57,10 @@ public class summarizeData {
         String directory = SiloUtil.baseDirectory + "scenOutput/" + SiloUtil.scenarioName;
         SiloUtil.createDirectoryIfNotExistingYet(directory);
         String resultFileName = rb.getString(PROPERTIES_RESULT_FILE_NAME);
-        resultWriter = SiloUtil.openFileForSequentialWriting(directory + "/" + resultFileName +
-                SiloUtil.gregorianIterator + ".csv", SiloUtil.getStartYear() != SiloUtil.getBaseYear());
-        resultWriterFinal = SiloUtil.openFileForSequentialWriting(directory + "/" + resultFileName + "_" + SiloUtil.getEndYear() + ".csv", false);
+        boolean append = SiloUtil.getStartYear() != SiloUtil.getBaseYear() || SimulationCheckpoint.getResumeYear(rb) > 0;
+        resultWriter = SiloUtil.openFileForAsynchronousWriting(directory + "/" + resultFileName +
+                SiloUtil.gregorianIterator + ".csv", append);
+        resultWriterFinal = SiloUtil.openFileForAsynchronousWriting(directory + "/" + resultFileName + "_" + SiloUtil.getEndYear() + ".csv", false);
     }
 
 
@@ -99,9 +102,15 @@ public class summarizeData {
                 String directory = SiloUtil.baseDirectory + "scenOutput/" + SiloUtil.scenarioName;
                 SiloUtil.createDirectoryIfNotExistingYet(directory);
                 String resultFileName = rb.getString(PROPERTIES_SPATIAL_RESULT_FILE_NAME);
-                spatialResultWriter = SiloUtil.openFileForSequentialWriting(directory + "/" + resultFileName +
-                        SiloUtil.gregorianIterator + ".csv", SiloUtil.getStartYear() != SiloUtil.getBaseYear());
-                spatialResultWriterFinal = SiloUtil.openFileForSequentialWriting(directory + "/" + resultFileName +"_"+ SiloUtil.getEndYear() + ".csv", false);
+                boolean append = SiloUtil.getStartYear() != SiloUtil.getBaseYear() ||
+                        SimulationCheckpoint.getResumeYear(rb) > 0;
+                spatialResultWriter = SiloUtil.openFileForAsynchronousWriting(directory + "/" + resultFileName +
+                        SiloUtil.gregorianIterator + ".csv", append);
+                spatialResultWriterFinal = SiloUtil.openFileForAsynchronousWriting(directory + "/" + resultFileName +"_"+ SiloUtil.getEndYear() + ".csv", false);
+                break;
+            case "flush":
+                spatialResultWriter.flush();
+                spatialResultWriterFinal.flush();
                 break;
             case "close":
                 spatialResultWriter.close();
@@ -128,17 +137,20 @@ public class summarizeData {
         int[] hhs = new int[geoData.getHighestZonalId() + 1];
         int[][] hhInc = new int[SiloUtil.incBrackets.length + 1][geoData.getHighestZonalId() + 1];
         int[] pop = getPopulationByZone();
-        for (Household hh: Household.getHouseholdArray()) {
+        for (Household hh: Household.getHouseholds()) {
             int zone = Dwelling.getDwellingFromId(hh.getDwellingId()).getZone();
             int incGroup = HouseholdDataManager.getIncomeCategoryForIncome(hh.getHhIncome());
             hhInc[incGroup - 1][zone]++;
             hhs[zone] ++;
         }
-        for (Dwelling dd: Dwelling.getDwellingArray()) {
-            dds[dd.getType().ordinal()][dd.getZone()]++;
-            prices[dd.getZone()] += dd.getPrice();
+        for (DwellingType dt: DwellingType.values()) {
+            int dto = dt.ordinal();
+            for (int zone: zones) {
+                dds[dto][zone] = DwellingAggregates.getCountByZone(dto, zone);
+                prices[zone] += DwellingAggregates.getPriceSumByZone(dto, zone);
+            }
         }
-        for (Job jj: Job.getJobArray()) {
+        for (Job jj: Job.getJobs()) {
             jobs[jj.getZone()]++;
         }
 
@@ -171,7 +183,7 @@ public class summarizeData {
         // summarize population by zone
 
         int[] pp = new int[geoData.getHighestZonalId() + 1];
-        for (Household hh: Household.getHouseholdArray()) {
+        for (Household hh: Household.getHouseholds()) {
             int zone = Dwelling.getDwellingFromId(hh.getDwellingId()).getZone();
             pp[zone] += hh.getHhSize();
         }
@@ -183,7 +195,7 @@ public class summarizeData {
         // summarize households by zone
 
         int[] householdsByZone = new int[geoData.getHighestZonalId() + 1];
-        for (Household hh: Household.getHouseholdArray()) {
+        for (Household hh: Household.getHouseholds()) {
             int zone = Dwelling.getDwellingFromId(hh.getDwellingId()).getZone();
             householdsByZone[zone]++;
         }
@@ -195,7 +207,7 @@ public class summarizeData {
         // summarize retail employment by zone
 
         int[] retailEmplByZone = new int[geoData.getHighestZonalId() + 1];
-        for (Job jj: Job.getJobArray()) {
+        for (Job jj: Job.getJobs()) {
             if (jj.getType().equals("RET")) retailEmplByZone[geoData.getZoneIndex(jj.getZone())]++;
         }
         return retailEmplByZone;
@@ -206,7 +218,7 @@ public class summarizeData {
         // summarize other employment by zone
 
         int[] otherEmplByZone = new int[geoData.getHighestZonalId() + 1];
-        for (Job jj: Job.getJobArray()) {
+        for (Job jj: Job.getJobs()) {
             if (jj.getType().equals("OTH")) otherEmplByZone[geoData.getZoneIndex(jj.getZone())]++;
         }
         return otherEmplByZone;
@@ -217,7 +229,7 @@ public class summarizeData {
         // summarize retail employment by zone
 
         int[] totalEmplByZone = new int[geoData.getHighestZonalId() + 1];
-        for (Job jj: Job.getJobArray()) {
+        for (Job jj: Job.getJobs()) {
             totalEmplByZone[geoData.getZoneIndex(jj.getZone())]++;
         }
         return totalEmplByZone;
@@ -386,9 +398,9 @@ public class summarizeData {
         String fileName = (directory + rb.getString(PROPERTIES_HOUSING_SUMMARY) + "_" + year + "_" +
                 SiloUtil.gregorianIterator + ".csv");
 
-        PrintWriter pw = SiloUtil.openFileForSequentialWriting(fileName, false);
+        PrintWriter pw = SiloUtil.openFileForAsynchronousWriting(fileName, false);
         pw.println("id,zone,type,size,yearBuilt,occupied");
-        for (Dwelling dd: Dwelling.getDwellingArray()){
+        for (Dwelling dd: Dwelling.getDwellings()){
             pw.print(dd.getId());
             pw.print(",");
             pw.print(dd.getZone());
@@ -408,108 +420,63 @@ public class summarizeData {
     public static void writeOutSyntheticPopulation (ResourceBundle rb, int year) {
         // write out files with synthetic population
 
-        logger.info("  Writing household file");
+        logger.info("  Writing household, person, dwelling and job files");
+        trackMicroDataObjects();
+        PartitionedCsvExporter exporter =
+                new PartitionedCsvExporter(ResourceUtil.getBooleanProperty(rb, PROPERTIES_WRITE_PART_FILES, false));
+
         String filehh = SiloUtil.baseDirectory + rb.getString(PROPERTIES_FILENAME_HH_MICRODATA) + "_" + year + ".csv";
-        PrintWriter pwh = SiloUtil.openFileForSequentialWriting(filehh, false);
-        pwh.println("id,dwelling,zone,hhSize,autos");
-        Household[] hhs = Household.getHouseholdArray();
-        for (Household hh : hhs) {
-            if (hh.getId() == SiloUtil.trackHh) {
-                SiloUtil.trackingFile("Writing hh " + hh.getId() + " to micro data file.");
-                hh.logAttributes(SiloUtil.trackWriter);
-            }
-            pwh.print(hh.getId());
-            pwh.print(",");
-            pwh.print(hh.getDwellingId());
-            pwh.print(",");
-            pwh.print(hh.getHomeZone());
-            pwh.print(",");
-            pwh.print(hh.getHhSize());
-            pwh.print(",");
-            pwh.println(hh.getAutos());
-        }
-        pwh.close();
+        exporter.addTable(filehh, "id,dwelling,zone,hhSize,autos", Household.getHouseholdStore().getIds(),
+                new PartitionedCsvExporter.RowFormatter() {
+                    public void formatRow(int id, PartitionedCsvExporter.RowBuffer row) {
+                        Household hh = Household.getHouseholdFromId(id);
+                        row.append(hh.getId()).append(',').append(hh.getDwellingId()).append(',');
+                        row.append(hh.getHomeZone()).append(',').append(hh.getHhSize()).append(',');
+                        row.append(hh.getAutos());
+                    }
+                });
 
-        logger.info("  Writing person file");
         String filepp = SiloUtil.baseDirectory + rb.getString(PROPERTIES_FILENAME_PP_MICRODATA) + "_" + year + ".csv";
-        PrintWriter pwp = SiloUtil.openFileForSequentialWriting(filepp, false);
-        pwp.println("id,hhID,age,gender,relationShip,race,occupation,driversLicense,workplace,income");
-        Person[] pps = Person.getPersonArray();
-        for (Person pp : pps) {
-            pwp.print(pp.getId());
-            pwp.print(",");
-            pwp.print(pp.getHhId());
-            pwp.print(",");
-            pwp.print(pp.getAge());
-            pwp.print(",");
-            pwp.print(pp.getGender());
-            pwp.print(",\"");
-            pwp.print(pp.getRole());
-            pwp.print("\",\"");
-            pwp.print(pp.getRace());
-            pwp.print("\",");
-            pwp.print(pp.getOccupation());
-            pwp.print(",0,");
-            pwp.print(pp.getWorkplace());
-            pwp.print(",");
-            pwp.println(pp.getIncome());
-            if (pp.getId() == SiloUtil.trackPp) {
-                SiloUtil.trackingFile("Writing pp " + pp.getId() + " to micro data file.");
-                pp.logAttributes(SiloUtil.trackWriter);
-            }
-        }
-        pwp.close();
+        exporter.addTable(filepp, "id,hhID,age,gender,relationShip,race,occupation,driversLicense,workplace,income",
+                Person.getPersonStore().getIds(), new PartitionedCsvExporter.RowFormatter() {
+                    public void formatRow(int id, PartitionedCsvExporter.RowBuffer row) {
+                        Person pp = Person.getPersonFromId(id);
+                        row.append(pp.getId()).append(',').append(pp.getHhId()).append(',');
+                        row.append(pp.getAge()).append(',').append(pp.getGender()).append(",\"");
+                        row.append(pp.getRole()).append("\",\"").append(pp.getRace()).append("\",");
+                        row.append(pp.getOccupation()).append(",0,").append(pp.getWorkplace()).append(',');
+                        row.append(pp.getIncome());
+                    }
+                });
 
-        logger.info("  Writing dwelling file");
         String filedd = SiloUtil.baseDirectory + rb.getString(PROPERTIES_FILENAME_DD_MICRODATA) + "_" + year + ".csv";
-        PrintWriter pwd = SiloUtil.openFileForSequentialWriting(filedd, false);
-        pwd.println("id,zone,type,hhID,bedrooms,quality,monthlyCost,restriction,yearBuilt");
-        Dwelling[] dds = Dwelling.getDwellingArray();
-        for (Dwelling dd : dds) {
-            pwd.print(dd.getId());
-            pwd.print(",");
-            pwd.print(dd.getZone());
-            pwd.print(",\"");
-            pwd.print(dd.getType());
-            pwd.print("\",");
-            pwd.print(dd.getResidentId());
-            pwd.print(",");
-            pwd.print(dd.getBedrooms());
-            pwd.print(",");
-            pwd.print(dd.getQuality());
-            pwd.print(",");
-            pwd.print(dd.getPrice());
-            pwd.print(",");
-            pwd.print(dd.getRestriction());
-            pwd.print(",");
-            pwd.println(dd.getYearBuilt());
-            if (dd.getId() == SiloUtil.trackDd) {
-                SiloUtil.trackingFile("Writing dd " + dd.getId() + " to micro data file.");
-                dd.logAttributes(SiloUtil.trackWriter);
-            }
-        }
-        pwd.close();
+        exporter.addTable(filedd, "id,zone,type,hhID,bedrooms,quality,monthlyCost,restriction,yearBuilt",
+                Dwelling.getDwellingStore().getIds(), new PartitionedCsvExporter.RowFormatter() {
+                    public void formatRow(int id, PartitionedCsvExporter.RowBuffer row) {
+                        Dwelling dd = Dwelling.getDwellingFromId(id);
+                        row.append(dd.getId()).append(',').append(dd.getZone()).append(",\"");
+                        row.append(dd.getType()).append("\",").append(dd.getResidentId()).append(',');
+                        row.append(dd.getBedrooms()).append(',').append(dd.getQuality()).append(',');
+                        row.append(dd.getPrice()).append(',').append(dd.getRestriction()).append(',');
+                        row.append(dd.getYearBuilt());
+                    }
+                });
 
-        logger.info("  Writing job file");
         String filejj = SiloUtil.baseDirectory + rb.getString(PROPERTIES_FILENAME_JJ_MICRODATA) + "_" + year + ".csv";
-        PrintWriter pwj = SiloUtil.openFileForSequentialWriting(filejj, false);
-        pwj.println("id,zone,personId,type");
-        Job[] jjs = Job.getJobArray();
-        for (Job jj : jjs) {
-            pwj.print(jj.getId());
-            pwj.print(",");
-            pwj.print(jj.getZone());
-            pwj.print(",");
-            pwj.print(jj.getWorkerId());
-            pwj.print(",\"");
-            pwj.print(jj.getType());
-            pwj.println("\"");
-            if (jj.getId() == SiloUtil.trackJj) {
-                SiloUtil.trackingFile("Writing jj " + jj.getId() + " to micro data file.");
-                jj.logAttributes(SiloUtil.trackWriter);
-            }
+        exporter.addTable(filejj, "id,zone,personId,type", Job.getJobStore().getIds(),
+                new PartitionedCsvExporter.RowFormatter() {
+                    public void formatRow(int id, PartitionedCsvExporter.RowBuffer row) {
+                        Job jj = Job.getJobFromId(id);
+                        row.append(jj.getId()).append(',').append(jj.getZone()).append(',');
+                        row.append(jj.getWorkerId()).append(",\"").append(jj.getType()).append('"');
+                    }
+                });
+
+        try {
+            exporter.export();
+        } catch (IOException e) {
+            logger.error("Could not write synthetic population for year " + year + ": " + e);
         }
-        pwj.close();
 
         if (ResourceUtil.getBooleanProperty(rb, PROPERTIES_WRITE_BIN_POP_FILES))
             HouseholdDataManager.writeBinaryPopulationDataObjects(rb);
@@ -520,13 +487,38 @@ public class summarizeData {
     }
 
 
+    private static void trackMicroDataObjects() {
+        // log attributes of tracked objects, rows are formatted in parallel and cannot write to the tracking file
+        Household hh = Household.getHouseholdFromId(SiloUtil.trackHh);
+        if (hh != null) {
+            SiloUtil.trackingFile("Writing hh " + hh.getId() + " to micro data file.");
+            hh.logAttributes(SiloUtil.trackWriter);
+        }
+        Person pp = Person.getPersonFromId(SiloUtil.trackPp);
+        if (pp != null) {
+            SiloUtil.trackingFile("Writing pp " + pp.getId() + " to micro data file.");
+            pp.logAttributes(SiloUtil.trackWriter);
+        }
+        Dwelling dd = Dwelling.getDwellingFromId(SiloUtil.trackDd);
+        if (dd != null) {
+            SiloUtil.trackingFile("Writing dd " + dd.getId() + " to micro data file.");
+            dd.logAttributes(SiloUtil.trackWriter);
+        }
+        Job jj = Job.getJobFromId(SiloUtil.trackJj);
+        if (jj != null) {
+            SiloUtil.trackingFile("Writing jj " + jj.getId() + " to micro data file.");
+            jj.logAttributes(SiloUtil.trackWriter);
+        }
+    }
+
+
     public static void summarizeAutoOwnershipByCounty() {
         // This calibration function summarized households by auto-ownership and quits
 
         PrintWriter pwa = SiloUtil.openFileForSequentialWriting("autoOwnershipA.csv", false);
         pwa.println("hhSize,workers,income,transit,density,autos");
         int[][] autos = new int[4][60000];
-        for (Household hh: Household.getHouseholdArray()) {
+        for (Household hh: Household.getHouseholds()) {
             int autoOwnership = hh.getAutos();
             int zone = hh.getHomeZone();
             int county = geoData.getCountyOfZone(zone);
@@ -580,7 +572,7 @@ public class summarizeData {
         pw.println(",averageRent");
         int[][] rentByIncome = new int[10][10];
         int[] rents = new int[10];
-        for (Household hh: Household.getHouseholdArray()) {
+        for (Household hh: Household.getHouseholds()) {
             if (prestoRegionByTaz[hh.getHomeZone()] > 0) {
                 int hhInc = hh.getHhIncome();
                 int rent = Dwelling.getDwellingFromId(hh.getDwellingId()).getPrice();
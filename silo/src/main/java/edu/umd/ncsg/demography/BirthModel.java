@@ -27,6 +27,8 @@ import edu.umd.ncsg.events.EventTypes;
 import edu.umd.ncsg.events.EventRules;
 import edu.umd.ncsg.events.EventManager;
 import edu.umd.ncsg.data.Person;
+import edu.umd.ncsg.events.BatchEventModel;
+import edu.umd.ncsg.utils.RandomStream;
 import edu.umd.ncsg.data.PersonType;
 import edu.umd.ncsg.data.Household;
 import edu.umd.ncsg.data.PersonRole;
@@ -38,7 +40,7 @@ import org.apache.log4j.Logger;
  * Created on 28 December 2009 in Bocholt
  **/
 
-public class BirthModel {
+public class BirthModel implements BatchEventModel {
 //    static Logger logger = Logger.getLogger(BirthModel.class);
     static Logger traceLogger = Logger.getLogger("trace");
 
@@ -71,6 +73,7 @@ public class BirthModel {
         singleScaler    = (float) ResourceUtil.getDoubleProperty(rb, PROPERTIES_DEMOGRAPHICS_BIRTH_SCALER_SINGLE);
         simPeriodLength = ResourceUtil.getIntegerProperty(rb, PROPERTIES_DEMOGRAPHICS_SIMULATION_PERIOD_LENGTH);
         setupBirthModel();
+        EventManager.registerBatchEventModel(EventTypes.checkBirth, RandomStream.Model.birth, this);
 	}
 
 
@@ -118,12 +121,8 @@ public class BirthModel {
 
         Person per = Person.getPersonFromId(perId);
         if (!EventRules.ruleGiveBirth(per)) return;  // Person has died or moved away
-        double rnum = SiloModel.rand.nextDouble();
-        // todo: distinguish birth probability by neighborhood type (such as urban, suburban, rural)
-        double birthProb;
-        if (per.getRole() == PersonRole.married) birthProb = birthProbability[per.getType().ordinal()] * marriedScaler;
-        else birthProb = birthProbability[per.getType().ordinal()] * singleScaler;
-        if (rnum < birthProb) {
+        // women selected in batch give birth without a draw
+        if (EventManager.isSelectedInBatch(EventTypes.checkBirth) || SiloModel.rand.nextDouble() < getEventProbability(perId)) {
             Household hhOfThisWoman = Household.getHouseholdFromId(per.getHhId());
             hhOfThisWoman.addNewbornPerson(hhOfThisWoman.getRace());
             EventManager.countEvent(EventTypes.checkBirth);
@@ -134,6 +133,15 @@ public class BirthModel {
     }
 
 
+    public double getEventProbability(int perId) {
+        // probability that woman with ID perId gives birth in this simulation period
+        // todo: distinguish birth probability by neighborhood type (such as urban, suburban, rural)
+        Person per = Person.getPersonFromId(perId);
+        if (per.getRole() == PersonRole.married) return birthProbability[per.getType().ordinal()] * marriedScaler;
+        else return birthProbability[per.getType().ordinal()] * singleScaler;
+    }
+
+
     public static float getProbabilityForGirl () {
         return propGirl;
     }
@@ -144,15 +152,23 @@ public class BirthModel {
     }
 
 
-    public void celebrateBirthday (int personId) {
-        // increase age of this person by number of years in simulation period
-        Person per = Person.getPersonFromId(personId);
-        if (!EventRules.ruleBirthday(per)) return;  // Person has died or moved away
-        int age = per.getAge() + simPeriodLength;
-        per.setAge(age);
-        per.setType(age, per.getGender());
-        EventManager.countEvent(EventTypes.birthday);
-        if (personId == SiloUtil.trackPp) SiloUtil.trackWriter.println("Celebrated birthday of person " +
-                personId + ". New age is " + age + ".");
+    public void celebrateBirthdays (int[] personIds, int first, int last) {
+        // increase age of persons personIds[first] to personIds[last - 1] by number of years in simulation period,
+        // persons who died or moved away in the meantime are skipped
+        int count = 0;
+        for (int i = first; i < last; i++) {
+            int personId = personIds[i];
+            if (personId == SiloUtil.trackPp || personId == SiloUtil.trackHh || personId == SiloUtil.trackDd)
+                SiloUtil.trackWriter.println ("Check event " + EventTypes.birthday +  " for pp/hh/dd " + personId);
+            Person per = Person.getPersonFromId(personId);
+            if (!EventRules.ruleBirthday(per)) continue;
+            int age = per.getAge() + simPeriodLength;
+            per.setAge(age);
+            per.setType(age, per.getGender());
+            count++;
+            if (personId == SiloUtil.trackPp) SiloUtil.trackWriter.println("Celebrated birthday of person " +
+                    personId + ". New age is " + age + ".");
+        }
+        if (count > 0) EventManager.countEvent(EventTypes.birthday, count);
     }
 }
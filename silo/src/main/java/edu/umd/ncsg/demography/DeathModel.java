@@ -8,6 +8,8 @@ import edu.umd.ncsg.events.EventTypes;
 import edu.umd.ncsg.events.EventRules;
 import edu.umd.ncsg.events.EventManager;
 import edu.umd.ncsg.data.*;
+import edu.umd.ncsg.events.BatchEventModel;
+import edu.umd.ncsg.utils.RandomStream;
 
 import java.io.File;
 import java.util.ResourceBundle;
@@ -19,7 +21,7 @@ import org.apache.log4j.Logger;
  * Created on Dec 2, 2009
  *
  */
-public class DeathModel {
+public class DeathModel implements BatchEventModel {
 
 //    Logger logger = Logger.getLogger(DeathModel.class);
     static Logger traceLogger = Logger.getLogger("trace");
@@ -46,6 +48,7 @@ public class DeathModel {
 		dataSheetNumber = ResourceUtil.getIntegerProperty(rb, PROPERTIES_DEMOGRAPHICS_UEC_DATA_SHEET);
  
 		setupDeathModel();
+        EventManager.registerBatchEventModel(EventTypes.checkDeath, RandomStream.Model.death, this);
 	}
 	
 
@@ -90,13 +93,18 @@ public class DeathModel {
         }
 	}
 
+	public double getEventProbability(int perId) {
+        // probability that person with ID perId dies in this simulation period
+        return deathProbability[Person.getPersonFromId(perId).getType().ordinal()];
+    }
+
+
 	public void chooseDeath(int perId) {
-        // simulate if person with ID perId dies in this simulation period
+        // simulate if person with ID perId dies in this simulation period, persons selected in batch die without a draw
 
         Person per = Person.getPersonFromId(perId);
         if (!EventRules.ruleDeath(per)) return;  // Person has moved away
-        double rnum = SiloModel.rand.nextDouble();
-        if (rnum < deathProbability[per.getType().ordinal()]) {
+        if (EventManager.isSelectedInBatch(EventTypes.checkDeath) || SiloModel.rand.nextDouble() < getEventProbability(perId)) {
             Household hhOfThisPerson = Household.getHouseholdFromId(per.getHhId());
             hhOfThisPerson.removePerson(per);
             if (per.getWorkplace() > 0) per.quitJob(true);
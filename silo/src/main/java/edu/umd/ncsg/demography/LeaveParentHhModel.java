@@ -24,12 +24,14 @@ import com.pb.common.util.ResourceUtil;
 import edu.umd.ncsg.SiloModel;
 import edu.umd.ncsg.SiloUtil;
 import edu.umd.ncsg.autoOwnership.AutoOwnershipModel;
+import edu.umd.ncsg.events.BatchEventModel;
 import edu.umd.ncsg.events.EventTypes;
 import edu.umd.ncsg.events.EventRules;
 import edu.umd.ncsg.events.EventManager;
 import edu.umd.ncsg.data.*;
 import edu.umd.ncsg.events.IssueCounter;
 import edu.umd.ncsg.relocation.MovesModel;
+import edu.umd.ncsg.utils.RandomStream;
 import org.apache.log4j.Logger;
 
 /**
@@ -38,7 +40,7 @@ import org.apache.log4j.Logger;
  * Created on 30 December 2009 in Cologne
  **/
 
-public class LeaveParentHhModel {
+public class LeaveParentHhModel implements BatchEventModel {
 
 //    static Logger logger = Logger.getLogger(LeaveParentHhModel.class);
     static Logger traceLogger = Logger.getLogger("trace");
@@ -62,6 +64,7 @@ public class LeaveParentHhModel {
         dataSheetNumber = ResourceUtil.getIntegerProperty(rb, PROPERTIES_DEMOGRAPHICS_UEC_DATA_SHEET);
 
         setupLPHModel(rb);
+        EventManager.registerBatchEventModel(EventTypes.checkLeaveParentHh, RandomStream.Model.leaveParentHh, this);
     }
 
 
@@ -106,13 +109,20 @@ public class LeaveParentHhModel {
     }
 
 
+    public double getEventProbability(int perId) {
+        // probability that person with ID perId leaves the parental household in this simulation period
+        return lphProbability[Person.getPersonFromId(perId).getType().ordinal()];
+    }
+
+
     public void chooseLeaveParentHh(int perId, MovesModel moveM, AutoOwnershipModel aoModel) {
-        // remove person with perId from its household and create new household with this person
+        // remove person with perId from its household and create new household with this person, persons selected in
+        // batch leave without a draw
 
         Person per = Person.getPersonFromId(perId);
         if (!EventRules.ruleLeaveParHousehold(per)) return;   // Person got married this simulation period
-        double rnum = SiloModel.rand.nextDouble();
-        if (rnum < lphProbability[per.getType().ordinal()]) {
+        if (EventManager.isSelectedInBatch(EventTypes.checkLeaveParentHh) ||
+                SiloModel.rand.nextDouble() < getEventProbability(perId)) {
 
             // search if dwelling is available
             int newDwellingId = moveM.searchForNewDwelling(new Person[]{per});
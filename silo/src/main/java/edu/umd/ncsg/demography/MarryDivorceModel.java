@@ -26,6 +26,7 @@ import com.pb.common.util.ResourceUtil;
 import edu.umd.ncsg.SiloModel;
 import edu.umd.ncsg.SiloUtil;
 import edu.umd.ncsg.autoOwnership.AutoOwnershipModel;
+import edu.umd.ncsg.events.BatchEventModel;
 import edu.umd.ncsg.events.EventTypes;
 import edu.umd.ncsg.events.EventManager;
 import edu.umd.ncsg.events.EventRules;
@@ -33,6 +34,7 @@ import edu.umd.ncsg.data.*;
 import edu.umd.ncsg.events.IssueCounter;
 import edu.umd.ncsg.relocation.InOutMigration;
 import edu.umd.ncsg.relocation.MovesModel;
+import edu.umd.ncsg.utils.RandomStream;
 import org.apache.log4j.Logger;
 
 /**
@@ -42,7 +44,7 @@ import org.apache.log4j.Logger;
  * Revised on 5 March 2015 in Wheaton, MD
  **/
 
-public class MarryDivorceModel {
+public class MarryDivorceModel implements BatchEventModel {
 
     static Logger logger = Logger.getLogger(MarryDivorceModel.class);
     static Logger traceLogger = Logger.getLogger("trace");
@@ -83,6 +85,7 @@ public class MarryDivorceModel {
 
         setupMarriageModel();
         setupDivorceModel();
+        EventManager.registerBatchEventModel(EventTypes.checkDivorce, RandomStream.Model.divorce, this);
     }
 
 
@@ -153,7 +156,7 @@ public class MarryDivorceModel {
         // create HashMap with men and women by age
         HashMap<String, ArrayList<Integer>> ppByAgeAndGender = new HashMap<>();
 
-        for (Person pp: Person.getPersonArray()) {
+        for (Person pp: Person.getPersons()) {
             if (EventRules.ruleGetMarried(pp) && pp.getAge() < 100) {
                 int size = Household.getHouseholdFromId(pp.getHhId()).getHhSize();
                 // put only every fifth person into marriage market, emphasize single-person households
@@ -174,7 +177,7 @@ public class MarryDivorceModel {
         int highestId = HouseholdDataManager.getHighestPersonIdInUse();
         boolean[] personSelectedForMarriage = SiloUtil.createArrayWithValue(highestId + 1, false);
         float interRacialMarriageShare = (float) ResourceUtil.getDoubleProperty(rb, PROPERTIES_DEMOGRAPHICS_INTERRACIAL_MARRIAGE_SHR);
-        for (Person pp: Person.getPersonArray()) {
+        for (Person pp: Person.getPersons()) {
             if (EventRules.ruleGetMarried(pp) && pp.getAge() < 100 && !personSelectedForMarriage[pp.getId()]) {
                 double marryProb = marriageProbability[pp.getType().ordinal()];   // raw marriage probability for this age/gender group
                 // to keep things simple, emphasize prop to initialize marriage for people from single-person households. Single-person household has no influence on whether someone is selected by the marriage initializer
@@ -412,14 +415,19 @@ public class MarryDivorceModel {
     }
 
 
+    public double getEventProbability(int perId) {
+        // probability that person with ID perId gets divorced in this simulation period
+        return divorceProbability[Person.getPersonFromId(perId).getType().ordinal()];
+    }
+
+
     public void chooseDivorce (int perId, MovesModel move, AutoOwnershipModel aoModel) {
-        // select if person gets divorced/leaves joint dwelling
+        // select if person gets divorced/leaves joint dwelling, persons selected in batch get divorced without a draw
 
         Person per = Person.getPersonFromId(perId);
         if (!EventRules.ruleGetDivorced(per)) return;
-        double rnum = SiloModel.rand.nextDouble();
 
-        if (rnum < divorceProbability[per.getType().ordinal()]) {
+        if (EventManager.isSelectedInBatch(EventTypes.checkDivorce) || SiloModel.rand.nextDouble() < getEventProbability(perId)) {
             // check if vacant dwelling is available
             int newDwellingId = move.searchForNewDwelling(new Person[] {per});
             if (newDwellingId < 0) {
@@ -0,0 +1,17 @@
+package edu.umd.ncsg.events;
+
+/**
+ * Model of an event that every candidate experiences independently with a probability that depends on the candidate
+ * only. If events are selected in batches, the EventManager evaluates these probabilities and the random draws for all
+ * candidates of one event type at once and adds only the selected candidates to the list of events. The model then
+ * simulates the event without drawing again.
+ **/
+
+public interface BatchEventModel {
+
+    /**
+     * Returns the probability that the person, household or dwelling with this id experiences the event in this
+     * simulation period. Called in parallel, therefore it must not change any data.
+     **/
+    double getEventProbability(int id);
+}
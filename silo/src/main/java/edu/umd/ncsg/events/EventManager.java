@@ -1,21 +1,36 @@
 package edu.umd.ncsg.events;
 
-import com.pb.common.util.IndexSort;
 import edu.umd.ncsg.SiloModel;
 import edu.umd.ncsg.SiloUtil;
 import edu.umd.ncsg.demography.MarryDivorceModel;
 import edu.umd.ncsg.realEstate.ConstructionModel;
 import edu.umd.ncsg.relocation.InOutMigration;
 import edu.umd.ncsg.data.*;
+import edu.umd.ncsg.utils.RandomStream;
+import com.pb.common.util.ResourceUtil;
+import com.pb.sawdust.calculator.Function1;
+import com.pb.sawdust.util.concurrent.ForkJoinPoolFactory;
+import com.pb.sawdust.util.concurrent.IteratorAction;
 import org.apache.log4j.Logger;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Collection;
+import java.util.List;
 import java.util.ResourceBundle;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * Generates a series of events in random order
+ * Generates a series of events in random order. Every event is packed into one long, with the event type in the upper
+ * and the id of the person, household, dwelling or planned case in the lower 32 bits.
+ * If events are selected in batches, candidates of event types with a registered BatchEventModel are collected first,
+ * their probabilities and random draws are evaluated in parallel, and only selected candidates become events.
+ * Birthdays are not events. Every person who celebrates a birthday gets a random position in the sequence of events,
+ * and persons are sorted by position, so that a birthday is simulated right before the event at its position, as if
+ * it had been shuffled into the events.
  * Author: Rolf Moeckel, PB Albuquerque
  * Created on 8 December 2009 in Santa Fe
  **/
@@ -24,11 +39,21 @@ public class EventManager {
 
     static Logger logger = Logger.getLogger(EventManager.class);
 
+    protected static final String PROPERTIES_BATCH_EVENTS = "event.batch.selection";
+    private static final int CANDIDATES_PER_BLOCK = 10000;
+
+    private static boolean batchSelection;
+    private static EnumMap<EventTypes, BatchEventModel> batchModels = new EnumMap<>(EventTypes.class);
+    private static EnumMap<EventTypes, RandomStream.Model> batchStreams = new EnumMap<>(EventTypes.class);
     private HouseholdDataManager householdData;
     private RealEstateDataManager realEstateData;
-    private ArrayList<Integer[]> events;
-    private int randomEventOrder[];
+    private long[] events = new long[1024];
+    private int numEvents;
     private int posInArray;
+    private int[] birthdays = new int[0];
+    private int[] firstBirthdayAtPosition = new int[1];
+    private int[][] candidates = new int[EventTypes.values().length][];
+    private int[] numCandidates = new int[EventTypes.values().length];
     private static HashMap<EventTypes, Integer> eventCounter;
 
     public EventManager (ResourceBundle rb, HouseholdDataManager householdData, RealEstateDataManager realEstateData) {
@@ -36,92 +61,95 @@ public class EventManager {
         this.householdData = householdData;
         this.realEstateData = realEstateData;
         EventRules.setUpEventRules(rb);
+        batchSelection = ResourceUtil.getBooleanProperty(rb, PROPERTIES_BATCH_EVENTS, false);
+    }
+
+
+    public static void registerBatchEventModel (EventTypes et, RandomStream.Model stream, BatchEventModel model) {
+        // register model that can select candidates of event type et in batches, drawing from streams of model stream
+        batchModels.put(et, model);
+        batchStreams.put(et, stream);
     }
 
 
-    public void createListOfEvents (int numberOfPlannedMarriages) {
-        // create an array list that contains all land use events
+    public static boolean isSelectedInBatch (EventTypes et) {
+        // returns true if events of type et have been selected in batches and need to be simulated without a draw
+        return batchSelection && batchModels.containsKey(et);
+    }
+
 
-        events = new ArrayList<>();
+    public void createListOfEvents (int year, int numberOfPlannedMarriages) {
+        // create a list that contains all land use events
+
+        numEvents = 0;
+        Arrays.fill(numCandidates, 0);
         Collection<Person> persons = householdData.getPersons();
-        int numEvents = 0;
 
         // create person events
         for (Person per: persons) {
             int id = per.getId();
             // Birthday
             if (EventRules.ruleBirthday(per)) {
-                events.add(new Integer[]{EventTypes.birthday.ordinal(), id});
-                numEvents ++;
+                collectCandidate(EventTypes.birthday, id);
             }
             // Death
             if (EventRules.ruleDeath(per)) {
-                events.add(new Integer[]{EventTypes.checkDeath.ordinal(), id});
-                numEvents ++;
+                addCandidate(EventTypes.checkDeath, id);
             }
             // Birth
             if (EventRules.ruleGiveBirth(per)) {
-                events.add(new Integer[]{EventTypes.checkBirth.ordinal(), id});
-                numEvents ++;
+                addCandidate(EventTypes.checkBirth, id);
             }
             // Leave parental household
             if (EventRules.ruleLeaveParHousehold(per)) {
-                events.add(new Integer[]{EventTypes.checkLeaveParentHh.ordinal(), id});
-                numEvents ++;
+                addCandidate(EventTypes.checkLeaveParentHh, id);
             }
             // Divorce
             if (EventRules.ruleGetDivorced(per)) {
-                events.add(new Integer[]{EventTypes.checkDivorce.ordinal(), id});
-                numEvents++;
+                addCandidate(EventTypes.checkDivorce, id);
             }
         }
 
 
         // wedding events
         for (int i = 0; i < numberOfPlannedMarriages; i++) {
-            events.add(new Integer[]{EventTypes.checkMarriage.ordinal(), i});
-            numEvents++;
+            addEvent(EventTypes.checkMarriage, i);
         }
 
 
         // employment events
         if (EventRules.ruleStartNewJob()) {
             for (int ppId: HouseholdDataManager.getStartNewJobPersonIds()) {
-                events.add(new Integer[]{EventTypes.findNewJob.ordinal(), ppId});
-                numEvents++;
+                addEvent(EventTypes.findNewJob, ppId);
             }
         }
 
         if (EventRules.ruleQuitJob()) {
             for (int ppId: HouseholdDataManager.getQuitJobPersonIds()) {
-                events.add(new Integer[]{EventTypes.quitJob.ordinal(), ppId});
-                numEvents++;
+                addEvent(EventTypes.quitJob, ppId);
             }
         }
 
 
         // create household events
-        for (Household hh: Household.getHouseholdArray()) {
+        for (Household hh: Household.getHouseholds()) {
             if (EventRules.ruleHouseholdMove(hh)) {
                 int id = hh.getId();
-                events.add(new Integer[]{EventTypes.householdMove.ordinal(), id});
-                numEvents++;
+                addEvent(EventTypes.householdMove, id);
             }
         }
 
         if (EventRules.ruleOutmigrate()) {
             for (int hhId: InOutMigration.outMigratingHhId) {
                 if (EventRules.ruleOutmigrate(Household.getHouseholdFromId(hhId))) {
-                    events.add(new Integer[]{EventTypes.outMigration.ordinal(), hhId});
-                    numEvents++;
+                    addEvent(EventTypes.outMigration, hhId);
                 }
             }
         }
 
         if (EventRules.ruleInmigrate()) {
             for (int hhId: InOutMigration.inmigratingHhId) {
-                events.add(new Integer[]{EventTypes.inmigration.ordinal(), hhId});
-                numEvents++;
+                addEvent(EventTypes.inmigration, hhId);
             }
         }
 
@@ -131,31 +159,33 @@ public class EventManager {
             int id = dd.getId();
             // renovate dwelling or deteriorate
             if (EventRules.ruleChangeDwellingQuality(dd)) {
-                events.add(new Integer[]{EventTypes.ddChangeQual.ordinal(), id});
-                numEvents++;
+                addCandidate(EventTypes.ddChangeQual, id);
             }
             // demolish
             if (EventRules.ruleDemolishDwelling(dd)) {
-                events.add(new Integer[]{EventTypes.ddDemolition.ordinal(), id});
-                numEvents++;
+                addCandidate(EventTypes.ddDemolition, id);
             }
         }
         // build new dwellings
         if (EventRules.ruleBuildDwelling()) {
             for (int constructionCase: ConstructionModel.listOfPlannedConstructions) {
-                events.add(new Integer[]{EventTypes.ddConstruction.ordinal(), constructionCase});
-                numEvents++;
+                addEvent(EventTypes.ddConstruction, constructionCase);
             }
         }
 
+        selectBatchEvents(year);
+
         logger.info("  Created " + numEvents + " events to simulate");
         logger.info("  Events are randomized");
-        int randomNumArray[] = new int[numEvents];
-        for (int i = 0; i < numEvents; i++) {
-            randomNumArray[i] = (int) (SiloModel.rand.nextDouble() * (float) numEvents * 10f);
+        // Fisher-Yates shuffle in place
+        for (int i = numEvents - 1; i > 0; i--) {
+            int j = SiloModel.rand.nextInt(i + 1);
+            long event = events[i];
+            events[i] = events[j];
+            events[j] = event;
         }
-        randomEventOrder = IndexSort.indexSort(randomNumArray);
         posInArray = 0;
+        placeBirthdays();
 
         // initialize event counter
         eventCounter = new HashMap<>();
@@ -163,6 +193,96 @@ public class EventManager {
     }
 
 
+    private void placeBirthdays () {
+        // draw a position between 0 and numEvents for every birthday, position p means before the p-th event (zero-based)
+        // and numEvents means after the last event. Birthdays are sorted by position with a counting sort.
+        int type = EventTypes.birthday.ordinal();
+        int count = numCandidates[type];
+        int[] position = new int[count];
+        firstBirthdayAtPosition = new int[numEvents + 2];
+        for (int i = 0; i < count; i++) {
+            position[i] = SiloModel.rand.nextInt(numEvents + 1);
+            firstBirthdayAtPosition[position[i] + 1]++;
+        }
+        for (int pos = 1; pos < firstBirthdayAtPosition.length; pos++)
+            firstBirthdayAtPosition[pos] += firstBirthdayAtPosition[pos - 1];
+        int[] next = Arrays.copyOf(firstBirthdayAtPosition, numEvents + 1);
+        birthdays = new int[count];
+        for (int i = 0; i < count; i++) birthdays[next[position[i]]++] = candidates[type][i];
+    }
+
+
+    private void addEvent (EventTypes et, int id) {
+        if (numEvents == events.length) events = Arrays.copyOf(events, 2 * events.length);
+        events[numEvents++] = ((long) et.ordinal() << 32) | (id & 0xffffffffL);
+    }
+
+
+    private void addCandidate (EventTypes et, int id) {
+        // add event directly, or collect candidate if events of type et are selected in batches
+        if (isSelectedInBatch(et)) collectCandidate(et, id);
+        else addEvent(et, id);
+    }
+
+
+    private void collectCandidate (EventTypes et, int id) {
+        int type = et.ordinal();
+        if (candidates[type] == null) candidates[type] = new int[1024];
+        if (numCandidates[type] == candidates[type].length)
+            candidates[type] = Arrays.copyOf(candidates[type], 2 * candidates[type].length);
+        candidates[type][numCandidates[type]++] = id;
+    }
+
+
+    private void selectBatchEvents (int year) {
+        // add an event for every candidate that was selected by the batch model of its event type
+        for (EventTypes et: EventTypes.values()) {
+            int type = et.ordinal();
+            if (numCandidates[type] == 0 || !isSelectedInBatch(et)) continue;
+            boolean[] selected = selectCandidates(candidates[type], numCandidates[type], year, batchStreams.get(et),
+                    batchModels.get(et));
+            int count = 0;
+            for (int i = 0; i < numCandidates[type]; i++) {
+                if (!selected[i]) continue;
+                addEvent(et, candidates[type][i]);
+                count++;
+            }
+            logger.info("  Selected " + count + " of " + numCandidates[type] + " candidates for " + et + " in batch");
+        }
+    }
+
+
+    private static boolean[] selectCandidates (final int[] ids, final int count, final int year,
+                                               final RandomStream.Model stream, final BatchEventModel model) {
+        // draw for every candidate if it experiences the event, blocks of candidates are processed in parallel. Every
+        // candidate draws from its own random stream, therefore the selection does not depend on the number of threads
+        final boolean[] selected = new boolean[count];
+        List<Integer> blocks = new ArrayList<>();
+        for (int first = 0; first < count; first += CANDIDATES_PER_BLOCK) blocks.add(first);
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        Function1<Integer, Void> blockProcessor = new Function1<Integer, Void>() {
+            public Void apply(Integer first) {
+                try {
+                    int last = Math.min(first + CANDIDATES_PER_BLOCK, count);
+                    double[] probabilities = new double[last - first];
+                    for (int i = first; i < last; i++) probabilities[i - first] = model.getEventProbability(ids[i]);
+                    for (int i = first; i < last; i++)
+                        selected[i] = new RandomStream(year, stream, ids[i]).nextDouble() < probabilities[i - first];
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+                return null;
+            }
+        };
+        IteratorAction<Integer> itTask = new IteratorAction<>(blocks, blockProcessor);
+        ForkJoinPool pool = ForkJoinPoolFactory.getForkJoinPool();
+        pool.execute(itTask);
+        itTask.waitForCompletion();
+        if (failure.get() != null) throw failure.get();
+        return selected;
+    }
+
+
     public static void countEvent (EventTypes et) {
         // add 1 to counter for EventTypes et
         int counter = eventCounter.get(et) + 1;
@@ -245,16 +365,39 @@ public class EventManager {
     }
 
 
-    public Integer getNumberOfEvents() {
+    public int getNumberOfEvents() {
         // returns size of event array
-        return events.size();
+        return numEvents;
+    }
+
+
+    public int[] getBirthdays() {
+        // returns ids of persons who celebrate their birthday in this simulation period, sorted by position
+        return birthdays;
+    }
+
+
+    public int getFirstBirthdayAtPosition (int position) {
+        // returns index in getBirthdays() of the first birthday at this position, birthdays at position p are simulated
+        // before the p-th event (zero-based), use numEvents + 1 to get the end of birthdays after the last event
+        return firstBirthdayAtPosition[position];
+    }
+
+
+    public long selectNextEvent() {
+        // select the next event in random order, use getEventType() and getEventId() to unpack it
+        return events[posInArray++];
+    }
+
+
+    public static int getEventType (long event) {
+        // return ordinal of EventTypes of packed event
+        return (int) (event >>> 32);
     }
 
 
-    public Integer[] selectNextEvent() {
-        // select the next event in order stored in randomEventOrder
-        Integer[] event = events.get(randomEventOrder[posInArray]);
-        posInArray++;
-        return event;
+    public static int getEventId (long event) {
+        // return id of person, household, dwelling or planned case of packed event
+        return (int) event;
     }
 }
@@ -1,9 +1,11 @@
 package edu.umd.ncsg.events;
 
-import edu.umd.ncsg.SiloUtil;
-import edu.umd.ncsg.data.geoData;
 import org.apache.log4j.Logger;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
 /**
  * Keep track of cases that are undesirable
  * Author: Rolf Moeckel, PB Albuquerque
@@ -18,8 +20,6 @@ public class IssueCounter {
     private static int lackOfDwellingFailedDivorce;
     private static int lackOfDwellingFailedInmigration;
     private static int forcedOutmigrationByDemolition;
-    private static int[] exceededVacantDwellingStorage;
-    private static int[] exceededVacantJobStorage;
     private static int missingJob;
     private static boolean foundIssues = false;
 
@@ -31,10 +31,6 @@ public class IssueCounter {
         lackOfDwellingFailedDivorce = 0;
         lackOfDwellingFailedInmigration = 0;
         forcedOutmigrationByDemolition = 0;
-        exceededVacantDwellingStorage = new int[SiloUtil.getHighestVal(geoData.getRegionList()) + 1];
-        exceededVacantJobStorage = new int[SiloUtil.getHighestVal(geoData.getRegionList()) + 1];
-        SiloUtil.setArrayToValue(exceededVacantDwellingStorage, 0);
-        SiloUtil.setArrayToValue(exceededVacantJobStorage, 0);
         missingJob = 0;
     }
 
@@ -71,15 +67,14 @@ public class IssueCounter {
     }
 
 
-    public static void countExcessOfVacantDwellings(int region) {
-        exceededVacantDwellingStorage[region]++;
-        foundIssues = true;
+    public static void writeCheckpoint(ObjectOutputStream out) throws IOException {
+        // counters are reset every year, only the flag whether any issue was found so far is carried over
+        out.writeBoolean(foundIssues);
     }
 
 
-    public static void countExcessOfVacantJobs(int region) {
-        exceededVacantJobStorage[region]++;
-        foundIssues = true;
+    public static void readCheckpoint(ObjectInputStream in) throws IOException {
+        foundIssues = in.readBoolean();
     }
 
 
@@ -99,16 +94,6 @@ public class IssueCounter {
                 "where a couple wanted to marry (cohabitate) but could not find vacant dwelling.");
         if (forcedOutmigrationByDemolition > 0) logger.warn("  Encountered " + forcedOutmigrationByDemolition + " cases " +
                 "where a household had to outmigrate because its dwelling was demolished and no other vacant dwelling could be found.");
-        if (SiloUtil.getSum(exceededVacantDwellingStorage) > 0) {
-            logger.warn("  Could not store all vacant dwellings in vacDwellingsByRegion[][] for regions:");
-            for (int region: geoData.getRegionList()) if (exceededVacantDwellingStorage[region] > 0)
-                logger.warn("  - Region " + region + ": " + exceededVacantDwellingStorage[region] + " vacant dwellings");
-        }
-        if (SiloUtil.getSum(exceededVacantJobStorage) > 0) {
-            logger.warn("  Could not store all vacant jobs in vacantJobsByRegion[][] for regions:");
-            for (int region: geoData.getRegionList()) if (exceededVacantJobStorage[region] > 0)
-                logger.warn("  - Region " + region + ": " + exceededVacantJobStorage[region] + " vacant jobs");
-        }
         if (missingJob > 0) logger.warn("  Encountered " + missingJob + " cases where a person should have started a " +
                 "new job to keep constant labor participation rates but could not find a job.");
     }
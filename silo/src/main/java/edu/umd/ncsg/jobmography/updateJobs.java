@@ -1,6 +1,5 @@
 package edu.umd.ncsg.jobmography;
 
-import com.pb.common.datafile.TableDataSet;
 import edu.umd.ncsg.SiloUtil;
 import edu.umd.ncsg.data.*;
 import edu.umd.ncsg.events.EventRules;
@@ -26,7 +25,6 @@ import com.pb.sawdust.util.concurrent.IteratorAction;
 public class updateJobs {
 
     protected transient Logger logger = Logger.getLogger(updateJobs.class);
-    protected static final String PROPERTIES_EMPLOYMENT_FORECAST     = "interpol.empl.forecast";
     private ResourceBundle rb;
     private HashMap<String, int[]> jobsAvailableForRemoval;
 
@@ -125,23 +123,25 @@ public class updateJobs {
         if (!EventRules.ruleStartNewJob() && !EventRules.ruleQuitJob()) return;
         logger.info("  Updating job market based on exogenous forecast for " + year + " (multi-threaded step)");
         int[][] jobsByZone = new int[JobType.getNumberOfJobTypes()][geoData.getHighestZonalId()+1];
-        for (Job jj: Job.getJobArray()) {
+        for (Job jj: Job.getJobs()) {
             int jobTypeId = JobType.getOrdinal(jj.getType());
             jobsByZone[jobTypeId][jj.getZone()]++;
         }
 
-        String dir = SiloUtil.baseDirectory + "scenOutput/" + SiloUtil.scenarioName + "/employmentForecast/";
-        String forecastFileName = dir + rb.getString(PROPERTIES_EMPLOYMENT_FORECAST) + year + ".csv";
-        TableDataSet forecast = SiloUtil.readCSVfile(forecastFileName);
+        if (!JobDataManager.hasEmploymentForecast(year)) {
+            logger.error("No employment forecast available for " + year + ".");
+            System.exit(1);
+        }
 
         ArrayList<String> employmentChangeList = new ArrayList<>();
-        for (int row = 1; row <= forecast.getRowCount(); row++) {
-            int zone = (int) forecast.getValueAt(row, "zone");
+        int numberOfJobsToAdd = 0;
+        for (int zone: geoData.getZones()) {
             for (String jt: JobType.getJobTypes()) {
-                int jobsExogenousForecast = (int) forecast.getValueAt(row, jt);
+                int jobsExogenousForecast = JobDataManager.getEmploymentForecast(JobType.getOrdinal(jt), year, zone);
                 if (jobsExogenousForecast > jobsByZone[JobType.getOrdinal(jt)][zone]) {
                     int change = jobsExogenousForecast - jobsByZone[JobType.getOrdinal(jt)][zone];
                     employmentChangeList.add("add:" + jt + "." + zone + "." + change);
+                    numberOfJobsToAdd += change;
 //                    addJobs(jt, zone, change);
                 } else if (jobsExogenousForecast < jobsByZone[JobType.getOrdinal(jt)][zone]) {
                     int change = jobsByZone[JobType.getOrdinal(jt)][zone] - jobsExogenousForecast;
@@ -152,7 +152,7 @@ public class updateJobs {
         }
 
         jobsAvailableForRemoval = new HashMap<>();
-        for (Job jj: Job.getJobArray()) {
+        for (Job jj: Job.getJobs()) {
             String token = jj.getType() + "." + jj.getZone() + "." + (jj.getWorkerId() == -1);
             if (jobsAvailableForRemoval.containsKey(token)) {
                 int[] jobList = jobsAvailableForRemoval.get(token);
@@ -163,6 +163,9 @@ public class updateJobs {
         }
 
 
+        // reserve space for all new jobs, so that the job store does not need to grow while jobs are added in parallel
+        Job.getJobStore().reserve(numberOfJobsToAdd, JobDataManager.getHighestJobId() + numberOfJobsToAdd);
+
         // Multi-threading code
         Function1<String,Void> JobChangeMethod = new Function1<String,Void>() {
             public Void apply(String employmentChangeDefinition) {
@@ -182,15 +185,6 @@ public class updateJobs {
         ForkJoinPool pool = ForkJoinPoolFactory.getForkJoinPool();
         pool.execute(itTask);
         itTask.waitForCompletion();
-
-        // Fix job map, which for some reason keeps getting messed up
-        for (int jobId: Job.getJobMapIDs()) {
-            Job jj = Job.getJobFromId(jobId);
-            if (jj == null) {
-                Job.removeJob(jobId);
-                logger.warn("Had to manually remove Job " + jobId + " from job map.");
-            }
-        }
     }
 
 
@@ -202,11 +196,8 @@ public class updateJobs {
         int zone = Integer.parseInt(definition[1]);
         int change = Integer.parseInt(definition[2]);
         for (int i = 1; i <= change; i++) {
-            int id;
-            synchronized (Job.class) {
-                id = JobDataManager.getNextJobId();
-                new Job(id, zone, -1, type);
-            }
+            int id = JobDataManager.getNextJobId();
+            new Job(id, zone, -1, type);
             if (id == SiloUtil.trackJj) SiloUtil.trackWriter.println("Job " + id + " of type " + type +
                     " was newly created in zone " + zone + " based on exogenous forecast.");
         }
@@ -227,9 +218,7 @@ public class updateJobs {
             int[] vacantJobs = jobsAvailableForRemoval.get(tokenVacantJobs);
             int counter = 0;
             while (counter < vacantJobs.length && change > 0) {
-                synchronized (Job.class) {
-                    Job.removeJob(vacantJobs[counter]);
-                }
+                Job.removeJob(vacantJobs[counter]);
                 if (vacantJobs[counter] == SiloUtil.trackJj) SiloUtil.trackWriter.println("Vacant job " + vacantJobs[counter] +
                         " of type " + type + " was removed in zone " + zone + " based on exogenous forecast.");
                 counter++;
@@ -245,9 +234,7 @@ public class updateJobs {
             Job jobToBeRemoved = Job.getJobFromId(occupiedJobs[counter]);
             int personId = jobToBeRemoved.getWorkerId();
             Person.getPersonFromId(personId).quitJob(false);
-            synchronized (Job.class) {
-                Job.removeJob(occupiedJobs[counter]);
-            }
+            Job.removeJob(occupiedJobs[counter]);
             if (occupiedJobs[counter] == SiloUtil.trackJj) SiloUtil.trackWriter.println("Previously occupied job " +
                     occupiedJobs[counter] + " of type " + type + " was removed in zone " + zone + " based on exogenous forecast.");
             counter++;
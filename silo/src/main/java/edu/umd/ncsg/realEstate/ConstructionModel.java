@@ -216,19 +216,13 @@ public class ConstructionModel {
         // calculate scaled average housing price by dwelling type and zone
 
         float[][] avePrice = new float[DwellingType.values().length][geoData.getHighestZonalId() + 1];
-        int[][] counter = new int[DwellingType.values().length][geoData.getHighestZonalId() + 1];
-        for (Dwelling dd: Dwelling.getDwellingArray()) {
-            int dt = dd.getType().ordinal();
-            int zone = dd.getZone();
-            counter[dt][zone]++;
-            avePrice[dt][zone] += dd.getPrice();
-        }
         for (DwellingType dt: DwellingType.values()) {
             int dto = dt.ordinal();
             float[] avePriceThisType = new float[geoData.getHighestZonalId() + 1];
             for (int zone: geoData.getZones()) {
-                if (counter[dto][zone] > 0) {
-                    avePriceThisType[zone] = avePrice[dto][zone] / counter[dto][zone];
+                int counter = DwellingAggregates.getCountByZone(dto, zone);
+                if (counter > 0) {
+                    avePriceThisType[zone] = (float) DwellingAggregates.getPriceSumByZone(dto, zone) / counter;
                 } else {
                     avePriceThisType[zone] = 0;
                 }
@@ -246,19 +240,13 @@ public class ConstructionModel {
         // calculate scaled average housing price by dwelling type and region
 
         float[][] avePrice = new float[DwellingType.values().length][SiloUtil.getHighestVal(geoData.getRegionList()) + 1];
-        int[][] counter = new int[DwellingType.values().length][SiloUtil.getHighestVal(geoData.getRegionList()) + 1];
-        for (Dwelling dd: Dwelling.getDwellingArray()) {
-            int dt = dd.getType().ordinal();
-            int region = geoData.getRegionOfZone(dd.getZone());
-            counter[dt][region]++;
-            avePrice[dt][region] += dd.getPrice();
-        }
         for (DwellingType dt: DwellingType.values()) {
             int dto = dt.ordinal();
             float[] avePriceThisType = new float[SiloUtil.getHighestVal(geoData.getRegionList()) + 1];
             for (int region: geoData.getRegionList()) {
-                if (counter[dto][region] > 0) {
-                    avePriceThisType[region] = avePrice[dto][region] / counter[dto][region];
+                int counter = DwellingAggregates.getCountByRegion(dto, region);
+                if (counter > 0) {
+                    avePriceThisType[region] = (float) DwellingAggregates.getPriceSumByRegion(dto, region) / counter;
                 } else {
                     avePriceThisType[region] = 0;
                 }
@@ -276,18 +264,12 @@ public class ConstructionModel {
         // calculate average housing size by dwelling type and region
 
         float[][] aveSize = new float[DwellingType.values().length][SiloUtil.getHighestVal(geoData.getRegionList()) + 1];
-        int[][] counter = new int[DwellingType.values().length][SiloUtil.getHighestVal(geoData.getRegionList()) + 1];
-        for (Dwelling dd: Dwelling.getDwellingArray()) {
-            int dt = dd.getType().ordinal();
-            int region = geoData.getRegionOfZone(dd.getZone());
-            counter[dt][region]++;
-            aveSize[dt][region] += dd.getBedrooms();
-        }
         for (DwellingType dt: DwellingType.values()) {
             int dto = dt.ordinal();
             for (int region: geoData.getRegionList()) {
-                if (counter[dto][region] > 0) {
-                    aveSize[dto][region] = aveSize[dto][region] / counter[dto][region];
+                int counter = DwellingAggregates.getCountByRegion(dto, region);
+                if (counter > 0) {
+                    aveSize[dto][region] = (float) DwellingAggregates.getBedroomSumByRegion(dto, region) / counter;
                 } else {
                     aveSize[dto][region] = 0;
                 }
@@ -3,6 +3,7 @@ package edu.umd.ncsg.realEstate;
 import edu.umd.ncsg.SiloModel;
 import edu.umd.ncsg.SiloUtil;
 import edu.umd.ncsg.data.RealEstateDataManager;
+import edu.umd.ncsg.events.BatchEventModel;
 import edu.umd.ncsg.events.EventTypes;
 import edu.umd.ncsg.events.EventRules;
 import edu.umd.ncsg.events.EventManager;
@@ -17,6 +18,7 @@ import java.io.File;
 import edu.umd.ncsg.events.IssueCounter;
 import edu.umd.ncsg.relocation.InOutMigration;
 import edu.umd.ncsg.relocation.MovesModel;
+import edu.umd.ncsg.utils.RandomStream;
 import org.apache.log4j.Logger;
 
 /**
@@ -25,7 +27,7 @@ import org.apache.log4j.Logger;
  * Created on 8 January 2010 in Rhede
  **/
 
-public class DemolitionModel {
+public class DemolitionModel implements BatchEventModel {
 
     static Logger traceLogger = Logger.getLogger("trace");
 
@@ -51,6 +53,7 @@ public class DemolitionModel {
         dataSheetNumber = ResourceUtil.getIntegerProperty(rb, PROPERTIES_RealEstate_UEC_DATA_SHEET);
 
         setupDemolitionModel();
+        EventManager.registerBatchEventModel(EventTypes.ddDemolition, RandomStream.Model.demolition, this);
     }
 
 
@@ -99,8 +102,15 @@ public class DemolitionModel {
     }
 
 
+    public double getEventProbability(int dwellingId) {
+        // probability that dwelling with ID dwellingId is demolished in this simulation period
+        Dwelling dd = Dwelling.getDwellingFromId(dwellingId);
+        return demolitionProbability[dd.getQuality() - 1][(dd.getResidentId() > 0) ? 1 : 0];
+    }
+
+
     public void checkDemolition (int dwellingId, MovesModel move, InOutMigration iomig) {
-        // check if is demolished
+        // check if is demolished, dwellings selected in batch are demolished without a draw
 
         Dwelling dd = Dwelling.getDwellingFromId(dwellingId);
         if (!EventRules.ruleDemolishDwelling(dd)) return;  // Dwelling not available for demolition
@@ -109,7 +119,8 @@ public class DemolitionModel {
         int occupied;
         if (residentId > 0) occupied = 1;
         else occupied = 0;
-        if (SiloModel.rand.nextDouble() < demolitionProbability[quality - 1][occupied]) {
+        if (EventManager.isSelectedInBatch(EventTypes.ddDemolition) ||
+                SiloModel.rand.nextDouble() < demolitionProbability[quality - 1][occupied]) {
             // demolish dwelling
             if (occupied == 1) {
                 // dwelling is currently occupied, force household to move out
@@ -141,7 +141,7 @@ public class PricingModel {
         }
         realEstateData.setAvePriceByDwellingType(averagePrice);
 
-        PrintWriter pw = SiloUtil.openFileForSequentialWriting(("priceUpdate"+String.valueOf(year)+".csv"), false);
+        PrintWriter pw = SiloUtil.openFileForAsynchronousWriting(("priceUpdate"+String.valueOf(year)+".csv"), false);
         pw.println("type,regVacRate,oldPrice,newPrice,frequency");
         for (String token: priceChange.keySet()) {
             String[] values = token.split("_");
@@ -1,11 +1,13 @@
 package edu.umd.ncsg.realEstate;
 
 import edu.umd.ncsg.SiloUtil;
+import edu.umd.ncsg.events.BatchEventModel;
 import edu.umd.ncsg.events.EventRules;
 import edu.umd.ncsg.events.EventManager;
 import edu.umd.ncsg.events.EventTypes;
 import edu.umd.ncsg.data.Dwelling;
 import edu.umd.ncsg.data.RealEstateDataManager;
+import edu.umd.ncsg.utils.RandomStream;
 import com.pb.common.util.ResourceUtil;
 import com.pb.common.calculator.UtilityExpressionCalculator;
 
@@ -20,7 +22,7 @@ import org.apache.log4j.Logger;
  * Created on 7 January 2010 in Rhede
  **/
 
-public class RenovationModel {
+public class RenovationModel implements BatchEventModel {
     static Logger logger = Logger.getLogger(RenovationModel.class);
     static Logger traceLogger = Logger.getLogger("trace");
 
@@ -44,6 +46,7 @@ public class RenovationModel {
 		dataSheetNumber = ResourceUtil.getIntegerProperty(rb, PROPERTIES_RealEstate_UEC_DATA_SHEET);
 
         setupRenovationModel();
+        EventManager.registerBatchEventModel(EventTypes.ddChangeQual, RandomStream.Model.renovation, this);
 	}
 
 
@@ -82,12 +85,22 @@ public class RenovationModel {
 	}
 
 
+    public double getEventProbability(int dwellingId) {
+        // probability that quality of dwelling with ID dwellingId changes in this simulation period
+        double[] probs = getProbabilities(Dwelling.getDwellingFromId(dwellingId).getQuality());
+        return 1 - probs[2] / SiloUtil.getSum(probs);
+    }
+
+
     public void checkRenovation(int dwellingId) {
         // check if dwelling is renovated or deteriorates
         Dwelling dd = Dwelling.getDwellingFromId(dwellingId);
         if (!EventRules.ruleChangeDwellingQuality(dd)) return;  // Dwelling not available for renovation
         int currentQuality = dd.getQuality();
-        int selected = SiloUtil.select(getProbabilities(currentQuality));
+        double[] probs = getProbabilities(currentQuality);
+        // dwellings selected in batch change their quality, select direction with the probabilities of the changes
+        if (EventManager.isSelectedInBatch(EventTypes.ddChangeQual)) probs[2] = 0;
+        int selected = SiloUtil.select(probs);
 
         if (selected != 2) {
             EventManager.countEvent(EventTypes.ddChangeQual);
@@ -124,7 +137,7 @@ public class RenovationModel {
         double[] currentShare = RealEstateDataManager.getCurrentQualShares();
         // if share of certain quality level is currently 0, set it to very small number to ensure model keeps working
         for (int i = 0; i < currentShare.length; i++) if (currentShare[i] == 0) currentShare[i] = 0.01d;
-        double[] initialShare = RealEstateDataManager.getInitialQualShares();
+        double[] initialShare = RealEstateDataManager.getInitialQualShares().clone();
         for (int i = 0; i < initialShare.length; i++) if (initialShare[i] == 0) initialShare[i] = 0.01d;
         double[] probs = new double[5];
         for (int i = 0; i < probs.length; i++) {
@@ -104,7 +104,7 @@ public class MovesModel {
         evaluateAllDwellingUtilities();
         averageHousingSatisfaction = new double[HouseholdType.values().length];
         int[] hhCountyByType = new int[HouseholdType.values().length];
-        for (Household hh: Household.getHouseholdArray()) {
+        for (Household hh: Household.getHouseholds()) {
             double util = Dwelling.getDwellingFromId(hh.getDwellingId()).getUtilOfResident();
             int count = hh.getHouseholdType().ordinal();
             averageHousingSatisfaction[count] += util;
@@ -121,7 +121,7 @@ public class MovesModel {
         zonalRacialComposition = new float[geoData.getZones().length][4];
         regionalRacialComposition = new float[geoData.getRegionList().length][4];
         SiloUtil.setArrayToValue(zonalRacialComposition, 0f);
-        for (Household hh: Household.getHouseholdArray()) {
+        for (Household hh: Household.getHouseholds()) {
             zonalRacialComposition[geoData.getZoneIndex(hh.getHomeZone())][hh.getRace().ordinal()]++;
             int region = geoData.getRegionOfZone(hh.getHomeZone());
             regionalRacialComposition[geoData.getRegionIndex(region)][hh.getRace().ordinal()]++;
@@ -166,7 +166,7 @@ public class MovesModel {
         numAltsEvalDwelling = ddUtilityModel.getNumberOfAlternatives();
         evalDwellingAvail = new int[numAltsEvalDwelling + 1];
         for (int i = 1; i < evalDwellingAvail.length; i++) evalDwellingAvail[i] = 1;
-        for (Dwelling dd: Dwelling.getDwellingArray()) {
+        for (Dwelling dd: Dwelling.getDwellings()) {
             if (dd.getResidentId() == -1) {
                 // dwelling is vacant, evaluate for all household types
                 double utils[] = updateUtilitiesOfVacantDwelling(dd);
@@ -390,14 +390,11 @@ public class MovesModel {
     private int calculateRegPrice(int region) {
         // calculate the average price across all dwelling types
 
-        int priceSum = 0;
+        long priceSum = 0;
         int counter = 0;
-        for (Dwelling d: Dwelling.getDwellingArray()) {
-            int zone = d.getZone();
-            if (geoData.getRegionOfZone(zone) == region) {
-                priceSum += d.getPrice();
-                counter++;
-            }
+        for (DwellingType dt: DwellingType.values()) {
+            priceSum += DwellingAggregates.getPriceSumByRegion(dt.ordinal(), region);
+            counter += DwellingAggregates.getCountByRegion(dt.ordinal(), region);
         }
         return (int) ((priceSum * 1f) / (counter * 1f) + 0.5f);
     }
@@ -549,12 +546,10 @@ public class MovesModel {
         int selectedRegion = SiloUtil.select(regionUtilities);
 
         // Step 2: select vacant dwelling in selected region
-        int[] vacantDwellings = RealEstateDataManager.getListOfVacantDwellingsInRegion(regions[selectedRegion]);
+        // No household will evaluate more than 20 dwellings
+        int[] vacantDwellings = RealEstateDataManager.sampleVacantDwellingsInRegion(regions[selectedRegion], 20, SiloModel.rand);
         double[] expProbs = SiloUtil.createArrayWithValue(vacantDwellings.length, 0d);
-        int maxNumberOfDwellings = Math.min(20, vacantDwellings.length);  // No household will evaluate more than 20 dwellings
-        float factor = ((float) maxNumberOfDwellings / (float) vacantDwellings.length);
         for (int i = 0; i < vacantDwellings.length; i++) {
-            if (SiloModel.rand.nextFloat() > factor) continue;
             Dwelling dd = Dwelling.getDwellingFromId(vacantDwellings[i]);
             int msa = geoData.getMSAOfZone(dd.getZone());
             if (dd.getRestriction() > 0 &&    // dwelling is restricted to households with certain income
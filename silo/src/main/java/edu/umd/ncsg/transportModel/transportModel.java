@@ -78,9 +78,9 @@ public class transportModel {
         int[] off = new int[geoData.getZones().length];
         int[] oth = new int[geoData.getZones().length];
 
-        for (Household hh : Household.getHouseholdArray()) hhs[geoData.getZoneIndex(hh.getHomeZone())]++;
+        for (Household hh : Household.getHouseholds()) hhs[geoData.getZoneIndex(hh.getHomeZone())]++;
         String[] jobTypes = JobType.getJobTypes();
-        for (Job jj : Job.getJobArray()) {
+        for (Job jj : Job.getJobs()) {
             if (jj.getType().equalsIgnoreCase(jobTypes[0])) ret[geoData.getZoneIndex(jj.getZone())]++;
             else if (jj.getType().equalsIgnoreCase(jobTypes[1])) off[geoData.getZoneIndex(jj.getZone())]++;
             else if (jj.getType().equalsIgnoreCase(jobTypes[2])) ind[geoData.getZoneIndex(jj.getZone())]++;
@@ -121,7 +121,7 @@ public class transportModel {
         PrintWriter pwWrk = SiloUtil.openFileForSequentialWriting(fileNameWrk, false);
         if (pwWrk == null) return;
         int[][][] hhByWorkersAndInc = new int[geoData.getZones().length][4][5];
-        for (Household hh : Household.getHouseholdArray()) {
+        for (Household hh : Household.getHouseholds()) {
             int inc = HouseholdDataManager.getSpecifiedIncomeCategoryForIncome(mstmIncCategories, hh.getHhIncome());
             int wrk = Math.min(HouseholdDataManager.getNumberOfWorkersInHousehold(hh), 3);
             int zone = hh.getHomeZone();
@@ -154,7 +154,7 @@ public class transportModel {
         PrintWriter pwSize = SiloUtil.openFileForSequentialWriting(fileNameSize, false);
         if (pwSize == null) return;
         int[][][] hhBySizeAndInc = new int[geoData.getZones().length][5][5];
-        for (Household hh : Household.getHouseholdArray()) {
+        for (Household hh : Household.getHouseholds()) {
             int inc = HouseholdDataManager.getSpecifiedIncomeCategoryForIncome(mstmIncCategories, hh.getHhIncome());
             int size = Math.min(hh.getHhSize(), 5);
             int zone = hh.getHomeZone();
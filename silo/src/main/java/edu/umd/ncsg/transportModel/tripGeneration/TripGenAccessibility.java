@@ -3,6 +3,7 @@ package edu.umd.ncsg.transportModel.tripGeneration;
 import com.pb.common.util.ResourceUtil;
 import edu.umd.ncsg.SiloUtil;
 import edu.umd.ncsg.data.Accessibility;
+import edu.umd.ncsg.data.AccessibilityCalculator;
 import edu.umd.ncsg.data.geoData;
 import org.apache.log4j.Logger;
 
@@ -45,35 +46,17 @@ public class TripGenAccessibility {
         float beta = (float) ResourceUtil.getDoubleProperty(rb, "accessibility.beta");
 
         int[] zones = geoData.getZones();
-        autoAccessibilityHouseholds = new float[zones.length];
-        autoAccessibilityRetail = new float[zones.length];
-        autoAccessibilityOther = new float[zones.length];
-        transitAccessibilityOther = new float[zones.length];
-        for (int i = 0; i < zones.length; i++) {
-            autoAccessibilityHouseholds[i] = 0;
-            autoAccessibilityRetail[i] = 0;
-            autoAccessibilityOther[i] = 0;
-            transitAccessibilityOther[i] = 0;
-            for (int zone : zones) {
-                double autoImpedance;
-                if (Accessibility.getAutoTravelTime(zones[i], zone) == 0) {      // should never happen for auto
-                    autoImpedance = 0;
-                } else {
-                    autoImpedance = Math.exp(beta * Accessibility.getAutoTravelTime(zones[i], zone));
-                }
-                double transitImpedance;
-                if (Accessibility.getTransitTravelTime(zones[i], zone) == 0) {   // zone is not connected by walk-to-transit
-                    transitImpedance = 0;
-                } else {
-                    transitImpedance = Math.exp(beta * Accessibility.getTransitTravelTime(zones[i], zone));
-                }
-
-                autoAccessibilityHouseholds[i] += Math.pow(householdsByZone[geoData.getZoneIndex(zone)], alpha) * autoImpedance;
-                autoAccessibilityRetail[i] += Math.pow(retailEmplByZone[geoData.getZoneIndex(zone)], alpha) * autoImpedance;
-                autoAccessibilityOther[i] += Math.pow(otherEmplByZone[geoData.getZoneIndex(zone)], alpha) * autoImpedance;
-                transitAccessibilityOther[i] += Math.pow(otherEmplByZone[geoData.getZoneIndex(zone)], alpha) * transitImpedance;
-            }
-        }
+        double[] otherEmplWeights = AccessibilityCalculator.getPowers(otherEmplByZone, alpha);
+        // a travel time of 0 should never happen for auto and means that a zone is not connected by walk-to-transit
+        double[][] auto = AccessibilityCalculator.calculateHansenAccessibilities(Accessibility.getAutoSkim(), zones, beta,
+                AccessibilityCalculator.getPowers(householdsByZone, alpha),
+                AccessibilityCalculator.getPowers(retailEmplByZone, alpha), otherEmplWeights);
+        double[][] transit = AccessibilityCalculator.calculateHansenAccessibilities(Accessibility.getTransitSkim(), zones,
+                beta, otherEmplWeights);
+        autoAccessibilityHouseholds = toFloat(auto[0]);
+        autoAccessibilityRetail = toFloat(auto[1]);
+        autoAccessibilityOther = toFloat(auto[2]);
+        transitAccessibilityOther = toFloat(transit[0]);
         autoAccessibilityHouseholds = SiloUtil.scaleArray(autoAccessibilityHouseholds, 100);
         autoAccessibilityRetail = SiloUtil.scaleArray(autoAccessibilityRetail, 100);
         autoAccessibilityOther = SiloUtil.scaleArray(autoAccessibilityOther, 100);
@@ -81,6 +64,13 @@ public class TripGenAccessibility {
     }
 
 
+    private static float[] toFloat(double[] values) {
+        float[] floatValues = new float[values.length];
+        for (int i = 0; i < values.length; i++) floatValues[i] = (float) values[i];
+        return floatValues;
+    }
+
+
 
     public float getAutoAccessibilityHouseholds(int zone) {
         return autoAccessibilityHouseholds[geoData.getZoneIndex(zone)];
@@ -121,7 +121,7 @@ public class TripGeneration {
             int[] hhTypeArray = tgData.defineHouseholdTypeOfEachSurveyRecords(selectAutoMode(strPurp), hhTypeDef);
             HashMap<String, Integer[]> tripsByHhTypeAndPurpose = tgData.collectTripFrequencyDistribution(hhTypeArray);
             // Generate trips for each household
-            for (Household hh: Household.getHouseholdArray()) {
+            for (Household hh: Household.getHouseholds()) {
                 int region = (int) regionDefinition.getIndexedValueAt(hh.getHomeZone(), "Regions");
                 int incCategory = translateIncomeIntoCategory (hh.getHhIncome());
                 int hhType = tgData.getHhType(selectAutoMode(strPurp), hhTypeDef, hh.getHhSize(), hh.getNumberOfWorkers(),
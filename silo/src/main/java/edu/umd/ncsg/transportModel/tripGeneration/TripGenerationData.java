@@ -158,15 +158,20 @@ public class TripGenerationData {
         int[] hhTypeCounter = new int[SiloUtil.getHighestVal(hhTypeDef.getColumnAsInt("hhType")) + 1];
         int[] hhTypeArray = new int[htsHH.getRowCount() + 1];
 
+        TableDataSet.FloatColumn sizeColumn = htsHH.getFloatColumn("hhsiz");
+        TableDataSet.FloatColumn workersColumn = htsHH.getFloatColumn("hhwrk");
+        TableDataSet.FloatColumn incomeColumn = htsHH.getFloatColumn("incom");
+        TableDataSet.FloatColumn vehiclesColumn = htsHH.getFloatColumn("hhveh");
+        TableDataSet.FloatColumn regionColumn = htsHH.getFloatColumn("urbanSuburbanRural");
         for (int row = 1; row <= htsHH.getRowCount(); row++) {
-            int hhSze = (int) htsHH.getValueAt(row, "hhsiz");
+            int hhSze = (int) sizeColumn.get(row);
             hhSze = Math.min(hhSze, 7);    // hhsiz 8 has only 19 records, aggregate with hhsiz 7
-            int hhWrk = (int) htsHH.getValueAt(row, "hhwrk");
+            int hhWrk = (int) workersColumn.get(row);
             hhWrk = Math.min(hhWrk, 4);    // hhwrk 6 has 1 and hhwrk 5 has 7 records, aggregate with hhwrk 4
-            int hhInc = (int) htsHH.getValueAt(row, "incom");
-            int hhVeh = (int) htsHH.getValueAt(row, "hhveh");
+            int hhInc = (int) incomeColumn.get(row);
+            int hhVeh = (int) vehiclesColumn.get(row);
             hhVeh = Math.min (hhVeh, 3);   // Auto-ownership model will generate groups 0, 1, 2, 3+ only.
-            int region = (int) htsHH.getValueAt(row, "urbanSuburbanRural");
+            int region = (int) regionColumn.get(row);
 
             int hhTypeId = getHhType(autoDef, hhTypeDef, hhSze, hhWrk, hhInc, hhVeh, region);
             hhTypeArray[row] = hhTypeId;
@@ -193,17 +198,27 @@ public class TripGenerationData {
             else if (hhVeh == hhWrk) hhAut = 1;  // equal number of autos and workers
             else hhAut = 2;                      // more autos than workers
         }
+        TableDataSet.FloatColumn sizeLow = hhTypeDef.getFloatColumn("size_l");
+        TableDataSet.FloatColumn sizeHigh = hhTypeDef.getFloatColumn("size_h");
+        TableDataSet.FloatColumn workersLow = hhTypeDef.getFloatColumn("workers_l");
+        TableDataSet.FloatColumn workersHigh = hhTypeDef.getFloatColumn("workers_h");
+        TableDataSet.FloatColumn incomeLow = hhTypeDef.getFloatColumn("income_l");
+        TableDataSet.FloatColumn incomeHigh = hhTypeDef.getFloatColumn("income_h");
+        TableDataSet.FloatColumn autosLow = hhTypeDef.getFloatColumn("autos_l");
+        TableDataSet.FloatColumn autosHigh = hhTypeDef.getFloatColumn("autos_h");
+        TableDataSet.FloatColumn regionLow = hhTypeDef.getFloatColumn("region_l");
+        TableDataSet.FloatColumn regionHigh = hhTypeDef.getFloatColumn("region_h");
         for (int hhType = 1; hhType <= hhTypeDef.getRowCount(); hhType++) {
-            if (hhSze >= hhTypeDef.getIndexedValueAt(hhType, "size_l") &&          // Household size
-                    hhSze <= hhTypeDef.getIndexedValueAt(hhType, "size_h") &&
-                    hhWrk >= hhTypeDef.getIndexedValueAt(hhType, "workers_l") &&   // Number of workers
-                    hhWrk <= hhTypeDef.getIndexedValueAt(hhType, "workers_h") &&
-                    hhInc >= hhTypeDef.getIndexedValueAt(hhType, "income_l") &&    // Household income
-                    hhInc <= hhTypeDef.getIndexedValueAt(hhType, "income_h") &&
-                    hhAut >= hhTypeDef.getIndexedValueAt(hhType, "autos_l") &&     // Number of vehicles
-                    hhAut <= hhTypeDef.getIndexedValueAt(hhType, "autos_h") &&
-                    hhReg >= hhTypeDef.getIndexedValueAt(hhType, "region_l") &&    // Region (urban, suburban, rural)
-                    hhReg <= hhTypeDef.getIndexedValueAt(hhType, "region_h")) {
+            if (hhSze >= sizeLow.getIndexed(hhType) &&          // Household size
+                    hhSze <= sizeHigh.getIndexed(hhType) &&
+                    hhWrk >= workersLow.getIndexed(hhType) &&   // Number of workers
+                    hhWrk <= workersHigh.getIndexed(hhType) &&
+                    hhInc >= incomeLow.getIndexed(hhType) &&    // Household income
+                    hhInc <= incomeHigh.getIndexed(hhType) &&
+                    hhAut >= autosLow.getIndexed(hhType) &&     // Number of vehicles
+                    hhAut <= autosHigh.getIndexed(hhType) &&
+                    hhReg >= regionLow.getIndexed(hhType) &&    // Region (urban, suburban, rural)
+                    hhReg <= regionHigh.getIndexed(hhType)) {
                 return (int) hhTypeDef.getIndexedValueAt(hhType, "hhType");
             }
         }
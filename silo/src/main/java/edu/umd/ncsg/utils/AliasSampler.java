@@ -0,0 +1,102 @@
+package edu.umd.ncsg.utils;
+
+import java.util.Random;
+
+/**
+ * Samples indices of a fixed weight vector with Vose's alias method. Building the tables takes O(n), every draw takes
+ * O(1) with one random number, which pays off when many draws are taken from the same weights. Index i is selected
+ * with probability weights[i] / sum of all weights, like SiloUtil.select(), although a given random number selects
+ * a different index than SiloUtil.select(). Indices with a weight of 0 are never selected. Weights must not be
+ * negative and at least one weight must be positive.
+ **/
+
+public class AliasSampler {
+
+    private final double[] probability;
+    private final int[] alias;
+
+
+    public AliasSampler(double[] weights) {
+        int n = weights.length;
+        probability = new double[n];
+        alias = new int[n];
+        double sum = 0;
+        for (double weight: weights) sum += weight;
+        if (n == 0 || !(sum > 0)) throw new IllegalArgumentException("Weights need to add up to a positive value.");
+
+        // scale weights to an average of 1 and split them into columns below and above average
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / sum;
+            if (scaled[i] < 1) small[smallCount++] = i;
+            else large[largeCount++] = i;
+        }
+        // fill every column below average with the rest from a column above average
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            probability[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] = (scaled[more] + scaled[less]) - 1;
+            if (scaled[more] < 1) small[smallCount++] = more;
+            else large[largeCount++] = more;
+        }
+        // remaining columns are full up to rounding errors
+        while (largeCount > 0) {
+            int more = large[--largeCount];
+            probability[more] = 1;
+            alias[more] = more;
+        }
+        while (smallCount > 0) {
+            int less = small[--smallCount];
+            probability[less] = (weights[less] > 0) ? 1 : 0;
+            alias[less] = less;
+        }
+        // columns of zero weight that were left over due to rounding errors point to any column with a positive weight
+        int positive = 0;
+        while (!(weights[positive] > 0)) positive++;
+        for (int i = 0; i < n; i++) {
+            if (probability[i] == 0 && alias[i] == i) alias[i] = positive;
+        }
+    }
+
+
+    public AliasSampler(float[] weights) {
+        this(toDouble(weights));
+    }
+
+
+    private static double[] toDouble(float[] weights) {
+        double[] doubleWeights = new double[weights.length];
+        for (int i = 0; i < weights.length; i++) doubleWeights[i] = weights[i];
+        return doubleWeights;
+    }
+
+
+    public int size() {
+        return probability.length;
+    }
+
+
+    public int sample(double random) {
+        // select index with uniform random number in [0, 1), the integer part picks the column, the fraction decides
+        // between column and alias
+        double position = random * probability.length;
+        int column = Math.min((int) position, probability.length - 1);
+        return (position - column < probability[column]) ? column : alias[column];
+    }
+
+
+    public int sample(Random rand) {
+        return sample(rand.nextDouble());
+    }
+
+
+    public int sample(RandomStream random) {
+        return sample(random.nextDouble());
+    }
+}
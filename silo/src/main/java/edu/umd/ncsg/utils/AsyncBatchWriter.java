@@ -0,0 +1,219 @@
+package edu.umd.ncsg.utils;
+
+import org.apache.log4j.Logger;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writer that collects output in memory and hands it over in batches to a background thread, which encodes the
+ * batches and writes them to disk. Formatting on the simulation thread thereby overlaps with disk latency. All files
+ * share one writer thread and one bounded queue, a full queue blocks the simulation thread until the writer thread
+ * has caught up. Batches of one file are written in the order in which they were handed over.
+ *
+ * close() returns immediately; awaitCompletion() blocks until all files are written and closed. Pending output is
+ * also written when the JVM shuts down. A failure of the writer thread is kept with the file it was writing and
+ * thrown by the next write() or close() of that file and by awaitCompletion(), the writer thread continues with the
+ * batches of other files.
+ **/
+
+public class AsyncBatchWriter extends Writer {
+
+    static Logger logger = Logger.getLogger(AsyncBatchWriter.class);
+
+    private static final int BATCH_SIZE = 256 * 1024;         // characters
+    private static final int QUEUE_CAPACITY = 64;             // batches
+    private static final int BUFFER_SIZE = 4 * 1024 * 1024;   // bytes
+
+    private static BlockingQueue<Batch> queue;
+    private static Thread writerThread;
+    private static final AtomicInteger pendingBatches = new AtomicInteger();
+    private static final Object completionLock = new Object();
+    private static volatile IOException firstFailure;
+
+    private final String fileName;
+    private final FileOutputStream file;
+    private final FileChannel channel;
+    private final OutputStream compressedStream;    // null if output is not compressed
+    private final Charset charset = Charset.defaultCharset();
+    private StringBuilder batch = new StringBuilder(BATCH_SIZE);
+    private boolean closed = false;
+    private volatile IOException failure;
+
+
+    private static class Batch {
+        final AsyncBatchWriter target;
+        final String text;
+        final boolean last;
+
+        Batch(AsyncBatchWriter target, String text, boolean last) {
+            this.target = target;
+            this.text = text;
+            this.last = last;
+        }
+    }
+
+
+    public AsyncBatchWriter(String fileName, boolean append, boolean compress) throws IOException {
+        this.fileName = fileName;
+        file = new FileOutputStream(fileName, append);
+        channel = file.getChannel();
+        compressedStream = compress ? new GZIPOutputStream(Channels.newOutputStream(channel), 64 * 1024) : null;
+        startWriterThread();
+    }
+
+
+    private static synchronized void startWriterThread() {
+        if (writerThread != null) return;
+        queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        writerThread = new Thread(new Runnable() {
+            public void run() {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+                while (true) {
+                    Batch batch;
+                    try {
+                        batch = queue.take();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    try {
+                        batch.target.writeBatch(batch, buffer);
+                    } catch (Throwable t) {
+                        batch.target.fail(t);
+                    } finally {
+                        if (pendingBatches.decrementAndGet() == 0) {
+                            synchronized (completionLock) {
+                                completionLock.notifyAll();
+                            }
+                        }
+                    }
+                }
+            }
+        }, "silo-output-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            public void run() {
+                awaitCompletion();
+            }
+        }));
+    }
+
+
+    public static void awaitCompletion() {
+        // block until all batches handed over so far are written, throws the first failure of the writer thread
+        synchronized (completionLock) {
+            while (pendingBatches.get() > 0) {
+                try {
+                    completionLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        if (firstFailure != null) throw new RuntimeException("Asynchronous output could not be written.", firstFailure);
+    }
+
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        ensureOpen();
+        batch.append(cbuf, off, len);
+        if (batch.length() >= BATCH_SIZE) submitBatch(false);
+    }
+
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        ensureOpen();
+        batch.append(str, off, off + len);
+        if (batch.length() >= BATCH_SIZE) submitBatch(false);
+    }
+
+
+    @Override
+    public void flush() throws IOException {
+        // hand over collected output without waiting for it to be written
+        ensureOpen();
+        if (batch.length() > 0) submitBatch(false);
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        submitBatch(true);
+        closed = true;
+        batch = null;
+        if (failure != null) throw failure;
+    }
+
+
+    private void ensureOpen() throws IOException {
+        if (closed) throw new IOException("Writer for " + fileName + " is closed.");
+        if (failure != null) throw failure;
+    }
+
+
+    private void submitBatch(boolean last) throws IOException {
+        Batch next = new Batch(this, batch.toString(), last);
+        batch.setLength(0);
+        pendingBatches.incrementAndGet();
+        try {
+            queue.put(next);
+        } catch (InterruptedException e) {
+            pendingBatches.decrementAndGet();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing " + fileName);
+        }
+    }
+
+
+    private void writeBatch(Batch batch, ByteBuffer buffer) {
+        // runs on writer thread
+        try {
+            if (failure == null && !batch.text.isEmpty()) {
+                byte[] bytes = batch.text.getBytes(charset);
+                if (compressedStream != null) {
+                    compressedStream.write(bytes);
+                } else {
+                    for (int pos = 0; pos < bytes.length; pos += buffer.capacity()) {
+                        buffer.clear();
+                        buffer.put(bytes, pos, Math.min(buffer.capacity(), bytes.length - pos));
+                        buffer.flip();
+                        while (buffer.hasRemaining()) channel.write(buffer);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        }
+        if (!batch.last) return;
+        try {
+            if (compressedStream != null) compressedStream.close();
+            file.close();
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        }
+    }
+
+
+    private void fail(Throwable t) {
+        // runs on writer thread, keeps the first failure of this file and of all files
+        logger.error("Could not write to file " + fileName + ": " + t);
+        IOException e = t instanceof IOException ? (IOException) t : new IOException("Could not write " + fileName, t);
+        if (failure == null) failure = e;
+        if (firstFailure == null) firstFailure = e;
+    }
+}
@@ -0,0 +1,76 @@
+package edu.umd.ncsg.utils;
+
+import java.util.Random;
+
+/**
+ * Samples indices of a weight vector by binary search in the cumulative sums of the weights. Building takes one pass
+ * over the weights, every draw takes O(log n). Weights must not be negative. The cumulative sums are added up in the
+ * same order as in SiloUtil.select(double[]), therefore a given random number selects exactly the same index as
+ * SiloUtil.select(), and sample(SiloModel.rand) can replace SiloUtil.select(weights) without changing results. For
+ * float weights, sums are added up and random numbers are drawn in single precision like in SiloUtil.select(float[]).
+ **/
+
+public class PrefixSumSampler {
+
+    private final double[] cumulativeWeights;
+    private final boolean singlePrecision;
+
+
+    public PrefixSumSampler(double[] weights) {
+        cumulativeWeights = new double[weights.length];
+        singlePrecision = false;
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += weights[i];
+            cumulativeWeights[i] = sum;
+        }
+    }
+
+
+    public PrefixSumSampler(float[] weights) {
+        // float sums are represented exactly by doubles, therefore all comparisons give the same result as in floats
+        cumulativeWeights = new double[weights.length];
+        singlePrecision = true;
+        float sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += weights[i];
+            cumulativeWeights[i] = sum;
+        }
+    }
+
+
+    public double getSum() {
+        // return sum of all weights
+        return cumulativeWeights.length == 0 ? 0 : cumulativeWeights[cumulativeWeights.length - 1];
+    }
+
+
+    public int sample(double random) {
+        // return first index whose cumulative weight is larger than random * sum, or the last index if there is none
+        return search(getSum() * random);
+    }
+
+
+    private int search(double position) {
+        int low = 0;
+        int high = cumulativeWeights.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cumulativeWeights[middle] > position) high = middle;
+            else low = middle + 1;
+        }
+        return high;
+    }
+
+
+    public int sample(Random rand) {
+        if (singlePrecision) return search((float) getSum() * rand.nextFloat());
+        return sample(rand.nextDouble());
+    }
+
+
+    public int sample(RandomStream random) {
+        if (singlePrecision) return search((float) getSum() * random.nextFloat());
+        return sample(random.nextDouble());
+    }
+}
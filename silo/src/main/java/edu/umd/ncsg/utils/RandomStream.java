@@ -0,0 +1,80 @@
+package edu.umd.ncsg.utils;
+
+/**
+ * Counter-based random numbers for one entity (person, household, dwelling, ...) in one model and year. The n-th draw
+ * of a stream is a SplitMix64 hash of the run seed, year, model, entity id and n, therefore draws do not depend on
+ * any shared state or on the order in which entities are processed. A loop over entities that takes its draws from
+ * per-entity streams gives the same result when run in parallel with any number of threads as in a single thread.
+ *
+ * A stream itself is not thread-safe and should be used by the thread that created it, which is the natural case
+ * when a stream is created for the entity that is being processed.
+ **/
+
+public class RandomStream {
+
+    /**
+     * Models that draw from per-entity streams. Every model has its own streams, so that adding draws to one model
+     * does not change the draws of another model.
+     **/
+    public enum Model {
+        incomeChange, death, birth, leaveParentHh, divorce, renovation, demolition
+    }
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private static long seed;
+
+    private final long key;
+    private long counter = 0;
+
+
+    public RandomStream(int year, Model model, int entityId) {
+        long k = mix(seed + GOLDEN_GAMMA);
+        k = mix(k + year);
+        k = mix(k + model.ordinal());
+        key = mix(k + entityId);
+    }
+
+
+    public static void setSeed(long runSeed) {
+        // set seed of the run, has to be called before streams are created
+        seed = runSeed;
+    }
+
+
+    public static long getSeed() {
+        return seed;
+    }
+
+
+    private static long mix(long z) {
+        // SplitMix64 finalizer
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+
+    public long nextLong() {
+        counter++;
+        return mix(key + counter * GOLDEN_GAMMA);
+    }
+
+
+    public double nextDouble() {
+        // uniform in [0, 1) with 53 random bits
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+
+    public float nextFloat() {
+        // uniform in [0, 1) with 24 random bits
+        return (nextLong() >>> 40) * 0x1.0p-24f;
+    }
+
+
+    public int nextInt(int bound) {
+        // uniform in [0, bound), bound needs to be positive
+        return (int) (((nextLong() >>> 32) * bound) >>> 32);
+    }
+}
@@ -0,0 +1,108 @@
+package edu.umd.ncsg.data;
+
+import com.pb.common.matrix.Matrix;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that incremental updates of Hansen accessibilities agree with a full recalculation after the numbers of
+ * households and jobs of some zones changed.
+ **/
+
+public class AccessibilityCalculatorTest {
+
+    private static final int ZONES = 200;
+    private static final float ALPHA = 1.2f;
+    private static final float BETA = -0.3f;
+    private static final double TOLERANCE = 1e-5;   // largest relative difference of an incremental update
+
+    private Random rand;
+    private int[] zones;
+    private Matrix skim;
+    private int[] households;
+    private int[] jobs;
+
+
+    @Before
+    public void setUp() {
+        rand = new Random(42);
+        zones = new int[ZONES];
+        for (int i = 0; i < ZONES; i++) zones[i] = 2 * i + 1;   // zone ids with gaps
+        float[][] times = new float[ZONES][ZONES];
+        for (float[] row: times) {
+            for (int j = 0; j < row.length; j++) row[j] = (rand.nextInt(100) == 0) ? 0 : 1 + 119 * rand.nextFloat();
+        }
+        skim = new Matrix(times);
+        skim.setExternalNumbersZeroBased(zones);
+        households = new int[ZONES];
+        jobs = new int[ZONES];
+        for (int i = 0; i < ZONES; i++) {
+            households[i] = rand.nextInt(3000);
+            jobs[i] = rand.nextInt(5000);
+        }
+    }
+
+
+    @Test
+    public void initialAccessibilitiesAreIdenticalToFullCalculation() {
+        AccessibilityCalculator.IncrementalHansenAccessibility incremental =
+                new AccessibilityCalculator.IncrementalHansenAccessibility(skim, zones, ALPHA, BETA, households);
+        double[] full = calculateFull(households);
+        double[] initial = incremental.getAccessibilities();
+        for (int i = 0; i < ZONES; i++) assertEquals(full[i], initial[i], 0);
+    }
+
+
+    @Test
+    public void updateAfterHouseholdAndJobChangesMatchesFullCalculation() {
+        AccessibilityCalculator.IncrementalHansenAccessibility householdAccessibility =
+                new AccessibilityCalculator.IncrementalHansenAccessibility(skim, zones, ALPHA, BETA, households);
+        AccessibilityCalculator.IncrementalHansenAccessibility jobAccessibility =
+                new AccessibilityCalculator.IncrementalHansenAccessibility(skim, zones, ALPHA, BETA, jobs);
+        for (int year = 0; year < 5; year++) {
+            households = change(households);
+            jobs = change(jobs);
+            householdAccessibility.update(households);
+            jobAccessibility.update(jobs);
+            assertRelativelyEqual(calculateFull(households), householdAccessibility.getAccessibilities());
+            assertRelativelyEqual(calculateFull(jobs), jobAccessibility.getAccessibilities());
+        }
+    }
+
+
+    @Test
+    public void updateWithoutChangesKeepsAccessibilities() {
+        AccessibilityCalculator.IncrementalHansenAccessibility incremental =
+                new AccessibilityCalculator.IncrementalHansenAccessibility(skim, zones, ALPHA, BETA, jobs);
+        double[] before = incremental.getAccessibilities();
+        assertEquals(0, incremental.update(jobs.clone()));
+        double[] after = incremental.getAccessibilities();
+        for (int i = 0; i < ZONES; i++) assertEquals(before[i], after[i], 0);
+    }
+
+
+    private int[] change(int[] values) {
+        // change values of some zones, including zones that drop to 0 and zones that start at 0
+        int[] changed = values.clone();
+        for (int i = 0; i < ZONES / 10; i++) {
+            int zone = rand.nextInt(ZONES);
+            changed[zone] = (rand.nextInt(10) == 0) ? 0 : Math.max(changed[zone] + rand.nextInt(1001) - 500, 0);
+        }
+        return changed;
+    }
+
+
+    private double[] calculateFull(int[] values) {
+        return AccessibilityCalculator.calculateHansenAccessibilities(skim, zones, BETA,
+                AccessibilityCalculator.getPowers(values, ALPHA))[0];
+    }
+
+
+    private static void assertRelativelyEqual(double[] expected, double[] actual) {
+        for (int i = 0; i < expected.length; i++) assertEquals(expected[i], actual[i], TOLERANCE * Math.abs(expected[i]));
+    }
+}
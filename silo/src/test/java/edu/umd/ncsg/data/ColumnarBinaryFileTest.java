@@ -0,0 +1,153 @@
+package edu.umd.ncsg.data;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Writes blocks and stores to columnar binary files and reads them back.
+ **/
+
+public class ColumnarBinaryFileTest {
+
+    @Test
+    public void allBlockTypesRoundTrip() throws IOException {
+        roundTrip(false);
+    }
+
+
+    @Test
+    public void allBlockTypesRoundTripCompressed() throws IOException {
+        roundTrip(true);
+    }
+
+
+    @Test
+    public void dwellingStoreRoundTrip() throws IOException {
+        DwellingStore store = new DwellingStore(4);
+        int[] ids = {3, 17, 5, 42, 8};
+        for (int id: ids) {
+            int slot = store.add(id);
+            store.zone[slot] = 100 + id;
+            store.hhId[slot] = (id == 5) ? -1 : 1000 + id;
+            store.type[slot] = (byte) (id % 4);
+            store.quality[slot] = 1 + id % 4;
+            store.price[slot] = 500 + 10 * id;
+            store.restriction[slot] = id / 100f;
+            store.utilOfResident[slot] = id / 3d;
+            store.utilByHhType[slot] = (id == 8) ? null : new double[]{id, -id};
+        }
+        store.remove(17);
+
+        String fileName = createTempFile().getPath();
+        try (ColumnarBinaryFile.Writer out = new ColumnarBinaryFile.Writer(fileName, true)) {
+            store.writeColumns(out);
+        }
+        assertTrue(ColumnarBinaryFile.isColumnarFile(fileName));
+        DwellingStore copy;
+        try (ColumnarBinaryFile.Reader in = new ColumnarBinaryFile.Reader(fileName)) {
+            assertEquals(1, in.getNumberOfSections());
+            copy = DwellingStore.readColumns(in);
+        }
+
+        assertEquals(store.size(), copy.size());
+        assertFalse(copy.contains(17));
+        for (int id: store.getIds()) {
+            int slot = store.getSlot(id);
+            int copySlot = copy.getSlot(id);
+            assertTrue(copySlot >= 0);
+            assertEquals(store.zone[slot], copy.zone[copySlot]);
+            assertEquals(store.hhId[slot], copy.hhId[copySlot]);
+            assertEquals(store.type[slot], copy.type[copySlot]);
+            assertEquals(store.quality[slot], copy.quality[copySlot]);
+            assertEquals(store.price[slot], copy.price[copySlot]);
+            assertEquals(store.restriction[slot], copy.restriction[copySlot], 0);
+            assertEquals(store.utilOfResident[slot], copy.utilOfResident[copySlot], 0);
+            if (store.utilByHhType[slot] == null) assertNull(copy.utilByHhType[copySlot]);
+            else assertEqualValues(store.utilByHhType[slot], copy.utilByHhType[copySlot]);
+        }
+    }
+
+
+    @Test
+    public void unexpectedBlockNameFails() throws IOException {
+        String fileName = createTempFile().getPath();
+        try (ColumnarBinaryFile.Writer out = new ColumnarBinaryFile.Writer(fileName, false)) {
+            out.startSection("test", 2, 1);
+            out.writeInts("a", new int[]{1, 2});
+        }
+        try (ColumnarBinaryFile.Reader in = new ColumnarBinaryFile.Reader(fileName)) {
+            in.startSection("test");
+            in.readInts("b", new int[2]);
+            fail("Reading a block under a different name has to fail");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("Expected block b"));
+        }
+    }
+
+
+    @Test
+    public void serializedFileIsNotColumnar() throws IOException {
+        File file = createTempFile();
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file))) {
+            out.writeObject(new Object[]{new int[]{1, 2, 3}});
+        }
+        assertFalse(ColumnarBinaryFile.isColumnarFile(file.getPath()));
+    }
+
+
+    private void roundTrip(boolean compress) throws IOException {
+        byte[] bytes = {1, -2, 3, 127};
+        int[] ints = {0, -1, Integer.MAX_VALUE, Integer.MIN_VALUE, 42};
+        float[] floats = {0.5f, -1.25f, Float.NaN, Float.MAX_VALUE};
+        double[] doubles = {Math.PI, -0.0, Double.MIN_VALUE};
+        String[] strings = {"", "zone", "Zürich"};
+
+        String fileName = createTempFile().getPath();
+        try (ColumnarBinaryFile.Writer out = new ColumnarBinaryFile.Writer(fileName, compress)) {
+            out.startSection("first", 5, 3);
+            out.writeBytes("bytes", bytes);
+            out.writeInts("ints", ints);
+            out.writeFloats("floats", floats);
+            out.startSection("second", 3, 2);
+            out.writeDoubles("doubles", doubles);
+            out.writeStrings("strings", strings);
+        }
+
+        try (ColumnarBinaryFile.Reader in = new ColumnarBinaryFile.Reader(fileName)) {
+            assertEquals(2, in.getNumberOfSections());
+            assertEquals(5, in.startSection("first"));
+            assertArrayEquals(bytes, in.readBytes("bytes", new byte[bytes.length]));
+            assertArrayEquals(ints, in.readInts("ints", new int[ints.length]));
+            float[] floatsRead = in.readFloats("floats", new float[floats.length]);
+            for (int i = 0; i < floats.length; i++) assertEquals(floats[i], floatsRead[i], 0);
+            assertEquals(0, in.getNumberOfBlocksLeft());
+            assertEquals(3, in.startSection("second"));
+            assertEqualValues(doubles, in.readDoubles("doubles", new double[doubles.length]));
+            assertArrayEquals(strings, in.readStrings("strings"));
+        }
+    }
+
+
+    private static File createTempFile() throws IOException {
+        File file = File.createTempFile("columnar", ".bin");
+        file.deleteOnExit();
+        return file;
+    }
+
+
+    private static void assertEqualValues(double[] expected, double[] actual) {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) assertEquals(expected[i], actual[i], 0);
+    }
+}
@@ -0,0 +1,74 @@
+package edu.umd.ncsg.data;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Removes and adds objects of an entity store from several threads at the same time.
+ **/
+
+public class EntityStoreTest {
+
+    private static final int OBJECTS = 20000;
+    private static final int THREADS = 4;
+
+
+    @Test
+    public void concurrentRemovesOfSameIdReleaseSlotOnce() throws InterruptedException {
+        final PersonStore store = new PersonStore(OBJECTS);
+        for (int id = 0; id < OBJECTS; id++) store.add(id);
+        runConcurrently(new Runnable() {
+            public void run() {
+                for (int id = 0; id < OBJECTS; id += 2) store.remove(id);
+            }
+        });
+        assertEquals(OBJECTS / 2, store.size());
+
+        // every recycled slot may only be handed out once
+        store.recycleReleasedSlots();
+        for (int id = OBJECTS; id < OBJECTS + OBJECTS / 2; id++) store.add(id);
+        assertEquals(OBJECTS, store.size());
+        Set<Integer> slots = new HashSet<>();
+        for (int id: store.getIds()) assertTrue("Slot used twice", slots.add(store.getSlot(id)));
+    }
+
+
+    @Test
+    public void concurrentAddsOfSameIdTakeOneSlot() throws InterruptedException {
+        final PersonStore store = new PersonStore(OBJECTS);
+        runConcurrently(new Runnable() {
+            public void run() {
+                for (int id = 0; id < OBJECTS; id++) store.add(id);
+            }
+        });
+        assertEquals(OBJECTS, store.size());
+        for (int id = 0; id < OBJECTS; id++) assertEquals(id, store.getIdInSlot(store.getSlot(id)));
+    }
+
+
+    private static void runConcurrently(final Runnable task) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[THREADS];
+        for (int i = 0; i < THREADS; i++) {
+            threads[i] = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    task.run();
+                }
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread: threads) thread.join();
+    }
+}
@@ -0,0 +1,128 @@
+package edu.umd.ncsg.utils;
+
+import com.pb.common.matrix.Matrix;
+import edu.umd.ncsg.data.AccessibilityCalculator;
+import org.apache.log4j.Logger;
+
+import java.util.Random;
+
+/**
+ * Compares the Hansen accessibility calculation with one Matrix.getValueAt() and one Math.pow() per origin-destination
+ * pair to the per-origin kernel of AccessibilityCalculator for synthetic skims. In addition, the population of
+ * CHANGED_ZONES zones is changed and an incremental update is compared to a full recalculation, the update has to agree
+ * within float precision. Zone counts may be given as arguments, default are 1000, 4000 and 10000 zones. 10000 zones
+ * require about 1.5 GB of heap.
+ **/
+
+public class AccessibilityBenchmark {
+
+    static Logger logger = Logger.getLogger(AccessibilityBenchmark.class);
+
+    private static final int REPETITIONS = 3;
+    private static final float ALPHA = 1.2f;
+    private static final float BETA = -0.3f;
+    private static final int CHANGED_ZONES = 300;
+    private static final double TOLERANCE = 1e-5;   // largest relative difference of an incremental update
+
+
+    public static void main(String[] args) {
+        // time both calculations for every zone count
+
+        int[] zoneCounts = {1000, 4000, 10000};
+        if (args.length > 0) {
+            zoneCounts = new int[args.length];
+            for (int i = 0; i < args.length; i++) zoneCounts[i] = Integer.parseInt(args[i]);
+        }
+        for (int zoneCount: zoneCounts) {
+            Random rand = new Random(42);
+            int[] zones = new int[zoneCount];
+            for (int i = 0; i < zoneCount; i++) zones[i] = 2 * i + 1;   // zone ids with gaps, like in real zone systems
+            Matrix skim = createSkim(zones, rand);
+            int[] pop = new int[zones[zoneCount - 1] + 1];
+            int[] popByZoneIndex = new int[zoneCount];
+            for (int i = 0; i < zoneCount; i++) {
+                pop[zones[i]] = rand.nextInt(5000);
+                popByZoneIndex[i] = pop[zones[i]];
+            }
+
+            double[] pairwise = calculatePairwise(skim, zones, pop);
+            double[] kernel = calculateWithKernel(skim, zones, popByZoneIndex);
+            double largestDifference = 0;
+            for (int i = 0; i < zoneCount; i++) largestDifference = Math.max(largestDifference, Math.abs(pairwise[i] - kernel[i]));
+
+            long start = System.nanoTime();
+            for (int rep = 0; rep < REPETITIONS; rep++) calculatePairwise(skim, zones, pop);
+            double pairwiseTime = (System.nanoTime() - start) / 1e6 / REPETITIONS;
+            start = System.nanoTime();
+            for (int rep = 0; rep < REPETITIONS; rep++) calculateWithKernel(skim, zones, popByZoneIndex);
+            double kernelTime = (System.nanoTime() - start) / 1e6 / REPETITIONS;
+
+            logger.info(zoneCount + " zones: pairwise " + String.format("%.1f", pairwiseTime) + " ms, kernel " +
+                    String.format("%.1f", kernelTime) + " ms, speed-up " + String.format("%.1f", pairwiseTime / kernelTime) +
+                    ", largest difference " + largestDifference);
+
+            compareIncrementalUpdate(skim, zones, popByZoneIndex, rand);
+        }
+    }
+
+
+    private static void compareIncrementalUpdate(Matrix skim, int[] zones, int[] popByZoneIndex, Random rand) {
+        // change population of some zones and compare incremental update with full recalculation
+
+        AccessibilityCalculator.IncrementalHansenAccessibility incremental =
+                new AccessibilityCalculator.IncrementalHansenAccessibility(skim, zones, ALPHA, BETA, popByZoneIndex);
+        int[] newPop = popByZoneIndex.clone();
+        for (int i = 0; i < Math.min(CHANGED_ZONES, zones.length); i++) {
+            int zone = rand.nextInt(zones.length);
+            newPop[zone] = Math.max(newPop[zone] + rand.nextInt(1001) - 500, 0);
+        }
+        long start = System.nanoTime();
+        int changedZones = incremental.update(newPop);
+        double updateTime = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        double[] full = calculateWithKernel(skim, zones, newPop);
+        double fullTime = (System.nanoTime() - start) / 1e6;
+
+        double[] updated = incremental.getAccessibilities();
+        double largestRelativeDifference = 0;
+        for (int i = 0; i < zones.length; i++) {
+            if (full[i] == 0) continue;
+            largestRelativeDifference = Math.max(largestRelativeDifference, Math.abs(updated[i] - full[i]) / full[i]);
+        }
+        logger.info(zones.length + " zones: update for " + changedZones + " changed zones " +
+                String.format("%.1f", updateTime) + " ms, full recalculation " + String.format("%.1f", fullTime) +
+                " ms, largest relative difference " + largestRelativeDifference);
+        if (largestRelativeDifference > TOLERANCE)
+            logger.error("Incremental update differs from full recalculation by more than " + TOLERANCE);
+    }
+
+
+    private static Matrix createSkim(int[] zones, Random rand) {
+        // travel times between 1 and 120 minutes, 1 percent of all pairs are not connected
+        float[][] times = new float[zones.length][zones.length];
+        for (float[] row: times) {
+            for (int j = 0; j < row.length; j++) row[j] = (rand.nextInt(100) == 0) ? 0 : 1 + 119 * rand.nextFloat();
+        }
+        Matrix skim = new Matrix(times);
+        skim.setExternalNumbersZeroBased(zones);
+        return skim;
+    }
+
+
+    private static double[] calculatePairwise(Matrix skim, int[] zones, int[] pop) {
+        double[] accessibility = new double[zones.length];
+        for (int i = 0; i < zones.length; i++) {
+            for (int dest: zones) {
+                double impedance = (skim.getValueAt(zones[i], dest) == 0) ? 0 : Math.exp(BETA * skim.getValueAt(zones[i], dest));
+                accessibility[i] += Math.pow(pop[dest], ALPHA) * impedance;
+            }
+        }
+        return accessibility;
+    }
+
+
+    private static double[] calculateWithKernel(Matrix skim, int[] zones, int[] popByZoneIndex) {
+        return AccessibilityCalculator.calculateHansenAccessibilities(skim, zones, BETA,
+                AccessibilityCalculator.getPowers(popByZoneIndex, ALPHA))[0];
+    }
+}
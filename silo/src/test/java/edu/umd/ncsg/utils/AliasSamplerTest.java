@@ -0,0 +1,73 @@
+package edu.umd.ncsg.utils;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the frequencies of the AliasSampler match the weights and that indices of zero weight are never selected.
+ **/
+
+public class AliasSamplerTest {
+
+    @Test
+    public void frequenciesMatchWeights() {
+        Random weightRand = new Random(42);
+        for (int size: new int[] {1, 2, 10, 1000}) {
+            double[] weights = new double[size];
+            for (int i = 0; i < size; i++) weights[i] = (i > 0 && weightRand.nextInt(5) == 0) ? 0 : weightRand.nextDouble();
+            checkFrequencies(weights, new AliasSampler(weights), 100 * size + 1000000);
+        }
+    }
+
+
+    @Test
+    public void floatWeightsMatchDoubleWeights() {
+        float[] weights = {3, 0, 1, 0, 6};
+        double[] doubleWeights = {3, 0, 1, 0, 6};
+        checkFrequencies(doubleWeights, new AliasSampler(weights), 1000000);
+    }
+
+
+    @Test
+    public void zeroWeightsAreNeverSelected() {
+        // check every column and both sides of its threshold
+        double[] weights = {0, 1e-300, 0, 2, 0, 0, 1, 0};
+        AliasSampler sampler = new AliasSampler(weights);
+        int n = weights.length;
+        for (int column = 0; column < n; column++) {
+            for (double fraction: new double[] {0, 1e-12, 0.5, 1 - 1e-12}) {
+                int index = sampler.sample((column + fraction) / n);
+                assertTrue("Selected index " + index + " with weight 0", weights[index] > 0);
+            }
+        }
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void weightsWithoutPositiveSumAreRejected() {
+        new AliasSampler(new double[] {0, 0});
+    }
+
+
+    private static void checkFrequencies(double[] weights, AliasSampler sampler, int draws) {
+        // frequencies need to match weights within five standard deviations
+        int[] count = new int[weights.length];
+        Random rand = new Random(11);
+        for (int i = 0; i < draws; i++) count[sampler.sample(rand)]++;
+        double sum = 0;
+        for (double weight: weights) sum += weight;
+        for (int i = 0; i < weights.length; i++) {
+            double p = weights[i] / sum;
+            if (p == 0) {
+                assertEquals("Index " + i + " has weight 0", 0, count[i]);
+                continue;
+            }
+            double deviation = Math.sqrt(draws * p * (1 - p));
+            assertEquals("Frequency of index " + i, p * draws, count[i], 5 * deviation + 1);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package edu.umd.ncsg.utils;
+
+import edu.umd.ncsg.SiloUtil;
+import edu.umd.ncsg.data.geoData;
+import org.apache.log4j.Logger;
+
+/**
+ * Compares the cost of looking up zonal attributes in the zonal data table with the cost of the lookup arrays of
+ * geoData. Run with the SILO properties file as the only argument.
+ **/
+
+public class GeoDataBenchmark {
+
+    static Logger logger = Logger.getLogger(GeoDataBenchmark.class);
+
+    private static final int REPETITIONS = 200;
+
+
+    public static void main(String[] args) {
+        // read zonal data and time both kinds of lookups
+
+        SiloUtil.siloInitialization(args[0]);
+        int[] zones = geoData.getZones();
+        long checksum = 0;
+        for (int warmUp = 0; warmUp < 3; warmUp++) {
+            checksum += lookUpInTable(zones) + lookUpInArrays(zones);
+        }
+        long lookups = 4L * REPETITIONS * zones.length;
+
+        long start = System.nanoTime();
+        long tableSum = 0;
+        for (int rep = 0; rep < REPETITIONS; rep++) tableSum += lookUpInTable(zones);
+        double tableTime = (System.nanoTime() - start) / (double) lookups;
+
+        start = System.nanoTime();
+        long arraySum = 0;
+        for (int rep = 0; rep < REPETITIONS; rep++) arraySum += lookUpInArrays(zones);
+        double arrayTime = (System.nanoTime() - start) / (double) lookups;
+
+        if (tableSum != arraySum) logger.error("Lookups in table and arrays returned different values.");
+        logger.info("Zonal attribute lookup in TableDataSet: " + String.format("%.1f", tableTime) + " ns per lookup");
+        logger.info("Zonal attribute lookup in geoData:      " + String.format("%.1f", arrayTime) + " ns per lookup");
+        logger.info("Checksum " + (checksum + tableSum + arraySum));
+    }
+
+
+    private static long lookUpInTable(int[] zones) {
+        long sum = 0;
+        for (int zone: zones) {
+            sum += (int) SiloUtil.zonalData.getIndexedValueAt(zone, "msa");
+            sum += (int) SiloUtil.zonalData.getIndexedValueAt(zone, "PUMA");
+            sum += (int) SiloUtil.zonalData.getIndexedValueAt(zone, "simplifiedPUMA");
+            sum += (int) SiloUtil.zonalData.getIndexedValueAt(zone, "COUNTYFIPS");
+        }
+        return sum;
+    }
+
+
+    private static long lookUpInArrays(int[] zones) {
+        long sum = 0;
+        for (int zone: zones) {
+            sum += geoData.getMSAOfZone(zone);
+            sum += geoData.getPUMAofZone(zone);
+            sum += geoData.getSimplifiedPUMAofZone(zone);
+            sum += geoData.getCountyOfZone(zone);
+        }
+        return sum;
+    }
+}
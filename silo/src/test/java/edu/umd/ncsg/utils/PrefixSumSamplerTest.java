@@ -0,0 +1,72 @@
+package edu.umd.ncsg.utils;
+
+import edu.umd.ncsg.SiloModel;
+import edu.umd.ncsg.SiloUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that the PrefixSumSampler selects the same indices as SiloUtil.select() for the same random numbers.
+ **/
+
+public class PrefixSumSamplerTest {
+
+    private static final int DRAWS = 100000;
+
+    private Random modelRand;
+
+
+    @Before
+    public void saveModelRandom() {
+        modelRand = SiloModel.rand;
+    }
+
+
+    @After
+    public void restoreModelRandom() {
+        SiloModel.rand = modelRand;
+    }
+
+
+    @Test
+    public void doubleWeightsSelectSameIndexAsSelect() {
+        Random weightRand = new Random(42);
+        for (int size: new int[] {1, 2, 10, 1000}) {
+            double[] weights = new double[size];
+            for (int i = 0; i < size; i++) weights[i] = (weightRand.nextInt(10) == 0) ? 0 : weightRand.nextDouble();
+            SiloModel.rand = new Random(7);
+            Random rand = new Random(7);
+            PrefixSumSampler sampler = new PrefixSumSampler(weights);
+            for (int i = 0; i < DRAWS; i++) assertEquals(SiloUtil.select(weights), sampler.sample(rand));
+        }
+    }
+
+
+    @Test
+    public void floatWeightsSelectSameIndexAsSelect() {
+        Random weightRand = new Random(43);
+        for (int size: new int[] {1, 2, 10, 1000}) {
+            float[] weights = new float[size];
+            for (int i = 0; i < size; i++) weights[i] = (weightRand.nextInt(10) == 0) ? 0 : weightRand.nextFloat() * 100;
+            SiloModel.rand = new Random(7);
+            Random rand = new Random(7);
+            PrefixSumSampler sampler = new PrefixSumSampler(weights);
+            for (int i = 0; i < DRAWS; i++) assertEquals(SiloUtil.select(weights), sampler.sample(rand));
+        }
+    }
+
+
+    @Test
+    public void drawsBeyondAllWeightsSelectLastIndex() {
+        double[] weights = {0.5, 0.5, 0};
+        PrefixSumSampler sampler = new PrefixSumSampler(weights);
+        assertEquals(0, sampler.sample(0.));
+        assertEquals(1, sampler.sample(0.5));
+        assertEquals(2, sampler.sample(1.));
+    }
+}
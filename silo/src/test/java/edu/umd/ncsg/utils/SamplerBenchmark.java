@@ -0,0 +1,62 @@
+package edu.umd.ncsg.utils;
+
+import edu.umd.ncsg.SiloModel;
+import edu.umd.ncsg.SiloUtil;
+import org.apache.log4j.Logger;
+
+import java.util.Random;
+
+/**
+ * Compares SiloUtil.select() with the PrefixSumSampler and the AliasSampler for weight vectors of 10 to 10000 elements.
+ * Results of the samplers are checked by PrefixSumSamplerTest and AliasSamplerTest.
+ **/
+
+public class SamplerBenchmark {
+
+    static Logger logger = Logger.getLogger(SamplerBenchmark.class);
+
+    private static final int[] SIZES = {10, 100, 1000, 10000};
+    private static final long DRAWS_PER_SIZE = 20000000L;    // total number of elements scanned per size and method
+
+
+    public static void main(String[] args) {
+        // time all samplers for every vector size
+
+        for (int size: SIZES) {
+            Random rand = new Random(42);
+            double[] weights = new double[size];
+            for (int i = 0; i < size; i++) weights[i] = (rand.nextInt(10) == 0) ? 0 : rand.nextDouble();
+            int draws = (int) Math.max(DRAWS_PER_SIZE / size, 100000);
+
+            long checksum = 0;
+            Random modelRand = SiloModel.rand;
+            SiloModel.rand = new Random(1);
+            long start = System.nanoTime();
+            for (int i = 0; i < draws; i++) checksum += SiloUtil.select(weights);
+            double selectTime = (System.nanoTime() - start) / (double) draws;
+            SiloModel.rand = modelRand;
+
+            rand = new Random(1);
+            start = System.nanoTime();
+            for (int i = 0; i < draws; i++) checksum += new PrefixSumSampler(weights).sample(rand);
+            double prefixOneOffTime = (System.nanoTime() - start) / (double) draws;
+
+            rand = new Random(1);
+            PrefixSumSampler prefixSampler = new PrefixSumSampler(weights);
+            start = System.nanoTime();
+            for (int i = 0; i < draws; i++) checksum += prefixSampler.sample(rand);
+            double prefixTime = (System.nanoTime() - start) / (double) draws;
+
+            rand = new Random(1);
+            start = System.nanoTime();
+            AliasSampler aliasSampler = new AliasSampler(weights);
+            for (int i = 0; i < draws; i++) checksum += aliasSampler.sample(rand);
+            double aliasTime = (System.nanoTime() - start) / (double) draws;
+
+            logger.info(size + " weights, ns per draw: SiloUtil.select " + String.format("%.1f", selectTime) +
+                    ", prefix sums built per draw " + String.format("%.1f", prefixOneOffTime) +
+                    ", prefix sums reused " + String.format("%.1f", prefixTime) +
+                    ", alias table " + String.format("%.1f", aliasTime) + " (checksum " + checksum + ")");
+        }
+    }
+}
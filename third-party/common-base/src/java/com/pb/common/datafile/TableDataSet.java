@@ -39,6 +39,8 @@ public class TableDataSet implements DataTypes, Serializable {
     private boolean columnLabelsPresent = false;
     private boolean dirty = false;
     private ArrayList columnLabels = new ArrayList();
+    // lower-case column label -> 1-based column position, rebuilt on demand after deserialization
+    private transient volatile HashMap<String, Integer> columnPositions = null;
     private ArrayList columnData = new ArrayList();
     private int[] columnIndex = null;
     private int[] columnType = null;
@@ -112,6 +114,7 @@ public class TableDataSet implements DataTypes, Serializable {
         for (int i = 0; i < titles.length; ++i) {
             columnLabels.add(titles[i]);
         }
+        columnPositions = null;
 
         columnLabelsPresent = true;
         
@@ -466,17 +469,41 @@ public class TableDataSet implements DataTypes, Serializable {
     *
     */
     public int getColumnPosition(String columnName) {
-        int position = -1;
+        if (columnName == null) return -1;
+        HashMap<String, Integer> positions = columnPositions;
+        if (positions == null) {
+            positions = buildColumnPositions();
+        }
+        Integer position = positions.get(columnName.toLowerCase(Locale.ENGLISH));
+        if (position == null) return -1;
+        return position;
+    }
 
+    /**
+     * Builds the case-insensitive index of column labels. If several columns carry
+     * the same label, the first of them is found, as in a sequential search. The
+     * index is complete before it is published, and it is never changed afterwards,
+     * so that concurrent readers never see a partially filled index.
+     */
+    private HashMap<String, Integer> buildColumnPositions() {
+        HashMap<String, Integer> positions = new HashMap<String, Integer>(columnLabels.size() * 2);
         for (int col = 0; col < columnLabels.size(); col++) {
-            String currentColumn = (String) columnLabels.get(col);
-            if (currentColumn.equalsIgnoreCase(columnName)) {
-                position = col + 1;
-                break;
-            }
+            String key = ((String) columnLabels.get(col)).toLowerCase(Locale.ENGLISH);
+            if (!positions.containsKey(key)) positions.put(key, col + 1);
         }
+        columnPositions = positions;
+        return positions;
+    }
 
-        return position;
+    private void addColumnPosition(String columnLabel, int position) {
+        // copy the index instead of changing it, readers may use the current index at the same time
+        HashMap<String, Integer> positions = columnPositions;
+        if (positions == null) return;
+        String key = columnLabel.toLowerCase(Locale.ENGLISH);
+        if (positions.containsKey(key)) return;
+        positions = new HashMap<String, Integer>(positions);
+        positions.put(key, position);
+        columnPositions = positions;
     }
     
     public int checkColumnPosition(String columnName) throws RuntimeException {
@@ -981,6 +1008,68 @@ public class TableDataSet implements DataTypes, Serializable {
         return getIndexedValueAt(value, columnNumber);
     }
 
+    /**
+     * Returns a handle on a numeric column that reads values without looking up the
+     * column name again. The handle follows later changes of the column data and of
+     * the index built with buildIndex().
+     *
+     * @param columnName name of the column, case is ignored
+     * @return handle on the column
+     */
+    public FloatColumn getFloatColumn(String columnName) {
+        int columnNumber = getColumnPosition(columnName);
+
+        if (columnNumber <= 0) {
+            logger.error("no column named " + columnName + " in TableDataSet");
+            throw new RuntimeException("no column named " + columnName +
+                " in TableDataSet");
+        }
+        checkColumnNumber(columnNumber, NUMBER);
+
+        return new FloatColumn(columnNumber);
+    }
+
+    /**
+     * Handle on a numeric column of this table, see getFloatColumn(String).
+     */
+    public class FloatColumn {
+
+        private final int column;    // zero-based
+
+        private FloatColumn(int columnNumber) {
+            this.column = columnNumber - 1;
+        }
+
+        /**
+         * @return the 1-based position of the column in the table
+         */
+        public int getPosition() {
+            return column + 1;
+        }
+
+        public String getLabel() {
+            return (String) columnLabels.get(column);
+        }
+
+        /**
+         * Returns the value in a 1-based row, like getValueAt(row, column).
+         */
+        public float get(int row) {
+            return ((float[]) columnData.get(column))[row - 1];
+        }
+
+        /**
+         * Returns the value in the row identified by the index built with
+         * buildIndex(), like getIndexedValueAt(value, column).
+         */
+        public float getIndexed(int value) {
+            if (columnIndex == null) {
+                throw new RuntimeException("No index defined for column: " + (column + 1));
+            }
+            return ((float[]) columnData.get(column))[columnIndex[value]];
+        }
+    }
+
     /**
      * Update a TableDataSet by appending a column of data and a column heading.
      *
@@ -1069,6 +1158,7 @@ public class TableDataSet implements DataTypes, Serializable {
         }
 
         columnLabels.add(newColumnLabel);
+        addColumnPosition(newColumnLabel, columnLabels.size());
         columnLabelsPresent = true;
     }
     public void appendColumnAsDouble(Object newColumn, String newColumnLabel) {
@@ -1137,6 +1227,7 @@ public class TableDataSet implements DataTypes, Serializable {
         }
 
         columnLabels.add(newColumnLabel);
+        addColumnPosition(newColumnLabel, columnLabels.size());
         columnLabelsPresent = true;
     }
 
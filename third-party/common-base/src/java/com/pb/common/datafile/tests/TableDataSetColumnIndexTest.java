@@ -0,0 +1,96 @@
+package com.pb.common.datafile.tests;
+
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.*;
+import com.pb.common.datafile.TableDataSet;
+
+/**
+ * Tests the case-insensitive column label index and the column handles of TableDataSet.
+ */
+public class TableDataSetColumnIndexTest {
+
+    private final int[] zoneColumn = {3,1,2};
+    private final float[] valueColumn = {30.5f,10.5f,20.5f};
+    private final String[] stringColumn = {"c","a","b"};
+
+    private TableDataSet table;
+
+    @Before
+    public void before() {
+        table = new TableDataSet();
+        table.appendColumn(zoneColumn,"ZoneId");
+        table.appendColumn(valueColumn,"Value");
+        table.appendColumn(stringColumn,"Name");
+    }
+
+    @Test
+    public void testColumnPositionIgnoresCase() {
+        assertEquals(1,table.getColumnPosition("ZoneId"));
+        assertEquals(1,table.getColumnPosition("zoneid"));
+        assertEquals(2,table.getColumnPosition("VALUE"));
+        assertEquals(3,table.getColumnPosition("name"));
+    }
+
+    @Test
+    public void testUnknownColumn() {
+        assertEquals(-1,table.getColumnPosition("missing"));
+        assertEquals(-1,table.getColumnPosition(null));
+        assertFalse(table.containsColumn("missing"));
+    }
+
+    @Test
+    public void testAppendedColumnIsFound() {
+        table.appendColumn(new float[] {1,2,3},"Extra");
+        assertEquals(4,table.getColumnPosition("extra"));
+    }
+
+    @Test
+    public void testDuplicateLabelFindsFirstColumn() {
+        table.appendColumn(new float[] {1,2,3},"value");
+        assertEquals(2,table.getColumnPosition("Value"));
+    }
+
+    @Test
+    public void testSetColumnLabels() {
+        table.setColumnLabels(new String[] {"Zone","Price","Label"});
+        assertEquals(-1,table.getColumnPosition("ZoneId"));
+        assertEquals(2,table.getColumnPosition("price"));
+    }
+
+    @Test
+    public void testFloatColumnGet() {
+        TableDataSet.FloatColumn column = table.getFloatColumn("value");
+        assertEquals(2,column.getPosition());
+        assertEquals("Value",column.getLabel());
+        for (int row = 1; row <= table.getRowCount(); row++) {
+            assertEquals(table.getValueAt(row,"Value"),column.get(row),0f);
+        }
+    }
+
+    @Test
+    public void testFloatColumnGetIndexed() {
+        table.buildIndex(table.getColumnPosition("ZoneId"));
+        TableDataSet.FloatColumn column = table.getFloatColumn("Value");
+        for (int zone: zoneColumn) {
+            assertEquals(table.getIndexedValueAt(zone,"Value"),column.getIndexed(zone),0f);
+        }
+    }
+
+    @Test
+    public void testFloatColumnFollowsReplacedData() {
+        TableDataSet.FloatColumn column = table.getFloatColumn("Value");
+        table.setColumnAsFloat(2,new float[] {1f,2f,3f});
+        assertEquals(2f,column.get(2),0f);
+    }
+
+    @Test(expected=RuntimeException.class)
+    public void testFloatColumnOnStringColumn() {
+        table.getFloatColumn("Name");
+    }
+
+    @Test(expected=RuntimeException.class)
+    public void testFloatColumnOnMissingColumn() {
+        table.getFloatColumn("missing");
+    }
+}
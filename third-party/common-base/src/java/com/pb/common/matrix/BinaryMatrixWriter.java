@@ -114,12 +114,15 @@ public class BinaryMatrixWriter extends MatrixWriter {
             //Create a byte array output stream to buffer bytes for one row.
             ByteArrayOutputStream baos = new ByteArrayOutputStream( m.nCols * WORDSIZE );
             DataOutputStream dout = new DataOutputStream(baos);
+            float[] rowValues = new float[m.nCols];
 
             for (int row=0; row < m.nRows; row++) {
 
-                //Write contents of a row to the byte array.
+                //Write contents of a row to the byte array. Rows are read through getRow(), so that
+                //matrices that do not keep their values on the heap can be written as well.
+                m.getRow(m.getExternalRowNumber(row), rowValues);
                 for(int col=0; col < m.nCols; col++) {
-                    dout.writeFloat(m.values[row][col]);
+                    dout.writeFloat(rowValues[col]);
                 }
                 dout.flush();
 
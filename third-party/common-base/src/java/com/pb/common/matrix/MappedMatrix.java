@@ -0,0 +1,594 @@
+/*
+ * Copyright  2005 PB Consult Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.pb.common.matrix;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A matrix with values stored outside of the Java heap. Values are either kept in
+ * direct buffers or in a memory-mapped file in the format of the BinaryMatrixWriter,
+ * so that a file written by BinaryMatrixWriter can be used without reading it onto
+ * the heap, and a file created by this class can be read by BinaryMatrixReader.
+ *
+ * Cell, row and column access, totals and in-place operations work on the stored
+ * values. getValues() and copyValues2D() return a copy on the heap, and operations
+ * that create a new matrix (transpose, add, multiply, clone, ...) return a regular
+ * Matrix. Name, description and the number of external numbers of a file-backed
+ * matrix are fixed when the file is created.
+ */
+public class MappedMatrix extends Matrix {
+
+    static Logger logger = Logger.getLogger("com.pb.common.matrix");
+
+    private static final long SEGMENT_SIZE = 1L << 30;   // largest buffer, holds whole rows
+
+    private FloatBuffer[] segments;
+    private ByteBuffer[] buffers;
+    private int rowsPerSegment;
+    private File file;
+    private long externalNumbersPosition;   // position of external numbers in file, -1 if they cannot be written
+    private int externalNumbersInFile;      // number of external row and column numbers stored in file
+
+
+    /**
+     * Create a matrix of zeros stored in direct (off-heap) buffers.
+     * @param name the name of the matrix
+     * @param description a description for the matrix
+     * @param rowCount the number of rows
+     * @param colCount the number of columns
+     */
+    public MappedMatrix(String name, String description, int rowCount, int colCount) {
+        this.name = name;
+        this.description = description;
+        nRows = (rowCount > 0) ? rowCount : 1;
+        nCols = (colCount > 0) ? colCount : 1;
+        externalNumbersPosition = -1;
+        allocateSegments();
+        for (int s = 0; s < segments.length; s++) {
+            long rows = Math.min(rowsPerSegment, nRows - (long) s * rowsPerSegment);
+            buffers[s] = ByteBuffer.allocateDirect((int) (rows * nCols * BinaryMatrixWriter.WORDSIZE));
+            segments[s] = buffers[s].asFloatBuffer();
+        }
+        initExternalNumbers();
+    }
+
+    private MappedMatrix() {
+    }
+
+    /**
+     * Create a file-backed matrix of zeros. The file is written in the format of the
+     * BinaryMatrixWriter, overwriting an existing file.
+     * @param file the matrix file
+     * @param name the name of the matrix
+     * @param description a description for the matrix
+     * @param rowCount the number of rows
+     * @param colCount the number of columns
+     * @return the mapped matrix
+     */
+    public static MappedMatrix create(File file, String name, String description, int rowCount, int colCount)
+            throws MatrixException {
+        MappedMatrix m = new MappedMatrix();
+        m.file = file;
+        m.name = name;
+        m.description = description;
+        m.nRows = (rowCount > 0) ? rowCount : 1;
+        m.nCols = (colCount > 0) ? colCount : 1;
+        m.initExternalNumbers();
+        try {
+            RandomAccessFile randFile = new RandomAccessFile(file, "rw");
+            try {
+                randFile.setLength(0L);
+                randFile.writeInt(BinaryMatrixWriter.VERSION);
+                randFile.writeInt(m.nRows);
+                randFile.writeInt(m.nCols);
+                randFile.writeInt(m.externalRowNumbers.length);
+                randFile.writeInt(m.externalColumnNumbers.length);
+                randFile.writeUTF(name);
+                randFile.writeUTF(description);
+                m.externalNumbersPosition = randFile.getFilePointer();
+                m.externalNumbersInFile = m.externalRowNumbers.length + m.externalColumnNumbers.length;
+                m.writeExternalNumbers(randFile);
+                long dataPosition = randFile.getFilePointer();
+                randFile.setLength(dataPosition + (long) m.nRows * m.nCols * BinaryMatrixWriter.WORDSIZE);
+                m.mapSegments(randFile.getChannel(), dataPosition, FileChannel.MapMode.READ_WRITE);
+            } finally {
+                randFile.close();
+            }
+        } catch (IOException e) {
+            throw new MatrixException(e, MatrixException.ERROR_WRITING_FILE + ", " + file);
+        }
+        return m;
+    }
+
+    /**
+     * Map an existing matrix file written by BinaryMatrixWriter.
+     * @param file the matrix file
+     * @param writable true if values may be changed, changes are written to the file
+     * @return the mapped matrix
+     */
+    public static MappedMatrix open(File file, boolean writable) throws MatrixException {
+        MappedMatrix m = new MappedMatrix();
+        m.file = file;
+        try {
+            RandomAccessFile randFile = new RandomAccessFile(file, writable ? "rw" : "r");
+            try {
+                int version = randFile.readInt();
+                m.nRows = randFile.readInt();
+                m.nCols = randFile.readInt();
+                int nExternalRows = randFile.readInt();
+                int nExternalColumns = (version == 2) ? randFile.readInt() : nExternalRows;
+                m.name = randFile.readUTF();
+                m.description = randFile.readUTF();
+                m.externalNumbersPosition = writable && version == 2 ? randFile.getFilePointer() : -1;
+                m.externalNumbersInFile = nExternalRows + nExternalColumns;
+                int[] externalRows = new int[nExternalRows];
+                for (int i = 1; i < nExternalRows; i++) externalRows[i] = randFile.readInt();
+                int[] externalColumns;
+                if (version == 2) {
+                    externalColumns = new int[nExternalColumns];
+                    for (int i = 1; i < nExternalColumns; i++) externalColumns[i] = randFile.readInt();
+                } else {
+                    externalColumns = externalRows.clone();
+                }
+                long dataPosition = randFile.getFilePointer();
+                if (randFile.length() < dataPosition + (long) m.nRows * m.nCols * BinaryMatrixWriter.WORDSIZE) {
+                    throw new MatrixException(MatrixException.ERROR_READING_FILE + ", file is too short: " + file);
+                }
+                m.mapSegments(randFile.getChannel(), dataPosition,
+                        writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY);
+                m.setExternalNumbers(externalRows, externalColumns);
+            } finally {
+                randFile.close();
+            }
+        } catch (IOException e) {
+            throw new MatrixException(e, MatrixException.ERROR_READING_FILE + ", " + file);
+        }
+        return m;
+    }
+
+    /**
+     * Copy a matrix into a new file-backed matrix, or into direct buffers if file is null.
+     * @param m the matrix to copy
+     * @param file the matrix file, or null
+     * @return the mapped matrix
+     */
+    public static MappedMatrix copyOf(Matrix m, File file) throws MatrixException {
+        MappedMatrix copy;
+        if (file == null) {
+            copy = new MappedMatrix(m.getName(), m.getDescription(), m.getRowCount(), m.getColumnCount());
+        } else {
+            copy = create(file, m.getName(), m.getDescription(), m.getRowCount(), m.getColumnCount());
+        }
+        copy.setExternalNumbers(m.getExternalRowNumbers(), m.getExternalColumnNumbers());
+        float[] rowBuffer = new float[m.getColumnCount()];
+        for (int r = 0; r < m.getRowCount(); r++) {
+            m.getRow(m.getExternalRowNumber(r), rowBuffer);
+            copy.getSegmentForRow(r).put(rowBuffer);
+        }
+        return copy;
+    }
+
+    private void allocateSegments() {
+        rowsPerSegment = (int) Math.max(SEGMENT_SIZE / ((long) nCols * BinaryMatrixWriter.WORDSIZE), 1);
+        int segmentCount = (int) ((nRows + (long) rowsPerSegment - 1) / rowsPerSegment);
+        segments = new FloatBuffer[segmentCount];
+        buffers = new ByteBuffer[segmentCount];
+    }
+
+    private void mapSegments(FileChannel channel, long dataPosition, FileChannel.MapMode mode) throws IOException {
+        allocateSegments();
+        long rowBytes = (long) nCols * BinaryMatrixWriter.WORDSIZE;
+        for (int s = 0; s < segments.length; s++) {
+            long firstRow = (long) s * rowsPerSegment;
+            long rows = Math.min(rowsPerSegment, nRows - firstRow);
+            buffers[s] = channel.map(mode, dataPosition + firstRow * rowBytes, rows * rowBytes);
+            segments[s] = buffers[s].asFloatBuffer();
+        }
+    }
+
+    private void writeExternalNumbers(RandomAccessFile randFile) throws IOException {
+        for (int i = 1; i < externalRowNumbers.length; i++) randFile.writeInt(externalRowNumbers[i]);
+        for (int i = 1; i < externalColumnNumbers.length; i++) randFile.writeInt(externalColumnNumbers[i]);
+    }
+
+    /**
+     * Return a view on the values of row r (internal number), positioned at the first column.
+     */
+    private FloatBuffer getSegmentForRow(int r) {
+        FloatBuffer segment = segments[r / rowsPerSegment].duplicate();
+        segment.position((r % rowsPerSegment) * nCols);
+        segment.limit(segment.position() + nCols);
+        return segment;
+    }
+
+    private float get(int r, int c) {
+        return segments[r / rowsPerSegment].get((r % rowsPerSegment) * nCols + c);
+    }
+
+    private void put(int r, int c, float value) {
+        segments[r / rowsPerSegment].put((r % rowsPerSegment) * nCols + c, value);
+    }
+
+    /**
+     * Get the file that holds the values, or null if values are stored in direct buffers.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Write changed values and the current external numbers to the file. Has no effect
+     * for matrices that are not file-backed or were opened read-only.
+     */
+    public void flush() throws MatrixException {
+        if (file == null) return;
+        for (ByteBuffer buffer : buffers) {
+            if (buffer instanceof MappedByteBuffer && !buffer.isReadOnly()) ((MappedByteBuffer) buffer).force();
+        }
+        if (externalNumbersPosition < 0) return;
+        if (externalRowNumbers.length + externalColumnNumbers.length != externalNumbersInFile) {
+            throw new MatrixException(MatrixException.INVALID_DIMENSIONS + ", number of external numbers " +
+                    "changed for " + file);
+        }
+        try {
+            RandomAccessFile randFile = new RandomAccessFile(file, "rw");
+            try {
+                randFile.seek(externalNumbersPosition);
+                writeExternalNumbers(randFile);
+            } finally {
+                randFile.close();
+            }
+        } catch (IOException e) {
+            throw new MatrixException(e, MatrixException.ERROR_WRITING_FILE + ", " + file);
+        }
+    }
+
+    /**
+     * Create a copy of this matrix on the heap.
+     */
+    public Matrix toMatrix() {
+        Matrix m = new Matrix(name, description, copyValues2D());
+        m.setExternalNumbers(externalRowNumbers, externalColumnNumbers);
+        return m;
+    }
+
+    //------------------------ Getters ------------------------
+
+    @Override
+    public float getValueAt(int itaz, int jtaz) throws MatrixException {
+        int r = getInternalRowNumber(itaz);
+        int c = getInternalColumnNumber(jtaz);
+
+        if ((r < 0) || (r >= nRows) || (c < 0) || (c >= nCols)) {
+            throw new MatrixException(MatrixException.INVALID_INDEX +" itaz="+itaz+",row="+r+
+                    ";  jtaz="+jtaz+", col="+c);
+        }
+
+        return get(r, c);
+    }
+
+    @Override
+    public RowVector getRow(int row) throws MatrixException {
+        float[] rowValues = new float[nCols];
+        getRow(row, rowValues);
+        return new RowVector(rowValues);
+    }
+
+    @Override
+    public void getRow(int row, float[] rowBuffer) throws MatrixException {
+        int r = getInternalRowNumber(row);
+
+        if ((r < 0) || (r >= nRows)) {
+            throw new MatrixException(MatrixException.INVALID_INDEX +", "+r);
+        }
+        if (rowBuffer.length != nCols) {
+            throw new MatrixException(MatrixException.INVALID_DIMENSIONS);
+        }
+
+        getSegmentForRow(r).get(rowBuffer);
+    }
+
+    @Override
+    public float getRowSum(int row) throws MatrixException {
+        float[] rowValues = new float[nCols];
+        getRow(row, rowValues);
+        double sum = 0.0;
+        for (float value : rowValues) sum += value;
+        return (float) sum;
+    }
+
+    @Override
+    public ColumnVector getRowTotals() {
+        double[] rowTotals = new double[nRows];
+        getRowTotals(rowTotals);
+        float[] floatValues = new float[nRows];
+        for (int r = 0; r < nRows; ++r) floatValues[r] = (float) rowTotals[r];
+        return new ColumnVector(floatValues);
+    }
+
+    @Override
+    public void getRowTotals(double[] rowTotals) throws MatrixException {
+        if (rowTotals.length != nRows) {
+            throw new MatrixException(MatrixException.INVALID_DIMENSIONS);
+        }
+        for (int r = 0; r < nRows; ++r) {
+            double sum = 0.0;
+            for (int c = 0; c < nCols; ++c) sum += get(r, c);
+            rowTotals[r] = sum;
+        }
+    }
+
+    @Override
+    public ColumnVector getColumn(int col) throws MatrixException {
+        float[] colValues = new float[nRows];
+        getColumn(col, colValues);
+        return new ColumnVector(colValues);
+    }
+
+    @Override
+    public void getColumn(int col, float[] colBuffer) throws MatrixException {
+        int c = getInternalColumnNumber(col);
+
+        if ((c < 0) || (c >= nCols)) {
+            throw new MatrixException(MatrixException.INVALID_INDEX);
+        }
+        if (colBuffer.length != nRows) {
+            throw new MatrixException(MatrixException.INVALID_DIMENSIONS);
+        }
+
+        for (int r = 0; r < nRows; ++r) colBuffer[r] = get(r, c);
+    }
+
+    @Override
+    public float getColumnMin(int col) throws MatrixException {
+        float[] colValues = new float[nRows];
+        getColumn(col, colValues);
+        double min = colValues[0];
+        for (int r = 1; r < nRows; ++r) min = Math.min(min, colValues[r]);
+        return (float) min;
+    }
+
+    @Override
+    public float getColumnSum(int col) throws MatrixException {
+        float[] colValues = new float[nRows];
+        getColumn(col, colValues);
+        double sum = 0.0;
+        for (float value : colValues) sum += value;
+        return (float) sum;
+    }
+
+    @Override
+    public RowVector getColumnTotals() {
+        double[] columnTotals = new double[nCols];
+        getColumnTotals(columnTotals);
+        float[] floatValues = new float[nCols];
+        for (int c = 0; c < nCols; ++c) floatValues[c] = (float) columnTotals[c];
+        return new RowVector(floatValues);
+    }
+
+    @Override
+    public void getColumnTotals(double[] columnTotals) throws MatrixException {
+        if (columnTotals.length != nCols) {
+            throw new MatrixException(MatrixException.INVALID_DIMENSIONS);
+        }
+        java.util.Arrays.fill(columnTotals, 0.0);
+        for (int r = 0; r < nRows; ++r) {
+            for (int c = 0; c < nCols; ++c) columnTotals[c] += get(r, c);
+        }
+    }
+
+    /**
+     * Return a copy of the values of this matrix on the heap.
+     * @return the values
+     */
+    @Override
+    public float[][] getValues() {
+        return copyValues2D();
+    }
+
+    @Override
+    public float[][] copyValues2D() {
+        float[][] v = new float[nRows][nCols];
+        for (int r = 0; r < nRows; ++r) getSegmentForRow(r).get(v[r]);
+        return v;
+    }
+
+    @Override
+    public double getSum() {
+        double sum = 0.0;
+        for (int r = 0; r < nRows; ++r) {
+            for (int c = 0; c < nCols; ++c) sum += get(r, c);
+        }
+        return sum;
+    }
+
+    @Override
+    public float getMax() {
+        float max = get(0, 0);
+        for (int r = 0; r < nRows; r++) {
+            for (int c = 0; c < nCols; c++) max = Math.max(max, get(r, c));
+        }
+        return max;
+    }
+
+    @Override
+    public float getMin() {
+        float min = get(0, 0);
+        for (int r = 0; r < nRows; r++) {
+            for (int c = 0; c < nCols; c++) min = Math.min(min, get(r, c));
+        }
+        return min;
+    }
+
+    @Override
+    public int getZeroCount() {
+        int nZeros = 0;
+        for (int r = 0; r < nRows; r++) {
+            for (int c = 0; c < nCols; c++) {
+                if (get(r, c) == 0.0f) nZeros++;
+            }
+        }
+        return nZeros;
+    }
+
+    //------------------------ Setters ------------------------
+
+    @Override
+    public void setValueAt(int itaz, int jtaz, float value) throws MatrixException {
+        int r = getInternalRowNumber(itaz);
+        int c = getInternalColumnNumber(jtaz);
+
+        if ((r < 0) || (r >= nRows) || (c < 0) || (c >= nCols)) {
+            logger.info("Cannot set value in row " + r + " column " + c + " of matrix " + name);
+            throw new MatrixException(MatrixException.INVALID_INDEX);
+        }
+
+        put(r, c, value);
+    }
+
+    @Override
+    protected void setValues(float values[][]) {
+        throw new MatrixException("values of a MappedMatrix cannot be replaced, use setRow() instead");
+    }
+
+    @Override
+    public void setRow(RowVector rv, int row) throws MatrixException {
+        if (nCols != rv.nCols) {
+            throw new MatrixException(MatrixException.INVALID_DIMENSIONS);
+        }
+        setRow(rv.values[0], row);
+    }
+
+    @Override
+    public void setRow(float[] rowValues, int row) throws MatrixException {
+        int r = getInternalRowNumber(row);
+
+        if ((r < 0) || (r >= nRows)) {
+            throw new MatrixException(MatrixException.INVALID_INDEX);
+        }
+        if (rowValues.length != nCols) {
+            throw new MatrixException(MatrixException.INVALID_DIMENSIONS);
+        }
+
+        getSegmentForRow(r).put(rowValues);
+    }
+
+    @Override
+    public void setColumn(ColumnVector cv, int col) throws MatrixException {
+        int c = getInternalColumnNumber(col);
+
+        if ((c < 0) || (c >= nCols)) {
+            throw new MatrixException(MatrixException.INVALID_INDEX);
+        }
+        if (nRows != cv.nRows) {
+            throw new MatrixException(MatrixException.INVALID_DIMENSIONS);
+        }
+
+        for (int r = 0; r < nRows; ++r) put(r, c, cv.values[r][0]);
+    }
+
+    @Override
+    public void fill(float value) {
+        for (int r = 0; r < nRows; ++r) {
+            for (int c = 0; c < nCols; ++c) put(r, c, value);
+        }
+    }
+
+    @Override
+    public void scale(float value) {
+        for (int r = 0; r < nRows; ++r) {
+            for (int c = 0; c < nCols; ++c) put(r, c, get(r, c) * value);
+        }
+    }
+
+    @Override
+    public void setIntrazonalToHalfNearestNeighbor() {
+        for (int r = 0; r < nRows; ++r) {
+            float minRowValue = Float.MAX_VALUE;
+            for (int c = 0; c < nCols; ++c) {
+                if (r != c) minRowValue = Math.min(minRowValue, get(r, c));
+            }
+            if (r < nCols) put(r, r, (float) 0.5 * minRowValue);
+        }
+    }
+
+    //------------------------ Operations ------------------------
+    // Operations that create a new matrix work on a copy of this matrix on the heap.
+
+    @Override
+    public Matrix getTranspose() {
+        return toMatrix().getTranspose();
+    }
+
+    @Override
+    public Matrix add(Matrix m) throws MatrixException {
+        return toMatrix().add(m);
+    }
+
+    @Override
+    public Matrix subtract(Matrix m) throws MatrixException {
+        return toMatrix().subtract(m);
+    }
+
+    @Override
+    public Matrix multiply(float k) {
+        return toMatrix().multiply(k);
+    }
+
+    @Override
+    public Matrix multiply(Matrix m) throws MatrixException {
+        return toMatrix().multiply(m);
+    }
+
+    @Override
+    public ColumnVector multiply(ColumnVector cv) throws MatrixException {
+        return toMatrix().multiply(cv);
+    }
+
+    @Override
+    public RowVector multiply(RowVector rv) throws MatrixException {
+        return toMatrix().multiply(rv);
+    }
+
+    @Override
+    public Object clone() {
+        return toMatrix();
+    }
+
+    @Override
+    public void logMatrixStatsToInfo() {
+        toMatrix().logMatrixStatsToInfo();
+    }
+
+    @Override
+    public void logMatrixStatsToInfo(Logger myLogger) {
+        toMatrix().logMatrixStatsToInfo(myLogger);
+    }
+
+    @Override
+    public void logMatrixStatsToConsole() {
+        toMatrix().logMatrixStatsToConsole();
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright  2005 PB Consult Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.pb.common.matrix;
+
+import java.io.File;
+
+/**
+ * Implements a MatrixReader that memory-maps a binary matrix file instead of reading
+ * it onto the heap. Register it for binary files with
+ * MatrixReader.setReaderClassForType(MatrixType.BINARY, new MappedMatrixReader()).
+ *
+ * @version   1.0, 10/17/2026
+ */
+public class MappedMatrixReader extends MatrixReader {
+
+    public MappedMatrixReader() {
+    }
+
+    /**
+     * @param file represents the physical matrix file
+     */
+    public MappedMatrixReader(File file) {
+        this.file = file;
+    }
+
+    public Matrix readMatrix() throws MatrixException {
+        return readMatrix("");
+    }
+
+    public Matrix readMatrix(String index) throws MatrixException {
+        return MappedMatrix.open(file, false);
+    }
+
+    public Matrix[] readMatrices() throws MatrixException {
+        return new Matrix[] { readMatrix() };
+    }
+}
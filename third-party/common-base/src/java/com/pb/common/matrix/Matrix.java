@@ -1108,10 +1108,11 @@ public class Matrix implements java.io.Serializable {
         Matrix sv = new Matrix(getRowCount(), getColumnCount());
         sv.setExternalNumbers(getExternalRowNumbers(), getExternalColumnNumbers());
 
-        // Compute values of the sum.
+        // Compute values of the sum, values of m are read through getValues() as m may store them off the heap.
+        float[][] mValues = m.getValues();
         for (int r = 0; r < nRows; ++r) {
             for (int c = 0; c < nCols; ++c) {
-                sv.values[r][c] = values[r][c] + m.values[r][c];
+                sv.values[r][c] = values[r][c] + mValues[r][c];
             }
         }
 
@@ -1135,9 +1136,10 @@ public class Matrix implements java.io.Serializable {
         dv.setExternalNumbers(getExternalRowNumbers(), getExternalColumnNumbers());
 
         // Compute values of the difference.
+        float[][] mValues = m.getValues();
         for (int r = 0; r < nRows; ++r) {
             for (int c = 0; c < nCols; ++c) {
-                dv.values[r][c] = values[r][c] - m.values[r][c];
+                dv.values[r][c] = values[r][c] - mValues[r][c];
             }
         }
 
@@ -1183,11 +1185,12 @@ public class Matrix implements java.io.Serializable {
         pv.setExternalNumbers(getExternalRowNumbers(), m.getExternalColumnNumbers());
 
         // Compute values of the product.
+        float[][] mValues = m.getValues();
         for (int r = 0; r < nRows; ++r) {
             for (int c = 0; c < m.nCols; ++c) {
                 float dot = 0;
                 for (int k = 0; k < nCols; ++k) {
-                    dot += values[r][k] * m.values[k][c];
+                    dot += values[r][k] * mValues[k][c];
                 }
                 pv.values[r][c] = dot;
             }
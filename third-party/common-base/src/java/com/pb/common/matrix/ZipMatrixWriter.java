@@ -97,6 +97,7 @@ public class ZipMatrixWriter extends MatrixWriter {
 
         //Write data
         try {
+            float[] rowValues = new float[m.nCols];
             for (int row=0; row < m.nRows; row++) {
                 String rowName = "row_" + (row+1);
 
@@ -107,9 +108,11 @@ public class ZipMatrixWriter extends MatrixWriter {
                 ByteArrayOutputStream baos = new ByteArrayOutputStream( m.nCols * WORDSIZE );
                 DataOutputStream dout = new DataOutputStream(baos);
 
-                //Write contents of a row to the byte array.
+                //Write contents of a row to the byte array. Rows are read through getRow(), so that
+                //matrices that do not keep their values on the heap can be written as well.
+                m.getRow(m.getExternalRowNumber(row), rowValues);
                 for(int col=0; col < m.nCols; col++) {
-                    dout.writeFloat(m.values[row][col]);
+                    dout.writeFloat(rowValues[col]);
                 }
                 dout.close();
 
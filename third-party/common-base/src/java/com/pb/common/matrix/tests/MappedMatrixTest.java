@@ -0,0 +1,175 @@
+/*
+ * Copyright 2006 PB Consult Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.pb.common.matrix.tests;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import com.pb.common.matrix.BinaryMatrixReader;
+import com.pb.common.matrix.BinaryMatrixWriter;
+import com.pb.common.matrix.MappedMatrix;
+import com.pb.common.matrix.MappedMatrixReader;
+import com.pb.common.matrix.Matrix;
+import com.pb.common.matrix.MatrixReader;
+import com.pb.common.matrix.MatrixType;
+
+import static org.junit.Assert.*;
+
+/**
+ * JUnit style tests for the MappedMatrix class.
+ *
+ * @version 0.1
+ */
+public class MappedMatrixTest {
+    private Logger logger = Logger.getLogger(MappedMatrixTest.class);
+
+    private static final int[] EXTERNAL_ROWS = { 0, 3, 5, 9 };
+    private static final int[] EXTERNAL_COLUMNS = { 0, 2, 4 };
+
+    private static Matrix createMatrix() {
+        float[][] values = { { 1, 2 }, { 3, 4 }, { -5.5f, 6e10f } };
+        Matrix matrix = new Matrix("test", "test matrix", values);
+        matrix.setExternalNumbers(EXTERNAL_ROWS, EXTERNAL_COLUMNS);
+        return matrix;
+    }
+
+    private static void assertSameValues(Matrix expected, Matrix actual) {
+        assertEquals(expected.getRowCount(), actual.getRowCount());
+        assertEquals(expected.getColumnCount(), actual.getColumnCount());
+        assertArrayEquals(expected.getExternalRowNumbers(), actual.getExternalRowNumbers());
+        assertArrayEquals(expected.getExternalColumnNumbers(), actual.getExternalColumnNumbers());
+        for (int r = 1; r < EXTERNAL_ROWS.length; ++r) {
+            for (int c = 1; c < EXTERNAL_COLUMNS.length; ++c) {
+                assertEquals(expected.getValueAt(EXTERNAL_ROWS[r], EXTERNAL_COLUMNS[c]),
+                        actual.getValueAt(EXTERNAL_ROWS[r], EXTERNAL_COLUMNS[c]), 0.0f);
+            }
+        }
+    }
+
+    /**
+     * Test that a file written by the BinaryMatrixWriter can be mapped.
+     */
+    @Test
+    public void testOpenBinaryFile() throws IOException {
+        logger.info("Testing to see that a binary matrix file is mapped with its values and external numbers.");
+        File file = File.createTempFile("mappedMatrix", ".binary");
+        file.deleteOnExit();
+        Matrix matrix = createMatrix();
+        new BinaryMatrixWriter(file).writeMatrix(matrix);
+
+        MappedMatrix mapped = MappedMatrix.open(file, false);
+        assertEquals("test", mapped.getName());
+        assertEquals("test matrix", mapped.getDescription());
+        assertSameValues(matrix, mapped);
+
+        float[] row = new float[2];
+        mapped.getRow(9, row);
+        assertEquals(-5.5f, row[0], 0.0f);
+        assertEquals(6e10f, row[1], 0.0f);
+        assertEquals(matrix.getSum(), mapped.getSum(), 1e-6);
+        assertEquals(matrix.getColumnSum(4), mapped.getColumnSum(4), 0.0f);
+        assertSameValues(matrix, mapped.getTranspose().getTranspose());
+    }
+
+    /**
+     * Test that a file created by MappedMatrix can be read by the BinaryMatrixReader.
+     */
+    @Test
+    public void testCreateBinaryFile() throws IOException {
+        logger.info("Testing to see that a mapped matrix file can be read by the BinaryMatrixReader.");
+        File file = File.createTempFile("mappedMatrix", ".binary");
+        file.deleteOnExit();
+        Matrix matrix = createMatrix();
+
+        MappedMatrix mapped = MappedMatrix.create(file, "test", "test matrix", 3, 2);
+        mapped.setExternalNumbers(EXTERNAL_ROWS, EXTERNAL_COLUMNS);
+        for (int r = 1; r < EXTERNAL_ROWS.length; ++r) {
+            for (int c = 1; c < EXTERNAL_COLUMNS.length; ++c) {
+                mapped.setValueAt(EXTERNAL_ROWS[r], EXTERNAL_COLUMNS[c],
+                        matrix.getValueAt(EXTERNAL_ROWS[r], EXTERNAL_COLUMNS[c]));
+            }
+        }
+        mapped.flush();
+
+        assertSameValues(matrix, new BinaryMatrixReader(file).readMatrix());
+        assertSameValues(matrix, MappedMatrix.copyOf(matrix, file));
+    }
+
+    /**
+     * Test a matrix stored in direct buffers and written by the BinaryMatrixWriter.
+     */
+    @Test
+    public void testOffHeapMatrix() throws IOException {
+        logger.info("Testing to see that a matrix stored in direct buffers can be written.");
+        Matrix matrix = createMatrix();
+        MappedMatrix offHeap = MappedMatrix.copyOf(matrix, null);
+        assertNull(offHeap.getFile());
+        assertSameValues(matrix, offHeap);
+
+        offHeap.scale(2);
+        assertEquals(-11f, offHeap.getValueAt(9, 2), 0.0f);
+        offHeap.scale(0.5f);
+
+        File file = File.createTempFile("mappedMatrix", ".binary");
+        file.deleteOnExit();
+        new BinaryMatrixWriter(file).writeMatrix(offHeap);
+        assertSameValues(matrix, new BinaryMatrixReader(file).readMatrix());
+    }
+
+    /**
+     * Test that operations of a heap matrix accept a mapped matrix as argument.
+     */
+    @Test
+    public void testMappedArgument() {
+        logger.info("Testing to see that operations of a heap matrix accept a mapped matrix.");
+        Matrix matrix = createMatrix();
+        MappedMatrix offHeap = MappedMatrix.copyOf(matrix, null);
+
+        assertSameValues(matrix.multiply(2), matrix.add(offHeap));
+        assertEquals(0, matrix.subtract(offHeap).getSum(), 0.0);
+
+        float[][] square = { { 1, 2 }, { 3, 4 } };
+        Matrix heapSquare = new Matrix(square);
+        Matrix product = heapSquare.multiply(MappedMatrix.copyOf(heapSquare, null));
+        assertEquals(7f, product.getValueAt(1, 1), 0.0f);
+        assertEquals(22f, product.getValueAt(2, 2), 0.0f);
+    }
+
+    /**
+     * Test that binary files are mapped once the MappedMatrixReader is registered.
+     */
+    @Test
+    public void testRegisteredReader() throws IOException {
+        logger.info("Testing to see that the MappedMatrixReader can replace the BinaryMatrixReader.");
+        File file = File.createTempFile("mappedMatrix", ".binary");
+        file.deleteOnExit();
+        Matrix matrix = createMatrix();
+        new BinaryMatrixWriter(file).writeMatrix(matrix);
+
+        MatrixReader.setReaderClassForType(MatrixType.BINARY, new MappedMatrixReader());
+        try {
+            Matrix read = MatrixReader.createReader(MatrixType.BINARY, file).readMatrix();
+            assertTrue(read instanceof MappedMatrix);
+            assertSameValues(matrix, read);
+        } finally {
+            MatrixReader.clearReaderClassForType(MatrixType.BINARY);
+        }
+    }
+}